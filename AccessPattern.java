@@ -0,0 +1,318 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Padrões de acesso à memória, medidos em leitura e em escrita sobre um buffer já
+ * preenchido (sem page faults de primeiro toque):
+ * <ul>
+ *   <li>{@code seq}: varredura completa, um long depois do outro;</li>
+ *   <li>{@code stride:N}: um long a cada N bytes (64 = uma linha de cache por acesso,
+ *       4096 = uma página por acesso, o que expõe o custo de TLB);</li>
+ *   <li>{@code random}: linhas de cache sorteadas com distribuição uniforme;</li>
+ *   <li>{@code zipf[:s]}: linhas sorteadas com distribuição de Zipf de expoente s
+ *       (padrão 0.99); as mais populares ficam espalhadas pelo buffer, como objetos
+ *       quentes no heap;</li>
+ *   <li>{@code chase}: percorre uma permutação embaralhada de ciclo único (Sattolo) em
+ *       que cada nó guarda o offset do próximo. Cada leitura depende da anterior, então a
+ *       CPU não sobrepõe as faltas de cache e o tempo por acesso é a latência.</li>
+ * </ul>
+ * random e zipf leem os offsets de um vetor pré-sorteado, lido em sequência; as
+ * leituras no buffer são independentes entre si e medem vazão de faltas de cache, não
+ * latência.
+ *
+ * Cada acesso lê ou grava um long (8 bytes). ns/acesso divide o tempo pelos acessos e
+ * GB/s conta só os 8 bytes pedidos, não a linha de cache inteira que a CPU traz.
+ */
+public final class AccessPattern {
+    static final String DEFAULT_SPEC = "seq,stride:64,stride:4096,random,zipf:0.99,chase";
+    static final int BYTES_PER_ACCESS = Long.BYTES;
+    private static final int LINE_BYTES = 64;
+    /** Offsets pré-sorteados de random/zipf por passada. */
+    private static final int MIN_OFFSETS = 1 << 16;
+    private static final int MAX_OFFSETS = 1 << 20;
+    /** Nós da cadeia de chase; em buffers maiores os nós ficam mais espaçados. */
+    private static final int MAX_CHASE_NODES = 1 << 22;
+    /** Primo usado para espalhar as posições do Zipf; coprimo com qualquer número de linhas menor que ele. */
+    private static final long SCATTER_PRIME = 2654435761L;
+    private static final long SEED = 0x5eed;
+
+    enum Kind {
+        SEQUENTIAL("seq"),
+        STRIDE("stride"),
+        RANDOM("random"),
+        ZIPF("zipf"),
+        CHASE("chase");
+
+        final String key;
+
+        Kind(String key) {
+            this.key = key;
+        }
+    }
+
+    final Kind kind;
+    /** Passo em bytes de stride (8 em seq). */
+    final long stride;
+    /** Expoente de zipf. */
+    final double exponent;
+
+    private AccessPattern(Kind kind, long stride, double exponent) {
+        this.kind = kind;
+        this.stride = stride;
+        this.exponent = exponent;
+    }
+
+    /** Nome como aceito em --access, ex.: "stride:4096" ou "zipf:0.99". */
+    String label() {
+        switch (kind) {
+            case STRIDE:
+                return "stride:" + stride;
+            case ZIPF:
+                return String.format(Locale.ROOT, "zipf:%s", exponent);
+            default:
+                return kind.key;
+        }
+    }
+
+    /** Interpreta uma lista separada por vírgula, ex.: "seq,stride:4k,zipf:1.2,chase". */
+    static List<AccessPattern> parseList(String spec) {
+        List<AccessPattern> patterns = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            patterns.add(parse(entry));
+        }
+        return patterns;
+    }
+
+    static AccessPattern parse(String entry) {
+        String[] parts = entry.trim().toLowerCase(Locale.ROOT).split(":", 2);
+        switch (parts[0]) {
+            case "seq":
+            case "sequential":
+                return new AccessPattern(Kind.SEQUENTIAL, BYTES_PER_ACCESS, Double.NaN);
+            case "stride":
+                long stride = parts.length > 1 ? FanOutRunner.SizeDistribution.parseBytes(parts[1]) : LINE_BYTES;
+                if (stride < BYTES_PER_ACCESS || stride % BYTES_PER_ACCESS != 0 || stride > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Passo precisa ser múltiplo de 8 bytes: " + entry);
+                }
+                return new AccessPattern(Kind.STRIDE, stride, Double.NaN);
+            case "random":
+                return new AccessPattern(Kind.RANDOM, LINE_BYTES, Double.NaN);
+            case "zipf":
+                double exponent = parts.length > 1 ? Double.parseDouble(parts[1]) : 0.99;
+                if (!(exponent > 0)) {
+                    throw new IllegalArgumentException("Expoente do Zipf precisa ser positivo: " + entry);
+                }
+                return new AccessPattern(Kind.ZIPF, LINE_BYTES, exponent);
+            case "chase":
+                return new AccessPattern(Kind.CHASE, LINE_BYTES, Double.NaN);
+            default:
+                throw new IllegalArgumentException("Padrão de acesso desconhecido: " + entry
+                    + " (opções: seq, stride:N, random, zipf[:s], chase)");
+        }
+    }
+
+    /** Leitura e escrita de um padrão; campos em NaN/-1 quando a medição não se aplica. */
+    static class Measurement {
+        final AccessPattern pattern;
+        final long accessesPerPass;
+        final int passes;
+        double readSeconds = Double.NaN;
+        double writeSeconds = Double.NaN;
+        long readFaultsMinor = -1;
+        long writeFaultsMinor = -1;
+
+        Measurement(AccessPattern pattern, long accessesPerPass, int passes) {
+            this.pattern = pattern;
+            this.accessesPerPass = accessesPerPass;
+            this.passes = passes;
+        }
+
+        long accesses() {
+            return accessesPerPass * passes;
+        }
+
+        double nanosPerAccess(double seconds) {
+            return seconds * 1e9 / accesses();
+        }
+
+        double gbps(double seconds) {
+            return seconds > 0 ? (double) accesses() * BYTES_PER_ACCESS / seconds / 1e9 : Double.NaN;
+        }
+    }
+
+    /**
+     * Aloca um buffer de {@code sizeBytes}, preenche e mede cada padrão com uma passada
+     * de aquecimento e {@code passes} passadas medidas, primeiro lendo e depois gravando.
+     */
+    static List<Measurement> run(BufferBackend backend, long sizeBytes, int passes, List<AccessPattern> patterns) {
+        List<Measurement> results = new ArrayList<>();
+        MemoryTest.ResourceUsage start = MemoryTest.captureResourceUsage();
+        MemoryTest.ResourceUsage end = MemoryTest.captureResourceUsage();
+        MemoryBuffer buffer = backend.allocate(sizeBytes);
+        try {
+            buffer.initializeForReads((byte) 0x5a);
+            for (AccessPattern pattern : patterns) {
+                results.add(pattern.measure(buffer, passes, start, end));
+            }
+        } finally {
+            buffer.close();
+        }
+        return results;
+    }
+
+    private Measurement measure(MemoryBuffer buffer, int passes,
+                                MemoryTest.ResourceUsage start, MemoryTest.ResourceUsage end) {
+        long size = buffer.size();
+        long lines = Math.max(1, size / LINE_BYTES);
+        long[] offsets = null;
+        long chaseStart = 0;
+        long accessesPerPass;
+        switch (kind) {
+            case RANDOM:
+            case ZIPF:
+                offsets = kind == Kind.RANDOM ? uniformOffsets(lines) : zipfOffsets(lines, exponent);
+                accessesPerPass = offsets.length;
+                break;
+            case CHASE:
+                if (!buffer.writable()) {
+                    // A cadeia precisa ser gravada no buffer
+                    return new Measurement(this, 0, passes);
+                }
+                int nodes = (int) Math.min(lines, MAX_CHASE_NODES);
+                long spacing = size / nodes / LINE_BYTES * LINE_BYTES;
+                chaseStart = buildChain(buffer, nodes, node -> node * spacing);
+                accessesPerPass = nodes;
+                break;
+            default:
+                accessesPerPass = (size - BYTES_PER_ACCESS) / stride + 1;
+        }
+        Measurement measurement = new Measurement(this, accessesPerPass, passes);
+
+        MemoryTest.sink += readPass(buffer, offsets, chaseStart, accessesPerPass);
+        long accumulator = 0;
+        capture(start);
+        long begin = System.nanoTime();
+        for (int pass = 0; pass < passes; pass++) {
+            accumulator += readPass(buffer, offsets, chaseStart, accessesPerPass);
+        }
+        measurement.readSeconds = (System.nanoTime() - begin) / 1e9;
+        capture(end);
+        measurement.readFaultsMinor = minorFaults(start, end);
+        MemoryTest.sink += accumulator;
+
+        if (!buffer.writable()) {
+            return measurement;
+        }
+        writePass(buffer, offsets, chaseStart, accessesPerPass, 0);
+        capture(start);
+        begin = System.nanoTime();
+        for (int pass = 0; pass < passes; pass++) {
+            writePass(buffer, offsets, chaseStart, accessesPerPass, pass);
+        }
+        measurement.writeSeconds = (System.nanoTime() - begin) / 1e9;
+        capture(end);
+        measurement.writeFaultsMinor = minorFaults(start, end);
+        return measurement;
+    }
+
+    private long readPass(MemoryBuffer buffer, long[] offsets, long chaseStart, long steps) {
+        switch (kind) {
+            case RANDOM:
+            case ZIPF:
+                return buffer.gatherLongs(offsets, offsets.length);
+            case CHASE:
+                return buffer.chase(chaseStart, steps, false);
+            default:
+                return buffer.sumLongs(buffer.size(), stride);
+        }
+    }
+
+    private void writePass(MemoryBuffer buffer, long[] offsets, long chaseStart, long steps, long value) {
+        switch (kind) {
+            case RANDOM:
+            case ZIPF:
+                buffer.scatterLongs(offsets, offsets.length, value);
+                break;
+            case CHASE:
+                // Grava no segundo long de cada nó, preservando a cadeia
+                MemoryTest.sink += buffer.chase(chaseStart, steps, true);
+                break;
+            default:
+                buffer.putLongs(stride, value);
+        }
+    }
+
+    private static int offsetCount(long lines) {
+        return (int) Math.min(MAX_OFFSETS, Math.max(lines, MIN_OFFSETS));
+    }
+
+    private static long[] uniformOffsets(long lines) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        long[] offsets = new long[offsetCount(lines)];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = random.nextLong(lines) * LINE_BYTES;
+        }
+        return offsets;
+    }
+
+    /**
+     * Sorteia linhas com P(posto k) proporcional a 1/k^s pela inversa da CDF contínua
+     * (aproximação boa para muitas linhas) e espalha os postos pelo buffer com uma
+     * multiplicação modular, que é uma bijeção quando o primo não divide o número de linhas.
+     */
+    private static long[] zipfOffsets(long lines, double exponent) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        long[] offsets = new long[offsetCount(lines)];
+        double oneMinusS = 1 - exponent;
+        double logRange = Math.log(lines + 1.0);
+        double powRange = Math.pow(lines + 1.0, oneMinusS) - 1;
+        for (int i = 0; i < offsets.length; i++) {
+            double u = random.nextDouble();
+            double x = Math.abs(oneMinusS) < 1e-9
+                ? Math.exp(u * logRange)
+                : Math.pow(powRange * u + 1, 1 / oneMinusS);
+            long rank = Math.min(lines - 1, Math.max(0, (long) x - 1));
+            offsets[i] = rank * SCATTER_PRIME % lines * LINE_BYTES;
+        }
+        return offsets;
+    }
+
+    /**
+     * Grava uma permutação de ciclo único sobre {@code nodes} nós, o nó i no offset
+     * {@code nodeOffset(i)}; devolve o offset do nó 0.
+     */
+    static long buildChain(MemoryBuffer buffer, int nodes, IntToLongFunction nodeOffset) {
+        int[] next = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            next[i] = i;
+        }
+        // Sattolo: como Fisher-Yates, mas j < i, o que garante um único ciclo
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = nodes - 1; i > 0; i--) {
+            int j = random.nextInt(i);
+            int swap = next[i];
+            next[i] = next[j];
+            next[j] = swap;
+        }
+        for (int i = 0; i < nodes; i++) {
+            buffer.putLong(nodeOffset.applyAsLong(i), nodeOffset.applyAsLong(next[i]));
+        }
+        return nodeOffset.applyAsLong(0);
+    }
+
+    private static void capture(MemoryTest.ResourceUsage usage) {
+        if (usage != null) {
+            usage.capture();
+        }
+    }
+
+    private static long minorFaults(MemoryTest.ResourceUsage start, MemoryTest.ResourceUsage end) {
+        if (start == null || end == null || start.minorPageFaults < 0 || end.minorPageFaults < 0) {
+            return -1;
+        }
+        return end.minorPageFaults - start.minorPageFaults;
+    }
+}
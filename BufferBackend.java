@@ -0,0 +1,78 @@
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Backend de armazenamento usado pelas medições de MemoryTest.
+ *
+ * Cada backend sabe alocar um {@link MemoryBuffer} de tamanho arbitrário (em bytes)
+ * e liberá-lo. As quatro medições (alocação, aloca + libera, escrita e leitura)
+ * trabalham apenas com esta interface, então todo backend roda exatamente o mesmo
+ * conjunto de testes.
+ */
+public interface BufferBackend {
+    /** Maior array Java que a JVM costuma aceitar (alguns bytes abaixo de Integer.MAX_VALUE). */
+    long MAX_ARRAY_BYTES = Integer.MAX_VALUE - 8;
+
+    /** Tamanho padrão de cada segmento nos backends segmentados. */
+    int DEFAULT_CHUNK_MB = 256;
+
+    String name();
+
+    /** Indica se o backend consegue alocar um buffer deste tamanho nesta JVM. */
+    boolean supports(long sizeBytes);
+
+    MemoryBuffer allocate(long sizeBytes);
+
+    /** Prepara recursos do cenário (ex.: arquivo de rascunho) fora das regiões medidas. */
+    default void prepare(long sizeBytes) {
+    }
+
+    /**
+     * Chamado fora das regiões medidas antes de cada {@link #allocate(long)} das medições
+     * (ex.: descartar o arquivo de rascunho do page cache), para que esse custo não
+     * entre no tempo da alocação.
+     */
+    default void beforeAllocate(long sizeBytes) {
+    }
+
+    /** Libera os recursos criados por {@link #prepare(long)}. */
+    default void release() {
+    }
+
+    /** Nomes aceitos em --backend e no campo "backend" do arquivo de cenários. */
+    static List<String> names() {
+        return Arrays.asList("heap", "chunked", "direct", "segment", "mmap", "pooled");
+    }
+
+    /** Aceita o nome do backend seguido de qualificadores, como em "mmap:private:cold" ou "pooled:direct". */
+    static boolean isKnown(String spec) {
+        return names().contains(spec.split(":")[0]);
+    }
+
+    static BufferBackend forName(String name, int chunkMb) {
+        return forName(name, chunkMb, Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    static BufferBackend forName(String name, int chunkMb, Path scratchDir) {
+        int chunkBytes = (int) Math.min(MAX_ARRAY_BYTES, (long) chunkMb * 1024 * 1024);
+        if (name.startsWith("mmap")) {
+            return MappedFileBackend.parse(name, chunkBytes, scratchDir);
+        }
+        if (name.startsWith("pooled")) {
+            return PooledBackend.parse(name);
+        }
+        switch (name) {
+            case "heap":
+                return new HeapBackend();
+            case "chunked":
+                return new ChunkedHeapBackend(chunkBytes);
+            case "direct":
+                return new DirectBackend(chunkBytes);
+            case "segment":
+                return new SegmentBackend();
+            default:
+                throw new IllegalArgumentException("Backend desconhecido: " + name
+                    + " (opções: " + String.join(", ", names()) + ")");
+        }
+    }
+}
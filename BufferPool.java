@@ -0,0 +1,421 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool de buffers reciclados, no heap (byte[]) ou fora dele (ByteBuffer direto).
+ *
+ * Os tamanhos são arredondados para classes: quatro por potência de 2 a partir de
+ * 4 KB, então um buffer reciclado tem no máximo 25% a mais que o pedido. Cada classe
+ * tem dois níveis de listas livres:
+ * <ul>
+ *   <li>um cache por thread, sem sincronização, com poucas entradas (e nenhuma para
+ *       threads virtuais, que são descartáveis e deixariam buffers presos);</li>
+ *   <li>listas compartilhadas divididas em faixas (stripes) com um lock cada; a thread
+ *       começa pela sua faixa e só visita as outras quando ela está vazia.</li>
+ * </ul>
+ * Os dois níveis reutilizam o buffer devolvido mais recentemente (LIFO), que ainda
+ * está quente no cache da CPU e no TLB.
+ *
+ * O total de bytes ociosos no pool é limitado. Ao passar do limite, o pool descarta os
+ * buffers mais antigos da mesma classe e depois os das classes maiores. Se ainda não
+ * houver espaço, o buffer devolvido é liberado. Buffers diretos descartados são
+ * liberados na hora, sem esperar o GC.
+ *
+ * @param <T> byte[] ou ByteBuffer
+ */
+public final class BufferPool<T> implements AutoCloseable {
+    static final int MIN_CLASS_SHIFT = 12;
+    static final int CLASSES = (30 - MIN_CLASS_SHIFT) * 4 + 5;
+    private static final int THREAD_CACHE_ENTRIES = 8;
+    private static final long THREAD_CACHE_BYTES = 4L * 1024 * 1024;
+    private static final MethodHandle IS_VIRTUAL;
+
+    static {
+        MethodHandle isVirtual = null;
+        try {
+            isVirtual = MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual",
+                MethodType.methodType(boolean.class));
+        } catch (ReflectiveOperationException e) {
+            // JDK sem threads virtuais
+        }
+        IS_VIRTUAL = isVirtual;
+    }
+
+    /** Como criar, medir e liberar o armazenamento concreto. */
+    interface Storage<T> {
+        String name();
+
+        T allocate(int capacity);
+
+        void free(T buffer);
+    }
+
+    static final Storage<byte[]> HEAP = new Storage<byte[]>() {
+        @Override
+        public String name() {
+            return "heap";
+        }
+
+        @Override
+        public byte[] allocate(int capacity) {
+            return new byte[capacity];
+        }
+
+        @Override
+        public void free(byte[] buffer) {
+        }
+    };
+
+    static final Storage<ByteBuffer> DIRECT = new Storage<ByteBuffer>() {
+        @Override
+        public String name() {
+            return "direct";
+        }
+
+        @Override
+        public ByteBuffer allocate(int capacity) {
+            return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+        }
+
+        @Override
+        public void free(ByteBuffer buffer) {
+            DirectBackend.free(buffer);
+        }
+    };
+
+    /** Contadores do pool; {@link #minus(Stats)} dá o delta de uma fase. */
+    static class Stats {
+        long acquires;
+        long threadCacheHits;
+        long sharedHits;
+        long misses;
+        long releases;
+        long evictions;
+        long bytesAllocated;
+        long bytesHeld;
+        long peakBytesHeld;
+
+        double hitRate() {
+            return acquires > 0 ? (double) (threadCacheHits + sharedHits) / acquires : Double.NaN;
+        }
+
+        /** Contadores viram diferenças; bytes retidos e pico ficam com o valor final. */
+        Stats minus(Stats start) {
+            Stats delta = new Stats();
+            delta.acquires = acquires - start.acquires;
+            delta.threadCacheHits = threadCacheHits - start.threadCacheHits;
+            delta.sharedHits = sharedHits - start.sharedHits;
+            delta.misses = misses - start.misses;
+            delta.releases = releases - start.releases;
+            delta.evictions = evictions - start.evictions;
+            delta.bytesAllocated = bytesAllocated - start.bytesAllocated;
+            delta.bytesHeld = bytesHeld;
+            delta.peakBytesHeld = peakBytesHeld;
+            return delta;
+        }
+    }
+
+    /** Faixa da lista compartilhada de uma classe. */
+    private static final class Stripe<T> {
+        final ReentrantLock lock = new ReentrantLock();
+        final ArrayDeque<T> free = new ArrayDeque<>();
+    }
+
+    /** Cache de uma thread: uma pilha pequena por classe, criada sob demanda. */
+    private static final class ThreadCache {
+        final Thread owner = Thread.currentThread();
+        final Object[][] slots = new Object[CLASSES][];
+        final int[] counts = new int[CLASSES];
+    }
+
+    private final Storage<T> storage;
+    private final long maxBytesHeld;
+    private final Stripe<T>[][] stripes;
+    private final int stripeMask;
+    private final ThreadLocal<ThreadCache> threadCache = new ThreadLocal<>();
+    private final ConcurrentLinkedQueue<ThreadCache> caches = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong bytesHeld = new AtomicLong();
+    private final LongAccumulator peakBytesHeld = new LongAccumulator(Math::max, 0);
+    private final LongAdder acquires = new LongAdder();
+    private final LongAdder threadCacheHits = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder releases = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder bytesAllocated = new LongAdder();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    BufferPool(Storage<T> storage, long maxBytesHeld) {
+        this.storage = storage;
+        this.maxBytesHeld = maxBytesHeld;
+        int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.stripeMask = stripeCount - 1;
+        this.stripes = new Stripe[CLASSES][stripeCount];
+        for (Stripe<T>[] classStripes : stripes) {
+            for (int i = 0; i < stripeCount; i++) {
+                classStripes[i] = new Stripe<>();
+            }
+        }
+    }
+
+    String storageName() {
+        return storage.name();
+    }
+
+    long maxBytesHeld() {
+        return maxBytesHeld;
+    }
+
+    /** Classe do menor buffer com pelo menos {@code size} bytes. */
+    static int classIndex(long size) {
+        if (size <= 1L << MIN_CLASS_SHIFT) {
+            return 0;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(size - 1);
+        int sub = (int) ((size - 1) >>> (exponent - 2)) & 3;
+        return (exponent - MIN_CLASS_SHIFT) * 4 + sub + 1;
+    }
+
+    static long classCapacity(int index) {
+        if (index == 0) {
+            return 1L << MIN_CLASS_SHIFT;
+        }
+        int exponent = (index - 1) / 4 + MIN_CLASS_SHIFT;
+        int sub = (index - 1) % 4;
+        return (long) (5 + sub) << (exponent - 2);
+    }
+
+    /** Tamanhos cuja classe cabe num array ou ByteBuffer (capacidade int). */
+    static boolean supports(long size) {
+        return size > 0 && classIndex(size) < CLASSES
+            && classCapacity(classIndex(size)) <= BufferBackend.MAX_ARRAY_BYTES;
+    }
+
+    T acquire(long size) {
+        int index = classIndex(size);
+        long capacity = classCapacity(index);
+        acquires.increment();
+        ThreadCache cache = cacheForCurrentThread();
+        if (cache != null && cache.counts[index] > 0) {
+            @SuppressWarnings("unchecked")
+            T buffer = (T) cache.slots[index][--cache.counts[index]];
+            cache.slots[index][cache.counts[index]] = null;
+            bytesHeld.addAndGet(-capacity);
+            threadCacheHits.increment();
+            return buffer;
+        }
+        Stripe<T>[] classStripes = stripes[index];
+        int start = probe();
+        for (int i = 0; i <= stripeMask; i++) {
+            Stripe<T> stripe = classStripes[(start + i) & stripeMask];
+            stripe.lock.lock();
+            T buffer;
+            try {
+                buffer = stripe.free.pollFirst();
+            } finally {
+                stripe.lock.unlock();
+            }
+            if (buffer != null) {
+                bytesHeld.addAndGet(-capacity);
+                sharedHits.increment();
+                return buffer;
+            }
+        }
+        misses.increment();
+        bytesAllocated.add(capacity);
+        return storage.allocate((int) capacity);
+    }
+
+    /** Devolve um buffer obtido de {@link #acquire(long)} com o mesmo {@code size}. */
+    void release(T buffer, long size) {
+        int index = classIndex(size);
+        long capacity = classCapacity(index);
+        releases.increment();
+        ThreadCache cache = cacheForCurrentThread();
+        if (cache != null && cache.counts[index] < threadCacheLimit(capacity)
+                && bytesHeld.get() + capacity <= maxBytesHeld) {
+            if (cache.slots[index] == null) {
+                cache.slots[index] = new Object[threadCacheLimit(capacity)];
+            }
+            cache.slots[index][cache.counts[index]++] = buffer;
+            held(capacity);
+            return;
+        }
+        releaseShared(buffer, index, capacity);
+    }
+
+    private void releaseShared(T buffer, int index, long capacity) {
+        if (bytesHeld.get() + capacity > maxBytesHeld && !evict(index, capacity)) {
+            evictions.increment();
+            storage.free(buffer);
+            return;
+        }
+        Stripe<T> stripe = stripes[index][probe()];
+        stripe.lock.lock();
+        try {
+            stripe.free.addFirst(buffer);
+        } finally {
+            stripe.lock.unlock();
+        }
+        held(capacity);
+    }
+
+    private void held(long capacity) {
+        peakBytesHeld.accumulate(bytesHeld.addAndGet(capacity));
+    }
+
+    /**
+     * Abre espaço para {@code needed} bytes descartando os buffers mais antigos (fim das
+     * filas), primeiro da mesma classe e depois das classes maiores para as menores.
+     */
+    private boolean evict(int preferredIndex, long needed) {
+        if (needed > maxBytesHeld) {
+            return false;
+        }
+        for (int pass = -1; pass < CLASSES; pass++) {
+            int index = pass < 0 ? preferredIndex : CLASSES - 1 - pass;
+            long capacity = classCapacity(index);
+            for (Stripe<T> stripe : stripes[index]) {
+                while (bytesHeld.get() + needed > maxBytesHeld) {
+                    T victim;
+                    stripe.lock.lock();
+                    try {
+                        victim = stripe.free.pollLast();
+                    } finally {
+                        stripe.lock.unlock();
+                    }
+                    if (victim == null) {
+                        break;
+                    }
+                    bytesHeld.addAndGet(-capacity);
+                    evictions.increment();
+                    storage.free(victim);
+                }
+                if (bytesHeld.get() + needed <= maxBytesHeld) {
+                    return true;
+                }
+            }
+        }
+        return bytesHeld.get() + needed <= maxBytesHeld;
+    }
+
+    private static int threadCacheLimit(long capacity) {
+        return (int) Math.max(1, Math.min(THREAD_CACHE_ENTRIES, THREAD_CACHE_BYTES / capacity));
+    }
+
+    private int probe() {
+        return (int) Thread.currentThread().getId() & stripeMask;
+    }
+
+    private ThreadCache cacheForCurrentThread() {
+        ThreadCache cache = threadCache.get();
+        if (cache == null) {
+            if (isVirtualThread()) {
+                return null;
+            }
+            cache = new ThreadCache();
+            threadCache.set(cache);
+            caches.add(cache);
+        }
+        return cache;
+    }
+
+    private static boolean isVirtualThread() {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(Thread.currentThread());
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /**
+     * Move para as listas compartilhadas os caches de threads que já terminaram (ex.: o
+     * pool de plataforma de uma rodada de fan-out), para que esses buffers voltem a
+     * circular ou sejam descartados pelo limite.
+     */
+    void reclaimDeadThreads() {
+        for (Iterator<ThreadCache> it = caches.iterator(); it.hasNext(); ) {
+            ThreadCache cache = it.next();
+            if (cache.owner.isAlive()) {
+                continue;
+            }
+            it.remove();
+            drain(cache, false);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drain(ThreadCache cache, boolean free) {
+        for (int index = 0; index < CLASSES; index++) {
+            long capacity = classCapacity(index);
+            while (cache.counts[index] > 0) {
+                T buffer = (T) cache.slots[index][--cache.counts[index]];
+                cache.slots[index][cache.counts[index]] = null;
+                bytesHeld.addAndGet(-capacity);
+                if (free) {
+                    storage.free(buffer);
+                } else {
+                    releaseShared(buffer, index, capacity);
+                }
+            }
+        }
+    }
+
+    Stats stats() {
+        Stats stats = new Stats();
+        stats.acquires = acquires.sum();
+        stats.threadCacheHits = threadCacheHits.sum();
+        stats.sharedHits = sharedHits.sum();
+        stats.misses = misses.sum();
+        stats.releases = releases.sum();
+        stats.evictions = evictions.sum();
+        stats.bytesAllocated = bytesAllocated.sum();
+        stats.bytesHeld = bytesHeld.get();
+        stats.peakBytesHeld = peakBytesHeld.get();
+        return stats;
+    }
+
+    /**
+     * Libera tudo o que o pool retém. Só pode ser chamado sem outras threads usando o
+     * pool, porque esvazia também os caches de threads vivas.
+     */
+    @Override
+    public void close() {
+        for (Iterator<ThreadCache> it = caches.iterator(); it.hasNext(); ) {
+            ThreadCache cache = it.next();
+            drain(cache, true);
+            // Caches de threads vivas continuam no ThreadLocal delas e seguem registrados
+            if (!cache.owner.isAlive()) {
+                it.remove();
+            }
+        }
+        for (Stripe<T>[] classStripes : stripes) {
+            for (Stripe<T> stripe : classStripes) {
+                stripe.lock.lock();
+                try {
+                    for (T buffer : stripe.free) {
+                        storage.free(buffer);
+                    }
+                    stripe.free.clear();
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        }
+        bytesHeld.set(0);
+    }
+}
@@ -0,0 +1,122 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Relança o MemoryTest numa JVM filha com outras opções de JVM.
+ *
+ * Opções como huge pages, pre-touch, tamanho do heap ou coletor só valem na criação
+ * da JVM; para compará-las numa única execução, cada combinação roda num processo
+ * próprio com o mesmo classpath e diretório de trabalho, e a saída do filho aparece
+ * direto no console do pai.
+ */
+public final class ChildJvm {
+    private ChildJvm() {
+    }
+
+    /** Resultado de um processo filho. */
+    static class Exit {
+        final int code;
+        final double wallSeconds;
+
+        Exit(int code, double wallSeconds) {
+            this.code = code;
+            this.wallSeconds = wallSeconds;
+        }
+    }
+
+    /** Executável java da JVM atual, para o filho usar a mesma versão. */
+    static String javaExecutable() {
+        String executable = System.getProperty("os.name").toLowerCase().contains("windows")
+            ? "java.exe"
+            : "java";
+        return System.getProperty("java.home") + File.separator + "bin" + File.separator + executable;
+    }
+
+    /** Valor de uma opção da JVM atual (ex.: "-Xmx"), ou null se não foi passada. */
+    static String inheritedOption(String prefix) {
+        String found = null;
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith(prefix)) {
+                found = argument;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * --add-modules e --enable-preview da JVM atual, que o filho precisa para carregar as
+     * mesmas classes (ex.: VectorKernels com jdk.incubator.vector). Aceita as formas
+     * "--add-modules=m" e "--add-modules m"; o filho recebe sempre a primeira.
+     */
+    static List<String> moduleOptions(List<String> inputArguments) {
+        List<String> options = new ArrayList<>();
+        for (int i = 0; i < inputArguments.size(); i++) {
+            String argument = inputArguments.get(i);
+            if (argument.equals("--enable-preview") || argument.startsWith("--add-modules=")) {
+                options.add(argument);
+            } else if (argument.equals("--add-modules") && i + 1 < inputArguments.size()) {
+                options.add("--add-modules=" + inputArguments.get(++i));
+            }
+        }
+        return options;
+    }
+
+    static List<String> command(List<String> jvmFlags, String mainClass, List<String> args) {
+        return command(new ArrayList<>(), jvmFlags, mainClass, args);
+    }
+
+    /** Com {@code launcher} antes do java, ex.: numactl --cpunodebind=0 --membind=1. */
+    static List<String> command(List<String> launcher, List<String> jvmFlags, String mainClass, List<String> args) {
+        return command(launcher, jvmFlags, System.getProperty("java.class.path"), mainClass, args);
+    }
+
+    /** Com outro classpath, ex.: o jar que --startup monta para o AppCDS. */
+    static List<String> command(List<String> launcher, List<String> jvmFlags, String classPath,
+                                String mainClass, List<String> args) {
+        List<String> command = new ArrayList<>(launcher);
+        command.add(javaExecutable());
+        command.addAll(moduleOptions(ManagementFactory.getRuntimeMXBean().getInputArguments()));
+        command.addAll(jvmFlags);
+        command.add("-cp");
+        command.add(classPath);
+        command.add(mainClass);
+        command.addAll(args);
+        return command;
+    }
+
+    /** Roda o filho até o fim, com stdout e stderr herdados do pai. */
+    static Exit run(List<String> jvmFlags, String mainClass, List<String> args) throws IOException {
+        return run(new ArrayList<>(), jvmFlags, mainClass, args);
+    }
+
+    /** Inicia o filho sem esperar, com stdin e stdout ligados ao pai e stderr herdado. */
+    static Process start(List<String> jvmFlags, String mainClass, List<String> args) throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(command(jvmFlags, mainClass, args));
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    static Exit run(List<String> launcher, List<String> jvmFlags, String mainClass, List<String> args)
+            throws IOException {
+        return run(launcher, jvmFlags, System.getProperty("java.class.path"), mainClass, args);
+    }
+
+    static Exit run(List<String> launcher, List<String> jvmFlags, String classPath, String mainClass,
+                    List<String> args) throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(command(launcher, jvmFlags, classPath, mainClass, args));
+        builder.inheritIO();
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            int code = process.waitFor();
+            return new Exit(code, (System.nanoTime() - start) / 1e9);
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrompido aguardando a JVM filha", e);
+        }
+    }
+}
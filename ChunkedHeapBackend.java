@@ -0,0 +1,191 @@
+import java.util.Arrays;
+
+/**
+ * Backend no heap dividido em segmentos byte[][], para tamanhos acima do limite
+ * de ~2 GB de um único array Java. Cada segmento é um array comum, então o GC e
+ * as TLABs se comportam como no backend heap, só que com vários objetos grandes.
+ */
+public class ChunkedHeapBackend implements BufferBackend {
+    private final int chunkBytes;
+
+    public ChunkedHeapBackend(int chunkBytes) {
+        this.chunkBytes = chunkBytes;
+    }
+
+    @Override
+    public String name() {
+        return "chunked";
+    }
+
+    @Override
+    public boolean supports(long sizeBytes) {
+        // O array externo também é limitado a Integer.MAX_VALUE entradas
+        return sizeBytes > 0 && sizeBytes / chunkBytes < Integer.MAX_VALUE;
+    }
+
+    @Override
+    public MemoryBuffer allocate(long sizeBytes) {
+        int chunkCount = (int) ((sizeBytes + chunkBytes - 1) / chunkBytes);
+        byte[][] chunks = new byte[chunkCount][];
+        long remaining = sizeBytes;
+        for (int i = 0; i < chunkCount; i++) {
+            int length = (int) Math.min(chunkBytes, remaining);
+            chunks[i] = new byte[length];
+            remaining -= length;
+        }
+        return new Buffer(chunks, chunkBytes, sizeBytes);
+    }
+
+    static class Buffer implements MemoryBuffer {
+        private byte[][] chunks;
+        private final int chunkBytes;
+        private final long size;
+        /** log2 de chunkBytes quando é potência de 2 (troca divisão por deslocamento), senão -1. */
+        private final int chunkShift;
+
+        Buffer(byte[][] chunks, int chunkBytes, long size) {
+            this.chunks = chunks;
+            this.chunkBytes = chunkBytes;
+            this.chunkShift = Integer.bitCount(chunkBytes) == 1 ? Integer.numberOfTrailingZeros(chunkBytes) : -1;
+            this.size = size;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public byte get(long index) {
+            return chunks[(int) (index / chunkBytes)][(int) (index % chunkBytes)];
+        }
+
+        @Override
+        public void put(long index, byte value) {
+            chunks[(int) (index / chunkBytes)][(int) (index % chunkBytes)] = value;
+        }
+
+        @Override
+        public void fill(byte value) {
+            for (byte[] chunk : chunks) {
+                Arrays.fill(chunk, value);
+            }
+        }
+
+        @Override
+        public long sumStride(long stride) {
+            long accumulator = 0;
+            long base = 0;
+            for (byte[] chunk : chunks) {
+                // Continua a sequência de índices globais através das fronteiras de segmento
+                int start = (int) ((stride - base % stride) % stride);
+                for (int index = start; index < chunk.length; index += (int) stride) {
+                    accumulator += chunk[index];
+                }
+                base += chunk.length;
+            }
+            return accumulator;
+        }
+
+        private int chunkOf(long offset) {
+            return chunkShift >= 0 ? (int) (offset >>> chunkShift) : (int) (offset / chunkBytes);
+        }
+
+        private int indexIn(long offset) {
+            return chunkShift >= 0 ? (int) offset & (chunkBytes - 1) : (int) (offset % chunkBytes);
+        }
+
+        @Override
+        public long getLong(long offset) {
+            return (long) HeapBackend.LONGS.get(chunks[chunkOf(offset)], indexIn(offset));
+        }
+
+        @Override
+        public void putLong(long offset, long value) {
+            HeapBackend.LONGS.set(chunks[chunkOf(offset)], indexIn(offset), value);
+        }
+
+        @Override
+        public long sumLongs(long length, long stride) {
+            long accumulator = 0;
+            long base = 0;
+            for (byte[] chunk : chunks) {
+                if (base >= length) {
+                    break;
+                }
+                int start = (int) ((stride - base % stride) % stride);
+                int limit = (int) Math.min(chunk.length, length - base);
+                accumulator += HeapBackend.sumLongs(chunk, start, limit, (int) stride);
+                base += chunk.length;
+            }
+            return accumulator;
+        }
+
+        @Override
+        public void putLongs(long stride, long value) {
+            long base = 0;
+            for (byte[] chunk : chunks) {
+                int start = (int) ((stride - base % stride) % stride);
+                HeapBackend.putLongs(chunk, start, chunk.length, (int) stride, value);
+                base += chunk.length;
+            }
+        }
+
+        @Override
+        public long readWith(Kernels.Kernel kernel) {
+            long accumulator = 0;
+            for (byte[] chunk : chunks) {
+                accumulator += kernel.read(chunk, 0, chunk.length);
+            }
+            return accumulator;
+        }
+
+        @Override
+        public void writeWith(Kernels.Kernel kernel, byte value) {
+            for (byte[] chunk : chunks) {
+                kernel.write(chunk, 0, chunk.length, value);
+            }
+        }
+
+        @Override
+        public long gatherLongs(long[] offsets, int count) {
+            byte[][] arrays = chunks;
+            long accumulator = 0;
+            for (int i = 0; i < count; i++) {
+                long offset = offsets[i];
+                accumulator += (long) HeapBackend.LONGS.get(arrays[chunkOf(offset)], indexIn(offset));
+            }
+            return accumulator;
+        }
+
+        @Override
+        public void scatterLongs(long[] offsets, int count, long value) {
+            byte[][] arrays = chunks;
+            for (int i = 0; i < count; i++) {
+                long offset = offsets[i];
+                HeapBackend.LONGS.set(arrays[chunkOf(offset)], indexIn(offset), value);
+            }
+        }
+
+        @Override
+        public long chase(long offset, long steps, boolean touch) {
+            byte[][] arrays = chunks;
+            long node = offset;
+            for (long step = 0; step < steps; step++) {
+                byte[] chunk = arrays[chunkOf(node)];
+                int index = indexIn(node);
+                long next = (long) HeapBackend.LONGS.get(chunk, index);
+                if (touch) {
+                    HeapBackend.LONGS.set(chunk, index + Long.BYTES, step);
+                }
+                node = next;
+            }
+            return node;
+        }
+
+        @Override
+        public void close() {
+            chunks = null;
+        }
+    }
+}
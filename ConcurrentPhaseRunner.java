@@ -0,0 +1,152 @@
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * Executa uma fase de MemoryTest em N threads de plataforma ao mesmo tempo.
+ *
+ * Todas as threads esperam numa barreira e começam juntas; cada uma mede a própria
+ * fase com o seu próprio buffer do tamanho do cenário (escala fraca, como N processos
+ * concorrentes). O throughput agregado usa o tempo medido da thread mais lenta, e
+ * não o tempo de parede: nas fases de escrita e leitura o tempo de parede inclui a
+ * alocação e o preenchimento inicial de cada buffer, que ficam fora da medição.
+ */
+public final class ConcurrentPhaseRunner {
+    private ConcurrentPhaseRunner() {
+    }
+
+    /** Resultado de uma fase executada com um número fixo de threads. */
+    static class PhaseRun {
+        final int threads;
+        final double wallSeconds;
+        final double[] threadSeconds;
+        /** Bytes tocados por thread (Phase.bytesTouched): na leitura, um por página. */
+        final long bytesPerThread;
+        /** Bytes alocados no heap pelas threads nas regiões cronometradas; -1 quando a JVM não mede. */
+        long allocatedBytes = -1;
+        /** Preenchido depois da varredura, relativo à execução com 1 thread. */
+        double scalingEfficiency = Double.NaN;
+
+        PhaseRun(int threads, double wallSeconds, double[] threadSeconds, long bytesPerThread) {
+            this.threads = threads;
+            this.wallSeconds = wallSeconds;
+            this.threadSeconds = threadSeconds;
+            this.bytesPerThread = bytesPerThread;
+        }
+
+        /** GB/s (10^9 bytes) tocados por cada thread, no tempo da própria thread. */
+        double[] perThreadGbps() {
+            double[] gbps = new double[threadSeconds.length];
+            for (int i = 0; i < threadSeconds.length; i++) {
+                gbps[i] = toGbps(bytesPerThread, threadSeconds[i]);
+            }
+            return gbps;
+        }
+
+        /** Tempo medido da thread mais lenta; é o tempo da fase com N threads. */
+        double slowestThreadSeconds() {
+            double slowest = 0;
+            for (double seconds : threadSeconds) {
+                slowest = Math.max(slowest, seconds);
+            }
+            return slowest;
+        }
+
+        double aggregateGbps() {
+            return toGbps(bytesPerThread * threads, slowestThreadSeconds());
+        }
+
+        private static double toGbps(long bytes, double seconds) {
+            return seconds > 0 ? bytes / seconds / 1e9 : Double.NaN;
+        }
+    }
+
+    static PhaseRun run(MemoryTest.Phase phase, BufferBackend backend,
+                        long sizeBytes, int iterations, int threads) {
+        return run(phase, backend, sizeBytes, iterations, threads, null);
+    }
+
+    /** Com {@code latency} não nulo, todas as threads gravam o tempo de cada iteração nele. */
+    static PhaseRun run(MemoryTest.Phase phase, BufferBackend backend,
+                        long sizeBytes, int iterations, int threads, LatencyHistogram latency) {
+        double[] threadSeconds = new double[threads];
+        long[] threadAllocated = new long[threads];
+        Throwable[] failures = new Throwable[threads];
+        CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+        Thread[] workers = new Thread[threads];
+
+        for (int i = 0; i < threads; i++) {
+            final int index = i;
+            workers[i] = new Thread(() -> {
+                try {
+                    barrier.await();
+                    MemoryTest.TimedRun run = phase.measure(backend, sizeBytes, iterations, latency);
+                    threadSeconds[index] = run.seconds;
+                    threadAllocated[index] = run.allocatedBytes;
+                } catch (Throwable t) {
+                    failures[index] = t;
+                }
+            }, "memtest-" + phase.key + "-" + i);
+            workers[i].start();
+        }
+
+        long start;
+        try {
+            barrier.await();
+            start = System.nanoTime();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando threads da fase " + phase.key, e);
+        } catch (BrokenBarrierException e) {
+            throw new IllegalStateException("Barreira quebrada na fase " + phase.key, e);
+        }
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+
+        for (Throwable failure : failures) {
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure != null) {
+                throw new IllegalStateException(failure);
+            }
+        }
+        PhaseRun run = new PhaseRun(threads, wallSeconds, threadSeconds, phase.bytesTouched(sizeBytes) * iterations);
+        long allocated = 0;
+        for (long bytes : threadAllocated) {
+            if (bytes < 0) {
+                allocated = -1;
+                break;
+            }
+            allocated += bytes;
+        }
+        run.allocatedBytes = allocated;
+        return run;
+    }
+
+    /**
+     * Eficiência de escala: throughput agregado com N threads dividido por N vezes o
+     * throughput com 1 thread. 1.0 é escala linear; a queda mostra onde TLAB, GC ou
+     * banda de memória passam a limitar. Sem execução com 1 thread na varredura, usa a
+     * menor contagem como base, normalizada por thread.
+     */
+    static void computeEfficiency(PhaseRun[] sweep) {
+        PhaseRun baseline = null;
+        for (PhaseRun run : sweep) {
+            if (baseline == null || run.threads < baseline.threads) {
+                baseline = run;
+            }
+        }
+        if (baseline == null) {
+            return;
+        }
+        double perThreadBaseline = baseline.aggregateGbps() / baseline.threads;
+        for (PhaseRun run : sweep) {
+            run.scalingEfficiency = run.aggregateGbps() / (run.threads * perThreadBaseline);
+        }
+    }
+}
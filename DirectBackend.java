@@ -0,0 +1,331 @@
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Backend fora do heap com segmentos ByteBuffer.allocateDirect.
+ *
+ * A memória nativa só volta ao sistema quando o Cleaner do buffer roda; para que
+ * "aloca + libera" meça de fato a liberação, {@link #free(ByteBuffer)} chama
+ * sun.misc.Unsafe.invokeCleaner quando disponível e cai para o GC caso contrário.
+ */
+public class DirectBackend implements BufferBackend {
+    private static final int FILL_HEAD = 4096;
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            java.lang.reflect.Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (Exception e) {
+            // JDK 8 ou acesso negado: a liberação fica a cargo do GC
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final int chunkBytes;
+
+    public DirectBackend(int chunkBytes) {
+        this.chunkBytes = chunkBytes;
+    }
+
+    @Override
+    public String name() {
+        return "direct";
+    }
+
+    @Override
+    public boolean supports(long sizeBytes) {
+        return sizeBytes > 0 && sizeBytes / chunkBytes < Integer.MAX_VALUE;
+    }
+
+    @Override
+    public MemoryBuffer allocate(long sizeBytes) {
+        int chunkCount = (int) ((sizeBytes + chunkBytes - 1) / chunkBytes);
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+        long remaining = sizeBytes;
+        try {
+            for (int i = 0; i < chunkCount; i++) {
+                int length = (int) Math.min(chunkBytes, remaining);
+                chunks[i] = ByteBuffer.allocateDirect(length).order(ByteOrder.nativeOrder());
+                remaining -= length;
+            }
+        } catch (OutOfMemoryError e) {
+            for (ByteBuffer chunk : chunks) {
+                free(chunk);
+            }
+            throw e;
+        }
+        return new SegmentedByteBuffer(chunks, chunkBytes, sizeBytes);
+    }
+
+    /** Libera imediatamente um buffer direto ou mapeado; ignora buffers no heap. */
+    static void free(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (Exception e) {
+            // Slices e duplicates não podem ser liberados diretamente; o GC cuida deles
+        }
+    }
+
+    /**
+     * Preenche {@code buffer} inteiro sem alocar no heap: grava os primeiros bytes com
+     * putLong e depois dobra a região preenchida com cópias em massa dentro do próprio
+     * buffer (memcpy nativo).
+     */
+    static void fill(ByteBuffer buffer, byte value) {
+        fill(buffer, buffer.capacity(), value);
+    }
+
+    /** Preenche só os primeiros {@code capacity} bytes (buffers reciclados maiores que o pedido). */
+    static void fill(ByteBuffer buffer, int capacity, byte value) {
+        long pattern = (value & 0xffL) * 0x0101010101010101L;
+        int head = Math.min(capacity, FILL_HEAD);
+        int index = 0;
+        for (; index + Long.BYTES <= head; index += Long.BYTES) {
+            buffer.putLong(index, pattern);
+        }
+        for (; index < head; index++) {
+            buffer.put(index, value);
+        }
+        ByteBuffer source = buffer.duplicate();
+        int filled = head;
+        while (filled < capacity) {
+            int length = Math.min(filled, capacity - filled);
+            buffer.put(filled, source, 0, length);
+            filled += length;
+        }
+    }
+
+    /** Soma um long a cada {@code stride} bytes de {@code buffer[start..limit)}. */
+    static long sumLongs(ByteBuffer buffer, int start, int limit, int stride) {
+        long accumulator = 0;
+        for (int index = start; index <= limit - Long.BYTES; index += stride) {
+            accumulator += buffer.getLong(index);
+        }
+        return accumulator;
+    }
+
+    static void putLongs(ByteBuffer buffer, int start, int limit, int stride, long value) {
+        for (int index = start; index <= limit - Long.BYTES; index += stride) {
+            buffer.putLong(index, value);
+        }
+    }
+
+    static long gatherLongs(ByteBuffer buffer, long[] offsets, int count) {
+        long accumulator = 0;
+        for (int i = 0; i < count; i++) {
+            accumulator += buffer.getLong((int) offsets[i]);
+        }
+        return accumulator;
+    }
+
+    static void scatterLongs(ByteBuffer buffer, long[] offsets, int count, long value) {
+        for (int i = 0; i < count; i++) {
+            buffer.putLong((int) offsets[i], value);
+        }
+    }
+
+    static long chase(ByteBuffer buffer, long offset, long steps, boolean touch) {
+        int node = (int) offset;
+        for (long step = 0; step < steps; step++) {
+            int next = (int) buffer.getLong(node);
+            if (touch) {
+                buffer.putLong(node + Long.BYTES, step);
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    /**
+     * Buffer formado por vários ByteBuffers consecutivos. Usado pelos backends
+     * direct e, mais adiante, por qualquer backend baseado em ByteBuffer.
+     */
+    static class SegmentedByteBuffer implements MemoryBuffer {
+        private ByteBuffer[] chunks;
+        private final int chunkBytes;
+        private final long size;
+        /** log2 de chunkBytes quando é potência de 2 (troca divisão por deslocamento), senão -1. */
+        private final int chunkShift;
+
+        SegmentedByteBuffer(ByteBuffer[] chunks, int chunkBytes, long size) {
+            // getLong/putLong sem troca de bytes; os offsets da cadeia de chase são gravados e lidos aqui
+            for (ByteBuffer chunk : chunks) {
+                chunk.order(ByteOrder.nativeOrder());
+            }
+            this.chunks = chunks;
+            this.chunkBytes = chunkBytes;
+            this.chunkShift = Integer.bitCount(chunkBytes) == 1 ? Integer.numberOfTrailingZeros(chunkBytes) : -1;
+            this.size = size;
+        }
+
+        ByteBuffer[] chunks() {
+            return chunks;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public byte get(long index) {
+            return chunks[(int) (index / chunkBytes)].get((int) (index % chunkBytes));
+        }
+
+        @Override
+        public void put(long index, byte value) {
+            chunks[(int) (index / chunkBytes)].put((int) (index % chunkBytes), value);
+        }
+
+        @Override
+        public void fill(byte value) {
+            for (ByteBuffer chunk : chunks) {
+                DirectBackend.fill(chunk, value);
+            }
+        }
+
+        @Override
+        public long sumStride(long stride) {
+            long accumulator = 0;
+            long base = 0;
+            for (ByteBuffer chunk : chunks) {
+                int limit = chunk.capacity();
+                int start = (int) ((stride - base % stride) % stride);
+                for (int index = start; index < limit; index += (int) stride) {
+                    accumulator += chunk.get(index);
+                }
+                base += limit;
+            }
+            return accumulator;
+        }
+
+        private int chunkOf(long offset) {
+            return chunkShift >= 0 ? (int) (offset >>> chunkShift) : (int) (offset / chunkBytes);
+        }
+
+        private int indexIn(long offset) {
+            return chunkShift >= 0 ? (int) offset & (chunkBytes - 1) : (int) (offset % chunkBytes);
+        }
+
+        @Override
+        public long getLong(long offset) {
+            return chunks[chunkOf(offset)].getLong(indexIn(offset));
+        }
+
+        @Override
+        public void putLong(long offset, long value) {
+            chunks[chunkOf(offset)].putLong(indexIn(offset), value);
+        }
+
+        @Override
+        public long sumLongs(long length, long stride) {
+            long accumulator = 0;
+            long base = 0;
+            for (ByteBuffer chunk : chunks) {
+                if (base >= length) {
+                    break;
+                }
+                int start = (int) ((stride - base % stride) % stride);
+                int limit = (int) Math.min(chunk.capacity(), length - base);
+                accumulator += DirectBackend.sumLongs(chunk, start, limit, (int) stride);
+                base += chunk.capacity();
+            }
+            return accumulator;
+        }
+
+        @Override
+        public void putLongs(long stride, long value) {
+            long base = 0;
+            for (ByteBuffer chunk : chunks) {
+                int start = (int) ((stride - base % stride) % stride);
+                DirectBackend.putLongs(chunk, start, chunk.capacity(), (int) stride, value);
+                base += chunk.capacity();
+            }
+        }
+
+        @Override
+        public long readWith(Kernels.Kernel kernel) {
+            long accumulator = 0;
+            for (ByteBuffer chunk : chunks) {
+                accumulator += kernel.read(chunk, 0, chunk.capacity());
+            }
+            return accumulator;
+        }
+
+        @Override
+        public void writeWith(Kernels.Kernel kernel, byte value) {
+            for (ByteBuffer chunk : chunks) {
+                kernel.write(chunk, 0, chunk.capacity(), value);
+            }
+        }
+
+        @Override
+        public long gatherLongs(long[] offsets, int count) {
+            if (chunks.length == 1) {
+                return DirectBackend.gatherLongs(chunks[0], offsets, count);
+            }
+            ByteBuffer[] buffers = chunks;
+            long accumulator = 0;
+            for (int i = 0; i < count; i++) {
+                long offset = offsets[i];
+                accumulator += buffers[chunkOf(offset)].getLong(indexIn(offset));
+            }
+            return accumulator;
+        }
+
+        @Override
+        public void scatterLongs(long[] offsets, int count, long value) {
+            if (chunks.length == 1) {
+                DirectBackend.scatterLongs(chunks[0], offsets, count, value);
+                return;
+            }
+            ByteBuffer[] buffers = chunks;
+            for (int i = 0; i < count; i++) {
+                long offset = offsets[i];
+                buffers[chunkOf(offset)].putLong(indexIn(offset), value);
+            }
+        }
+
+        @Override
+        public long chase(long offset, long steps, boolean touch) {
+            if (chunks.length == 1) {
+                return DirectBackend.chase(chunks[0], offset, steps, touch);
+            }
+            ByteBuffer[] buffers = chunks;
+            long node = offset;
+            for (long step = 0; step < steps; step++) {
+                ByteBuffer chunk = buffers[chunkOf(node)];
+                int index = indexIn(node);
+                long next = chunk.getLong(index);
+                if (touch) {
+                    chunk.putLong(index + Long.BYTES, step);
+                }
+                node = next;
+            }
+            return node;
+        }
+
+        @Override
+        public void close() {
+            if (chunks == null) {
+                return;
+            }
+            for (ByteBuffer chunk : chunks) {
+                free(chunk);
+            }
+            chunks = null;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cenário de fan-out: N requisições concorrentes, cada uma aloca, preenche, lê e
+ * descarta um buffer pequeno ou médio, como numa carga de serviço.
+ *
+ * As requisições são submetidas de uma vez a um executor de threads virtuais (uma por
+ * requisição) ou a um pool fixo de threads de plataforma, para comparação. Cada uma
+ * repete o padrão de acesso de measureWrites (fill) e measureReads (sumStride de 4096
+ * bytes). A latência conta da submissão ao fim e inclui a fila do pool; o tempo de
+ * serviço conta só a execução.
+ *
+ * Threads virtuais exigem JDK 21+; o executor é obtido por reflexão, então o teste
+ * continua compilando e rodando em JDKs anteriores, só sem essa variante.
+ */
+public final class FanOutRunner {
+    public static final String DEFAULT_SIZES = "4k:60,64k:30,1m:10";
+    public static final int DEFAULT_POOL = 200;
+    private static final Method NEW_VIRTUAL_EXECUTOR;
+
+    static {
+        Method method = null;
+        try {
+            method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            // JDK sem threads virtuais
+        }
+        NEW_VIRTUAL_EXECUTOR = method;
+    }
+
+    private FanOutRunner() {
+    }
+
+    /** Tipos de executor comparados. */
+    enum Kind {
+        VIRTUAL("virtual"),
+        PLATFORM("platform");
+
+        final String key;
+
+        Kind(String key) {
+            this.key = key;
+        }
+
+        static Kind parse(String value) {
+            for (Kind kind : values()) {
+                if (kind.key.equals(value.trim())) {
+                    return kind;
+                }
+            }
+            throw new IllegalArgumentException("Executor desconhecido: " + value + " (opções: virtual, platform)");
+        }
+    }
+
+    /** Distribuição de tamanhos por peso, ex.: "4k:60,64k:30,1m:10" (vírgula ou ';'). */
+    static class SizeDistribution {
+        final String spec;
+        final long[] sizes;
+        final int[] cumulativeWeights;
+
+        private SizeDistribution(String spec, long[] sizes, int[] cumulativeWeights) {
+            this.spec = spec;
+            this.sizes = sizes;
+            this.cumulativeWeights = cumulativeWeights;
+        }
+
+        static SizeDistribution parse(String spec) {
+            String[] entries = spec.split("[,;]");
+            long[] sizes = new long[entries.length];
+            int[] cumulative = new int[entries.length];
+            int total = 0;
+            for (int i = 0; i < entries.length; i++) {
+                String[] parts = entries[i].trim().split(":", 2);
+                sizes[i] = parseBytes(parts[0]);
+                int weight = parts.length == 2 ? Integer.parseInt(parts[1].trim()) : 1;
+                if (sizes[i] <= 0 || weight <= 0) {
+                    throw new IllegalArgumentException("Tamanho e peso precisam ser positivos: " + entries[i]);
+                }
+                total += weight;
+                cumulative[i] = total;
+            }
+            return new SizeDistribution(spec, sizes, cumulative);
+        }
+
+        /** Bytes com sufixo binário opcional: 512, 4k, 64k, 1m, 1g. */
+        static long parseBytes(String value) {
+            String v = value.trim().toLowerCase();
+            long multiplier = 1;
+            char unit = v.charAt(v.length() - 1);
+            if (unit == 'k' || unit == 'm' || unit == 'g') {
+                multiplier = unit == 'k' ? 1024L : unit == 'm' ? 1024L * 1024 : 1024L * 1024 * 1024;
+                v = v.substring(0, v.length() - 1);
+            }
+            return Long.parseLong(v) * multiplier;
+        }
+
+        long sample(ThreadLocalRandom random) {
+            int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (pick < cumulativeWeights[i]) {
+                    return sizes[i];
+                }
+            }
+            return sizes[sizes.length - 1];
+        }
+
+        long maxSize() {
+            long max = 0;
+            for (long size : sizes) {
+                max = Math.max(max, size);
+            }
+            return max;
+        }
+    }
+
+    /** Resultado das rodadas medidas de um executor. */
+    static class FanOutRun {
+        final Kind kind;
+        final int requests;
+        final int rounds;
+        /** Threads do pool de plataforma; 0 para threads virtuais. */
+        final int poolSize;
+        final SizeDistribution sizes;
+        final LatencyHistogram.Snapshot latency;
+        final LatencyHistogram.Snapshot service;
+        final long bytesAllocated;
+        final double wallSeconds;
+
+        FanOutRun(Kind kind, int requests, int rounds, int poolSize, SizeDistribution sizes,
+                  LatencyHistogram.Snapshot latency, LatencyHistogram.Snapshot service,
+                  long bytesAllocated, double wallSeconds) {
+            this.kind = kind;
+            this.requests = requests;
+            this.rounds = rounds;
+            this.poolSize = poolSize;
+            this.sizes = sizes;
+            this.latency = latency;
+            this.service = service;
+            this.bytesAllocated = bytesAllocated;
+            this.wallSeconds = wallSeconds;
+        }
+
+        double requestsPerSecond() {
+            return wallSeconds > 0 ? (double) requests * rounds / wallSeconds : Double.NaN;
+        }
+    }
+
+    /** true se a JVM cria threads virtuais (JDK 21+, ou 19/20 com --enable-preview). */
+    static boolean virtualThreadsAvailable() {
+        try {
+            ExecutorService executor = newExecutor(Kind.VIRTUAL, 0);
+            executor.shutdown();
+            return true;
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    static ExecutorService newExecutor(Kind kind, int poolSize) {
+        if (kind == Kind.PLATFORM) {
+            return Executors.newFixedThreadPool(poolSize);
+        }
+        if (NEW_VIRTUAL_EXECUTOR == null) {
+            throw new UnsupportedOperationException("Threads virtuais requerem JDK 21+; JVM atual: "
+                + System.getProperty("java.version"));
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // JDK 19/20 sem --enable-preview lança UnsupportedOperationException aqui
+            throw new UnsupportedOperationException("Threads virtuais indisponíveis: " + e.getCause(), e);
+        }
+    }
+
+    /**
+     * Roda {@code warmup} rodadas descartadas e {@code rounds} rodadas medidas de
+     * {@code requests} requisições cada. Cada rodada usa um executor novo.
+     */
+    static FanOutRun run(Kind kind, BufferBackend backend, SizeDistribution sizes,
+                         int requests, int poolSize, int warmup, int rounds) {
+        for (int w = 0; w < warmup; w++) {
+            runRound(kind, backend, sizes, requests, poolSize, null, null, null);
+        }
+        LatencyHistogram latency = new LatencyHistogram();
+        LatencyHistogram service = new LatencyHistogram();
+        LongAdder bytes = new LongAdder();
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            runRound(kind, backend, sizes, requests, poolSize, latency, service, bytes);
+        }
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+        return new FanOutRun(kind, requests, rounds, kind == Kind.PLATFORM ? poolSize : 0, sizes,
+            latency.snapshot(), service.snapshot(), bytes.sum(), wallSeconds);
+    }
+
+    private static void runRound(Kind kind, BufferBackend backend, SizeDistribution sizes, int requests,
+                                 int poolSize, LatencyHistogram latency, LatencyHistogram service,
+                                 LongAdder bytes) {
+        ExecutorService executor = newExecutor(kind, poolSize);
+        CountDownLatch done = new CountDownLatch(requests);
+        List<Throwable> failures = new ArrayList<>();
+        // Somas das leituras, publicadas em MemoryTest.sink uma vez só no fim da rodada
+        LongAdder checksum = new LongAdder();
+        try {
+            for (int i = 0; i < requests; i++) {
+                final long submitted = System.nanoTime();
+                final byte value = (byte) i;
+                executor.execute(() -> {
+                    try {
+                        long started = System.nanoTime();
+                        long size = sizes.sample(ThreadLocalRandom.current());
+                        checksum.add(handleRequest(backend, size, value));
+                        long finished = System.nanoTime();
+                        if (latency != null) {
+                            latency.record(finished - submitted);
+                            service.record(finished - started);
+                            bytes.add(size);
+                        }
+                    } catch (Throwable t) {
+                        synchronized (failures) {
+                            failures.add(t);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrompido aguardando as requisições do fan-out", e);
+        } finally {
+            executor.shutdown();
+        }
+        if (!failures.isEmpty()) {
+            Throwable first = failures.get(0);
+            throw first instanceof RuntimeException
+                ? (RuntimeException) first
+                : new IllegalStateException(failures.size() + " requisições falharam", first);
+        }
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        MemoryTest.sink += checksum.sum();
+    }
+
+    /**
+     * Uma requisição: aloca, escreve (como measureWrites), lê (como measureReads) e
+     * descarta. Devolve a soma lida, para a JIT não eliminar a leitura.
+     */
+    private static long handleRequest(BufferBackend backend, long size, byte value) {
+        MemoryBuffer buffer = backend.allocate(size);
+        try {
+            if (buffer.writable()) {
+                buffer.fill(value);
+            }
+            return buffer.sumStride(4096);
+        } finally {
+            buffer.close();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Registra cada coleta a partir das notificações dos GarbageCollectorMXBeans, em vez
+ * dos totais acumulados de getCollectionCount/getCollectionTime.
+ *
+ * Cada evento guarda o coletor, a ação, o início (ms desde a criação da JVM)
+ * e a duração. As pausas são atribuídas a cada fase pela ordem de chegada, entre duas
+ * marcas de {@link #mark()}, e não por horário: com a resolução de 1 ms do uptime, o
+ * System.gc() de MemoryTest.quiesce logo antes da fase caía dentro da janela.
+ * Para coletores concorrentes o bean de ciclos (ex.: "ZGC Cycles") mede o ciclo
+ * inteiro e o de pausas (ex.: "ZGC Pauses") mede só as pausas; os dois são mantidos
+ * separados pelo nome.
+ *
+ * As notificações chegam numa thread de serviço da JVM, depois da coleta;
+ * {@link #awaitDelivered(long)} espera até que todas as coletas já contadas pelos beans
+ * tenham chegado.
+ */
+public final class GcPauseRecorder {
+    private static GcPauseRecorder installed;
+
+    /** Uma coleta notificada. */
+    static class Event {
+        final String gcName;
+        final String action;
+        final long startMillis;
+        final long durationMillis;
+
+        Event(String gcName, String action, long startMillis, long durationMillis) {
+            this.gcName = gcName;
+            this.action = action;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+        }
+    }
+
+    /** Pausas de um coletor numa janela de tempo. */
+    static class PauseStats {
+        /** Ação das coletas, ou "(várias)" quando o bean mistura ações (ex.: Init/Final Mark). */
+        String action;
+        long count;
+        long totalMillis;
+        long maxMillis;
+
+        PauseStats(String action) {
+            this.action = action;
+        }
+
+        double meanMillis() {
+            return count > 0 ? (double) totalMillis / count : Double.NaN;
+        }
+    }
+
+    private final List<Event> events = new ArrayList<>();
+    /** Eventos já descartados por {@link #discardBefore(long)}; o evento events[i] é o de número discarded + i. */
+    private long discarded;
+    private final GarbageCollectorMXBean[] beans;
+    private final long[] baselineCounts;
+    private final Map<String, Long> delivered = new LinkedHashMap<>();
+
+    private GcPauseRecorder() {
+        List<GarbageCollectorMXBean> list = ManagementFactory.getGarbageCollectorMXBeans();
+        this.beans = list.toArray(new GarbageCollectorMXBean[0]);
+        this.baselineCounts = new long[beans.length];
+        NotificationListener listener = this::onNotification;
+        for (int i = 0; i < beans.length; i++) {
+            delivered.put(beans[i].getName(), 0L);
+            if (beans[i] instanceof NotificationEmitter) {
+                ((NotificationEmitter) beans[i]).addNotificationListener(listener, null, null);
+            }
+            // Lido depois do registro: coletas entre as duas linhas só sobram, nunca faltam
+            baselineCounts[i] = Math.max(0, beans[i].getCollectionCount());
+        }
+    }
+
+    /** Instala os listeners uma única vez por JVM e devolve o gravador. */
+    static synchronized GcPauseRecorder install() {
+        if (installed == null) {
+            installed = new GcPauseRecorder();
+        }
+        return installed;
+    }
+
+    private void onNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        Event event = new Event(info.getGcName(), info.getGcAction(),
+            info.getGcInfo().getStartTime(), info.getGcInfo().getDuration());
+        synchronized (this) {
+            events.add(event);
+            delivered.merge(event.gcName, 1L, Long::sum);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Espera até que cada bean tenha notificado todas as coletas que já contou, ou até
+     * o tempo limite. Retorna false se alguma notificação ainda faltava.
+     */
+    synchronized boolean awaitDelivered(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            boolean complete = true;
+            for (int i = 0; i < beans.length; i++) {
+                long expected = beans[i].getCollectionCount() - baselineCounts[i];
+                if (delivered.getOrDefault(beans[i].getName(), 0L) < expected) {
+                    complete = false;
+                    break;
+                }
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (complete || remaining <= 0) {
+                return complete;
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    /** Ms desde a criação da JVM, na mesma base de GcInfo.getStartTime. */
+    static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    /**
+     * Espera as notificações das coletas já contadas e devolve quantas chegaram desde a
+     * criação do gravador. Tudo o que for coletado depois fica em [mark(), próxima marca).
+     */
+    synchronized long mark() {
+        if (!awaitDelivered(1000)) {
+            System.out.println("Aviso: notificações de GC ainda pendentes; pausas podem cair na fase seguinte");
+        }
+        return discarded + events.size();
+    }
+
+    /** Libera os eventos anteriores à marca; chamado no início de cada cenário. */
+    synchronized void discardBefore(long mark) {
+        int count = (int) Math.min(events.size(), Math.max(0, mark - discarded));
+        events.subList(0, count).clear();
+        discarded += count;
+    }
+
+    /** Pausas por coletor das coletas notificadas entre as marcas [fromMark, toMark). */
+    synchronized Map<String, PauseStats> summarize(long fromMark, long toMark) {
+        Map<String, PauseStats> byCollector = new LinkedHashMap<>();
+        int from = (int) Math.max(0, fromMark - discarded);
+        int to = (int) Math.min(events.size(), Math.max(0, toMark - discarded));
+        for (Event event : events.subList(Math.min(from, to), to)) {
+            PauseStats stats = byCollector.computeIfAbsent(event.gcName, name -> new PauseStats(event.action));
+            if (!stats.action.equals(event.action)) {
+                stats.action = "(várias)";
+            }
+            stats.count++;
+            stats.totalMillis += event.durationMillis;
+            stats.maxMillis = Math.max(stats.maxMillis, event.durationMillis);
+        }
+        return byCollector;
+    }
+}
@@ -0,0 +1,162 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Backend original do teste: um único byte[] no heap.
+ * Limitado a arrays de até ~2 GB.
+ */
+public class HeapBackend implements BufferBackend {
+    /** Leitura e escrita de longs dentro de um byte[], sem cópia. */
+    static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    @Override
+    public String name() {
+        return "heap";
+    }
+
+    @Override
+    public boolean supports(long sizeBytes) {
+        return sizeBytes > 0 && sizeBytes <= MAX_ARRAY_BYTES;
+    }
+
+    @Override
+    public MemoryBuffer allocate(long sizeBytes) {
+        if (!supports(sizeBytes)) {
+            throw new IllegalArgumentException("Backend heap suporta no máximo "
+                + MAX_ARRAY_BYTES + " bytes; use --backend=chunked para " + sizeBytes + " bytes");
+        }
+        return new Buffer(new byte[(int) sizeBytes]);
+    }
+
+    /** Soma um long a cada {@code stride} bytes de {@code data[start..limit)}. */
+    static long sumLongs(byte[] data, int start, int limit, int stride) {
+        long accumulator = 0;
+        for (int index = start; index <= limit - Long.BYTES; index += stride) {
+            accumulator += (long) LONGS.get(data, index);
+        }
+        return accumulator;
+    }
+
+    static void putLongs(byte[] data, int start, int limit, int stride, long value) {
+        for (int index = start; index <= limit - Long.BYTES; index += stride) {
+            LONGS.set(data, index, value);
+        }
+    }
+
+    static long gatherLongs(byte[] data, long[] offsets, int count) {
+        long accumulator = 0;
+        for (int i = 0; i < count; i++) {
+            accumulator += (long) LONGS.get(data, (int) offsets[i]);
+        }
+        return accumulator;
+    }
+
+    static void scatterLongs(byte[] data, long[] offsets, int count, long value) {
+        for (int i = 0; i < count; i++) {
+            LONGS.set(data, (int) offsets[i], value);
+        }
+    }
+
+    static long chase(byte[] data, long offset, long steps, boolean touch) {
+        int node = (int) offset;
+        for (long step = 0; step < steps; step++) {
+            int next = (int) (long) LONGS.get(data, node);
+            if (touch) {
+                LONGS.set(data, node + Long.BYTES, step);
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    static class Buffer implements MemoryBuffer {
+        private byte[] data;
+
+        Buffer(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public long size() {
+            return data.length;
+        }
+
+        @Override
+        public byte get(long index) {
+            return data[(int) index];
+        }
+
+        @Override
+        public void put(long index, byte value) {
+            data[(int) index] = value;
+        }
+
+        @Override
+        public void fill(byte value) {
+            Arrays.fill(data, value);
+        }
+
+        @Override
+        public long sumStride(long stride) {
+            byte[] buffer = data;
+            int step = (int) stride;
+            long accumulator = 0;
+            for (int index = 0; index < buffer.length; index += step) {
+                accumulator += buffer[index];
+            }
+            return accumulator;
+        }
+
+        @Override
+        public long getLong(long offset) {
+            return (long) LONGS.get(data, (int) offset);
+        }
+
+        @Override
+        public void putLong(long offset, long value) {
+            LONGS.set(data, (int) offset, value);
+        }
+
+        @Override
+        public long sumLongs(long length, long stride) {
+            return HeapBackend.sumLongs(data, 0, (int) length, (int) stride);
+        }
+
+        @Override
+        public void putLongs(long stride, long value) {
+            HeapBackend.putLongs(data, 0, data.length, (int) stride, value);
+        }
+
+        @Override
+        public long gatherLongs(long[] offsets, int count) {
+            return HeapBackend.gatherLongs(data, offsets, count);
+        }
+
+        @Override
+        public long readWith(Kernels.Kernel kernel) {
+            return kernel.read(data, 0, data.length);
+        }
+
+        @Override
+        public void writeWith(Kernels.Kernel kernel, byte value) {
+            kernel.write(data, 0, data.length, value);
+        }
+
+        @Override
+        public void scatterLongs(long[] offsets, int count, long value) {
+            HeapBackend.scatterLongs(data, offsets, count, value);
+        }
+
+        @Override
+        public long chase(long offset, long steps, boolean touch) {
+            return HeapBackend.chase(data, offset, steps, touch);
+        }
+
+        @Override
+        public void close() {
+            data = null;
+        }
+    }
+}
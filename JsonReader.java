@@ -0,0 +1,206 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parser JSON mínimo para ler os relatórios gerados pelo próprio teste (ex.: o
+ * resultado de uma JVM filha), sem dependências externas.
+ *
+ * Objetos viram {@link LinkedHashMap}, arrays viram {@link List}, números inteiros
+ * viram Long e os demais Double; true/false/null viram Boolean e null.
+ */
+public final class JsonReader {
+    private final String text;
+    private int position;
+
+    private JsonReader(String text) {
+        this.text = text;
+    }
+
+    public static Object parse(String text) {
+        JsonReader reader = new JsonReader(text);
+        Object value = reader.readValue();
+        reader.skipWhitespace();
+        if (reader.position != text.length()) {
+            throw reader.error("conteúdo após o fim do JSON");
+        }
+        return value;
+    }
+
+    /** Segue um caminho de chaves em objetos aninhados; null se algum nível faltar. */
+    @SuppressWarnings("unchecked")
+    public static Object path(Object root, String... keys) {
+        Object current = root;
+        for (String key : keys) {
+            if (!(current instanceof Map)) {
+                return null;
+            }
+            current = ((Map<String, Object>) current).get(key);
+        }
+        return current;
+    }
+
+    /** Número em {@code path} como double; NaN se ausente ou null. */
+    public static double number(Object root, String... keys) {
+        Object value = path(root, keys);
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw error("fim inesperado");
+        }
+        char c = text.charAt(position);
+        switch (c) {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '"':
+                return readString();
+            case 't':
+                expect("true");
+                return Boolean.TRUE;
+            case 'f':
+                expect("false");
+                return Boolean.FALSE;
+            case 'n':
+                expect("null");
+                return null;
+            default:
+                return readNumber();
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("esperava chave entre aspas");
+            }
+            String key = readString();
+            skipWhitespace();
+            if (peek() != ':') {
+                throw error("esperava ':'");
+            }
+            position++;
+            object.put(key, readValue());
+            skipWhitespace();
+            char c = next();
+            if (c == '}') {
+                return object;
+            }
+            if (c != ',') {
+                throw error("esperava ',' ou '}'");
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(readValue());
+            skipWhitespace();
+            char c = next();
+            if (c == ']') {
+                return array;
+            }
+            if (c != ',') {
+                throw error("esperava ',' ou ']'");
+            }
+        }
+    }
+
+    private String readString() {
+        position++;
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case 'n': value.append('\n'); break;
+                case 't': value.append('\t'); break;
+                case 'r': value.append('\r'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("escape \\u incompleto");
+                    }
+                    value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    position += 4;
+                    break;
+                default: value.append(escaped);
+            }
+        }
+    }
+
+    private Number readNumber() {
+        int start = position;
+        boolean integral = true;
+        while (position < text.length()) {
+            char c = text.charAt(position);
+            if (c == '.' || c == 'e' || c == 'E') {
+                integral = false;
+            } else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+                break;
+            }
+            position++;
+        }
+        if (start == position) {
+            throw error("valor inválido");
+        }
+        String number = text.substring(start, position);
+        return integral ? (Number) Long.valueOf(number) : (Number) Double.valueOf(number);
+    }
+
+    private void expect(String literal) {
+        if (!text.startsWith(literal, position)) {
+            throw error("esperava " + literal);
+        }
+        position += literal.length();
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peek() {
+        return position < text.length() ? text.charAt(position) : '\0';
+    }
+
+    private char next() {
+        if (position >= text.length()) {
+            throw error("fim inesperado");
+        }
+        return text.charAt(position++);
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("JSON inválido na posição " + position + ": " + message);
+    }
+}
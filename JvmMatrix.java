@@ -0,0 +1,254 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modos --jvm-matrix e --gc-matrix: rodam os mesmos cenários em JVMs filhas com
+ * huge pages, pre-touch, tamanhos de heap e coletores diferentes e montam uma tabela
+ * comparando page faults, tempos e pausas de GC.
+ *
+ * Cada célula da matriz combina uma variante de memória, um coletor e um par
+ * -Xms/-Xmx; dimensões não pedidas ficam com um único valor vazio. O filho grava o
+ * próprio relatório num arquivo temporário, com as flags e o coletor registrados no
+ * bloco "jvm" de cada resultado; o pai junta todos num único relatório.
+ */
+public final class JvmMatrix {
+    /** Variantes conhecidas por nome em --jvm-matrix. */
+    static final Map<String, List<String>> DEFAULT_VARIANTS = new LinkedHashMap<>();
+    /** Coletores conhecidos por nome em --gc-matrix. */
+    static final Map<String, List<String>> DEFAULT_COLLECTORS = new LinkedHashMap<>();
+
+    static {
+        DEFAULT_VARIANTS.put("baseline", Collections.emptyList());
+        DEFAULT_VARIANTS.put("thp", Arrays.asList("-XX:+UseTransparentHugePages"));
+        DEFAULT_VARIANTS.put("pretouch", Arrays.asList("-XX:+AlwaysPreTouch"));
+        DEFAULT_VARIANTS.put("thp-pretouch",
+            Arrays.asList("-XX:+UseTransparentHugePages", "-XX:+AlwaysPreTouch"));
+        DEFAULT_VARIANTS.put("large-pages",
+            Arrays.asList("-XX:+UseLargePages", "-XX:LargePageSizeInBytes=2m"));
+
+        DEFAULT_COLLECTORS.put("g1", Arrays.asList("-XX:+UseG1GC"));
+        DEFAULT_COLLECTORS.put("parallel", Arrays.asList("-XX:+UseParallelGC"));
+        DEFAULT_COLLECTORS.put("zgc", Arrays.asList("-XX:+UseZGC"));
+        DEFAULT_COLLECTORS.put("shenandoah", Arrays.asList("-XX:+UseShenandoahGC"));
+        // Epsilon nunca coleta: o heap precisa comportar tudo o que o cenário aloca
+        DEFAULT_COLLECTORS.put("epsilon",
+            Arrays.asList("-XX:+UnlockExperimentalVMOptions", "-XX:+UseEpsilonGC"));
+    }
+
+    /** Opções do pai que não são repassadas aos filhos. */
+    private static final List<String> PARENT_ONLY = 
+        Arrays.asList("jvm-matrix", "gc-matrix", "jvm-heaps", "output");
+
+    private JvmMatrix() {
+    }
+
+    /** Uma célula da matriz: nome e flags completas da JVM filha. */
+    static class Cell {
+        final String name;
+        final List<String> flags;
+
+        Cell(String name, List<String> flags) {
+            this.name = name;
+            this.flags = flags;
+        }
+    }
+
+    /** true quando a linha de comando pede alguma matriz de JVMs filhas. */
+    static boolean isRequested(Map<String, String> cliArgs) {
+        return cliArgs.containsKey("jvm-matrix") || cliArgs.containsKey("gc-matrix");
+    }
+
+    /**
+     * Lê uma dimensão da matriz: lista de nomes conhecidos (sem valor usa todos) ou
+     * entradas nome=flags separadas por espaço. Sem a opção, a dimensão tem uma única
+     * entrada vazia.
+     */
+    private static Map<String, List<String>> parseDimension(Map<String, String> cliArgs, String option,
+                                                            Map<String, List<String>> known) {
+        Map<String, List<String>> entries = new LinkedHashMap<>();
+        String spec = cliArgs.get(option);
+        if (spec == null) {
+            entries.put("", Collections.emptyList());
+        } else if (spec.equals("true")) {
+            entries.putAll(known);
+        } else {
+            for (String entry : spec.split(",")) {
+                entry = entry.trim();
+                int equals = entry.indexOf('=');
+                if (equals > 0) {
+                    entries.put(entry.substring(0, equals),
+                        Arrays.asList(entry.substring(equals + 1).trim().split("\\s+")));
+                } else if (known.containsKey(entry)) {
+                    entries.put(entry, known.get(entry));
+                } else {
+                    throw new IllegalArgumentException("Valor desconhecido em --" + option + ": " + entry
+                        + " (opções: " + String.join(", ", known.keySet()) + " ou nome=flags)");
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Monta as células a partir de --jvm-matrix, --gc-matrix e --jvm-heaps (pares
+     * Xms:Xmx, ex.: 2g:2g,512m:2g). Sem --jvm-heaps os filhos herdam o -Xms/-Xmx do pai.
+     */
+    static List<Cell> parseCells(Map<String, String> cliArgs) {
+        Map<String, List<String>> variants = parseDimension(cliArgs, "jvm-matrix", DEFAULT_VARIANTS);
+        Map<String, List<String>> collectors = parseDimension(cliArgs, "gc-matrix", DEFAULT_COLLECTORS);
+
+        List<String[]> heaps = new ArrayList<>();
+        if (cliArgs.containsKey("jvm-heaps")) {
+            for (String pair : cliArgs.get("jvm-heaps").split(",")) {
+                String[] parts = pair.trim().split(":", 2);
+                heaps.add(parts.length == 2
+                    ? new String[] {parts[0], parts[1]}
+                    : new String[] {null, parts[0]});
+            }
+        } else {
+            String xms = ChildJvm.inheritedOption("-Xms");
+            String xmx = ChildJvm.inheritedOption("-Xmx");
+            heaps.add(new String[] {
+                xms != null ? xms.substring(4) : null,
+                xmx != null ? xmx.substring(4) : null
+            });
+        }
+
+        List<Cell> cells = new ArrayList<>();
+        for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+            for (Map.Entry<String, List<String>> collector : collectors.entrySet()) {
+                for (String[] heap : heaps) {
+                    List<String> flags = new ArrayList<>();
+                    List<String> name = new ArrayList<>();
+                    if (!variant.getKey().isEmpty()) {
+                        name.add(variant.getKey());
+                    }
+                    if (!collector.getKey().isEmpty()) {
+                        name.add(collector.getKey());
+                    }
+                    if (heap[0] != null) {
+                        flags.add("-Xms" + heap[0]);
+                    }
+                    if (heap[1] != null) {
+                        flags.add("-Xmx" + heap[1]);
+                    }
+                    if (heaps.size() > 1) {
+                        name.add((heap[0] != null ? "xms" + heap[0].toLowerCase() : "")
+                            + (heap[0] != null && heap[1] != null ? "-" : "")
+                            + (heap[1] != null ? "xmx" + heap[1].toLowerCase() : ""));
+                    }
+                    flags.addAll(collector.getValue());
+                    flags.addAll(variant.getValue());
+                    cells.add(new Cell(String.join("-", name), flags));
+                }
+            }
+        }
+        return cells;
+    }
+
+    /** Argumentos do filho: os mesmos do pai, menos as opções da matriz e da saída. */
+    static List<String> childArgs(Map<String, String> cliArgs, Cell cell, Path output) {
+        List<String> args = new ArrayList<>();
+        for (Map.Entry<String, String> entry : cliArgs.entrySet()) {
+            if (!PARENT_ONLY.contains(entry.getKey())) {
+                args.add("--" + entry.getKey() + "=" + entry.getValue());
+            }
+        }
+        args.add("--jvm-variant=" + cell.name);
+        args.add("--output=" + output.toAbsolutePath());
+        return args;
+    }
+
+    /**
+     * Roda todas as células e grava o relatório combinado. Células cuja JVM falha
+     * (ex.: flag não suportada) são avisadas e ficam fora do relatório.
+     */
+    static void run(Map<String, String> cliArgs) throws IOException {
+        List<Cell> cells = parseCells(cliArgs);
+        System.out.println("Matriz de JVM: " + cells.size() + " variantes (THP do sistema: "
+            + MemoryTest.JvmSettings.transparentHugePagesMode() + ")");
+
+        List<String> reports = new ArrayList<>();
+        List<Object> parsed = new ArrayList<>();
+        for (Cell cell : cells) {
+            System.out.println("\n=== JVM " + cell.name + ": "
+                + (cell.flags.isEmpty() ? "(sem flags)" : String.join(" ", cell.flags)) + " ===");
+            Path output = Files.createTempFile("memtest-jvm-", ".json");
+            try {
+                ChildJvm.Exit exit = ChildJvm.run(cell.flags, "MemoryTest", childArgs(cliArgs, cell, output));
+                if (exit.code != 0 || Files.size(output) == 0) {
+                    System.out.println("Aviso: JVM " + cell.name + " terminou com código " + exit.code
+                        + "; variante ignorada (coletor ausente nesta JDK ou heap pequeno para Epsilon?)");
+                    continue;
+                }
+                String report = new String(Files.readAllBytes(output), StandardCharsets.UTF_8);
+                parsed.addAll((List<?>) JsonReader.parse(report));
+                reports.add(arrayBody(report));
+            } finally {
+                Files.deleteIfExists(output);
+            }
+        }
+        if (reports.isEmpty()) {
+            throw new IOException("Nenhuma JVM da matriz terminou com sucesso");
+        }
+
+        printSummary(parsed);
+        MemoryTest.writeReport("[\n" + String.join(",\n", reports) + "\n]\n", cliArgs.get("output"));
+    }
+
+    /** Conteúdo de um array JSON sem os colchetes externos, para concatenar relatórios. */
+    static String arrayBody(String report) {
+        String trimmed = report.trim();
+        return trimmed.substring(1, trimmed.length() - 1).replaceAll("^\\s*\\n|\\s+$", "");
+    }
+
+    private static void printSummary(List<Object> results) {
+        System.out.println("\nMatriz de JVM (tempos em s; startup inclui o pre-touch do heap; "
+            + "GCs/pausas sem os ciclos concorrentes)");
+        System.out.printf("%-40s %-10s %8s %9s %9s %9s %10s %8s %12s %10s %7s %9s %8s%n", "Cenário", 
+            "coletor", "startup", "alocação", "escrita", "leitura", "minflt", "majflt", 
+            "AnonHuge KB", "thp_alloc", "GCs", "GC ms", "máx ms");
+        for (Object result : results) {
+            long events = 0;
+            long totalMillis = 0;
+            long maxMillis = -1;
+            Object pauses = JsonReader.path(result, "metrics", "gcPauses");
+            if (pauses instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) pauses).entrySet()) {
+                    // Ciclos concorrentes (ZGC/Shenandoah Cycles) não param a aplicação
+                    if (entry.getKey().toString().endsWith("Cycles")) {
+                        continue;
+                    }
+                    Object stats = entry.getValue();
+                    events += (long) JsonReader.number(stats, "count");
+                    totalMillis += (long) JsonReader.number(stats, "totalMs");
+                    maxMillis = Math.max(maxMillis, (long) JsonReader.number(stats, "maxMs"));
+                }
+            }
+            System.out.printf("%-40s %-10s %8s %9s %9s %9s %10s %8s %12s %10s %7d %9d %8s%n",
+                JsonReader.path(result, "scenarioId"),
+                JsonReader.path(result, "jvm", "collector"),
+                format(JsonReader.number(result, "jvm", "startupMillis") / 1000, "%.3f"),
+                format(JsonReader.number(result, "metrics", "allocationSeconds"), "%.4f"),
+                format(JsonReader.number(result, "metrics", "writesSeconds"), "%.4f"),
+                format(JsonReader.number(result, "metrics", "readsSeconds"), "%.4f"),
+                format(JsonReader.number(result, "metrics", "pageFaultsMinor"), "%.0f"),
+                format(JsonReader.number(result, "metrics", "pageFaultsMajor"), "%.0f"),
+                format(JsonReader.number(result, "metrics", "proc", "anonHugePagesKb"), "%.0f"),
+                format(JsonReader.number(result, "metrics", "proc", "thpFaultAlloc"), "%.0f"),
+                events, totalMillis, format(maxMillis, "%.0f"));
+        }
+    }
+
+    private static String format(double value, String pattern) {
+        return Double.isNaN(value) || value < 0 ? "n/d" : String.format(pattern, value);
+    }
+}
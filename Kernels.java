@@ -0,0 +1,496 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Variantes dos laços de escrita e leitura, comparadas lado a lado sobre o buffer
+ * inteiro para mostrar quanta banda cada forma de acesso consegue:
+ * <ul>
+ *   <li>{@code scalar}: o que as fases fazem hoje. Escrita com Arrays.fill (ou o fill
+ *       dos ByteBuffers) e leitura somando um byte por vez, agora em todos os bytes;</li>
+ *   <li>{@code varhandle}: um long por acesso, por VarHandles de visão sobre byte[] e
+ *       ByteBuffer;</li>
+ *   <li>{@code vector}: ByteVector/LongVector de jdk.incubator.vector na largura
+ *       preferida da CPU (ver {@code VectorKernels});</li>
+ *   <li>{@code arraycopy}: cópias em massa entre o buffer e um bloco de 64 KB que fica na
+ *       cache (System.arraycopy, ou get/put em massa nos ByteBuffers), como num caminho
+ *       de serialização;</li>
+ *   <li>{@code segment-copy}: o mesmo com MemorySegment.copy (java.lang.foreign, JDK
+ *       22+, acessado por MethodHandles como em SegmentBackend).</li>
+ * </ul>
+ * Cada kernel roda sobre as partes do armazenamento concreto pelo
+ * {@link MemoryBuffer#readWith(Kernel)}, então o laço quente vê byte[] ou ByteBuffer,
+ * nunca a interface.
+ */
+public final class Kernels {
+    static final String DEFAULT_SPEC = "scalar,varhandle,vector,arraycopy,segment-copy";
+    private static final int BLOCK_BYTES = 64 * 1024;
+    /**
+     * Aquecimento de cada kernel, independente das iterações do cenário: pelo menos
+     * WARMUP_MIN_PASSES passadas e WARMUP_MILLIS de laço, tempo para o C2 compilar o
+     * método inteiro (o kernel vector só vale algo depois que a Vector API é intrinsificada).
+     */
+    static final int WARMUP_MIN_PASSES = 5;
+    static final long WARMUP_MILLIS = 500;
+    private static final VarHandle BUFFER_LONGS =
+        MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private Kernels() {
+    }
+
+    /** Laços de leitura e escrita sobre uma faixa [from, to) de um byte[] ou ByteBuffer. */
+    abstract static class Kernel {
+        abstract String name();
+
+        /** null quando o kernel roda nesta JVM; senão o motivo. */
+        String unavailableReason() {
+            return null;
+        }
+
+        /** Lê todos os bytes da faixa e devolve um valor que depende deles. */
+        abstract long read(byte[] data, int from, int to);
+
+        abstract long read(ByteBuffer data, int from, int to);
+
+        abstract void write(byte[] data, int from, int to, byte value);
+
+        abstract void write(ByteBuffer data, int from, int to, byte value);
+    }
+
+    static List<Kernel> parseList(String spec) {
+        List<Kernel> kernels = new ArrayList<>();
+        for (String name : spec.split(",")) {
+            kernels.add(forName(name.trim().toLowerCase(Locale.ROOT)));
+        }
+        return kernels;
+    }
+
+    static Kernel forName(String name) {
+        switch (name) {
+            case "scalar":
+                return new Scalar();
+            case "varhandle":
+                return new LongView();
+            case "vector":
+                return vector();
+            case "arraycopy":
+                return new BulkCopy();
+            case "segment-copy":
+                return new SegmentCopy();
+            default:
+                throw new IllegalArgumentException("Kernel desconhecido: " + name
+                    + " (opções: " + DEFAULT_SPEC.replace(",", ", ") + ")");
+        }
+    }
+
+    /**
+     * VectorKernels só compila e carrega com --add-modules jdk.incubator.vector; sem o
+     * módulo, o kernel fica indisponível com a instrução de como habilitá-lo.
+     */
+    private static Kernel vector() {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return new Unavailable("vector", "rode a JVM com --add-modules jdk.incubator.vector");
+        }
+        try {
+            return (Kernel) Class.forName("VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new Unavailable("vector", "VectorKernels não carregou: " + e);
+        }
+    }
+
+    /** Banda de leitura e escrita de um kernel; NaN quando não se aplica. */
+    static class Measurement {
+        final String kernel;
+        final String unavailableReason;
+        final long bytesPerPass;
+        final int passes;
+        int readWarmupPasses;
+        int writeWarmupPasses;
+        double readSeconds = Double.NaN;
+        double writeSeconds = Double.NaN;
+
+        Measurement(String kernel, String unavailableReason, long bytesPerPass, int passes) {
+            this.kernel = kernel;
+            this.unavailableReason = unavailableReason;
+            this.bytesPerPass = bytesPerPass;
+            this.passes = passes;
+        }
+
+        double readGbps() {
+            return gbps(readSeconds);
+        }
+
+        double writeGbps() {
+            return gbps(writeSeconds);
+        }
+
+        private double gbps(double seconds) {
+            return seconds > 0 ? (double) bytesPerPass * passes / seconds / 1e9 : Double.NaN;
+        }
+    }
+
+    /**
+     * Aloca um buffer, preenche e mede cada kernel com {@code passes} passadas de escrita
+     * e de leitura sobre o buffer inteiro, cada uma precedida do aquecimento mínimo
+     * (WARMUP_MIN_PASSES e WARMUP_MILLIS).
+     */
+    static List<Measurement> run(BufferBackend backend, long sizeBytes, int passes, List<Kernel> kernels) {
+        List<Measurement> results = new ArrayList<>();
+        MemoryBuffer buffer = backend.allocate(sizeBytes);
+        try {
+            buffer.initializeForReads((byte) 0x5a);
+            for (Kernel kernel : kernels) {
+                String reason = kernel.unavailableReason();
+                Measurement measurement = new Measurement(kernel.name(), reason, buffer.size(), passes);
+                results.add(measurement);
+                if (reason != null) {
+                    continue;
+                }
+                try {
+                    if (buffer.writable()) {
+                        measurement.writeWarmupPasses = warmUp(buffer, kernel, true);
+                        long start = System.nanoTime();
+                        for (int pass = 0; pass < passes; pass++) {
+                            buffer.writeWith(kernel, (byte) pass);
+                        }
+                        measurement.writeSeconds = (System.nanoTime() - start) / 1e9;
+                    }
+                    measurement.readWarmupPasses = warmUp(buffer, kernel, false);
+                    long accumulator = 0;
+                    long start = System.nanoTime();
+                    for (int pass = 0; pass < passes; pass++) {
+                        accumulator += buffer.readWith(kernel);
+                    }
+                    measurement.readSeconds = (System.nanoTime() - start) / 1e9;
+                    MemoryTest.sink += accumulator;
+                } catch (UnsupportedOperationException e) {
+                    // Ex.: vector sobre ByteBuffer num JDK sem fromByteBuffer
+                    results.set(results.size() - 1, new Measurement(kernel.name(), e.getMessage(), buffer.size(), passes));
+                }
+            }
+        } finally {
+            buffer.close();
+        }
+        return results;
+    }
+
+    /** Repete o kernel até cumprir as passadas e o tempo mínimos; devolve quantas passadas fez. */
+    private static int warmUp(MemoryBuffer buffer, Kernel kernel, boolean write) {
+        long deadline = System.nanoTime() + WARMUP_MILLIS * 1_000_000L;
+        int passes = 0;
+        while (passes < WARMUP_MIN_PASSES || System.nanoTime() - deadline < 0) {
+            if (write) {
+                buffer.writeWith(kernel, (byte) passes);
+            } else {
+                MemoryTest.sink += buffer.readWith(kernel);
+            }
+            passes++;
+        }
+        return passes;
+    }
+
+    private static final class Unavailable extends Kernel {
+        private final String name;
+        private final String reason;
+
+        Unavailable(String name, String reason) {
+            this.name = name;
+            this.reason = reason;
+        }
+
+        @Override
+        String name() {
+            return name;
+        }
+
+        @Override
+        String unavailableReason() {
+            return reason;
+        }
+
+        @Override
+        long read(byte[] data, int from, int to) {
+            throw new UnsupportedOperationException(reason);
+        }
+
+        @Override
+        long read(ByteBuffer data, int from, int to) {
+            throw new UnsupportedOperationException(reason);
+        }
+
+        @Override
+        void write(byte[] data, int from, int to, byte value) {
+            throw new UnsupportedOperationException(reason);
+        }
+
+        @Override
+        void write(ByteBuffer data, int from, int to, byte value) {
+            throw new UnsupportedOperationException(reason);
+        }
+    }
+
+    /** Os laços das fases: fill na escrita e um byte por vez na leitura. */
+    static final class Scalar extends Kernel {
+        @Override
+        String name() {
+            return "scalar";
+        }
+
+        @Override
+        long read(byte[] data, int from, int to) {
+            long accumulator = 0;
+            for (int index = from; index < to; index++) {
+                accumulator += data[index];
+            }
+            return accumulator;
+        }
+
+        @Override
+        long read(ByteBuffer data, int from, int to) {
+            long accumulator = 0;
+            for (int index = from; index < to; index++) {
+                accumulator += data.get(index);
+            }
+            return accumulator;
+        }
+
+        @Override
+        void write(byte[] data, int from, int to, byte value) {
+            Arrays.fill(data, from, to, value);
+        }
+
+        @Override
+        void write(ByteBuffer data, int from, int to, byte value) {
+            if (from == 0) {
+                DirectBackend.fill(data, to, value);
+                return;
+            }
+            for (int index = from; index < to; index++) {
+                data.put(index, value);
+            }
+        }
+    }
+
+    /** Um long (8 bytes) por acesso, pelas VarHandles de visão. */
+    static final class LongView extends Kernel {
+        @Override
+        String name() {
+            return "varhandle";
+        }
+
+        @Override
+        long read(byte[] data, int from, int to) {
+            int end = from + (to - from) / Long.BYTES * Long.BYTES;
+            long accumulator = HeapBackend.sumLongs(data, from, end, Long.BYTES);
+            for (int index = end; index < to; index++) {
+                accumulator += data[index];
+            }
+            return accumulator;
+        }
+
+        @Override
+        long read(ByteBuffer data, int from, int to) {
+            long accumulator = 0;
+            int index = from;
+            for (; index <= to - Long.BYTES; index += Long.BYTES) {
+                accumulator += (long) BUFFER_LONGS.get(data, index);
+            }
+            for (; index < to; index++) {
+                accumulator += data.get(index);
+            }
+            return accumulator;
+        }
+
+        @Override
+        void write(byte[] data, int from, int to, byte value) {
+            int end = from + (to - from) / Long.BYTES * Long.BYTES;
+            HeapBackend.putLongs(data, from, end, Long.BYTES, pattern(value));
+            Arrays.fill(data, end, to, value);
+        }
+
+        @Override
+        void write(ByteBuffer data, int from, int to, byte value) {
+            long pattern = pattern(value);
+            int index = from;
+            for (; index <= to - Long.BYTES; index += Long.BYTES) {
+                BUFFER_LONGS.set(data, index, pattern);
+            }
+            for (; index < to; index++) {
+                data.put(index, value);
+            }
+        }
+    }
+
+    static long pattern(byte value) {
+        return (value & 0xffL) * 0x0101010101010101L;
+    }
+
+    /** Cópias em massa de/para um bloco de 64 KB que fica na cache. */
+    static final class BulkCopy extends Kernel {
+        private final byte[] block = new byte[BLOCK_BYTES];
+        private byte blockValue;
+
+        @Override
+        String name() {
+            return "arraycopy";
+        }
+
+        @Override
+        long read(byte[] data, int from, int to) {
+            for (int index = from; index < to; index += BLOCK_BYTES) {
+                System.arraycopy(data, index, block, 0, Math.min(BLOCK_BYTES, to - index));
+            }
+            return block[0];
+        }
+
+        @Override
+        long read(ByteBuffer data, int from, int to) {
+            for (int index = from; index < to; index += BLOCK_BYTES) {
+                data.get(index, block, 0, Math.min(BLOCK_BYTES, to - index));
+            }
+            return block[0];
+        }
+
+        @Override
+        void write(byte[] data, int from, int to, byte value) {
+            fillBlock(value);
+            for (int index = from; index < to; index += BLOCK_BYTES) {
+                System.arraycopy(block, 0, data, index, Math.min(BLOCK_BYTES, to - index));
+            }
+        }
+
+        @Override
+        void write(ByteBuffer data, int from, int to, byte value) {
+            fillBlock(value);
+            for (int index = from; index < to; index += BLOCK_BYTES) {
+                data.put(index, block, 0, Math.min(BLOCK_BYTES, to - index));
+            }
+        }
+
+        private void fillBlock(byte value) {
+            if (blockValue != value) {
+                Arrays.fill(block, value);
+                blockValue = value;
+            }
+        }
+    }
+
+    /** Como {@link BulkCopy}, com MemorySegment.copy entre segmentos de heap e nativos. */
+    static final class SegmentCopy extends Kernel {
+        private static final MethodHandle OF_ARRAY;
+        private static final MethodHandle OF_BUFFER;
+        private static final MethodHandle COPY;
+
+        static {
+            MethodHandle ofArray = null;
+            MethodHandle ofBuffer = null;
+            MethodHandle copy = null;
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                Class<?> segment = Class.forName("java.lang.foreign.MemorySegment");
+                ofArray = lookup.findStatic(segment, "ofArray", MethodType.methodType(segment, byte[].class))
+                    .asType(MethodType.methodType(Object.class, byte[].class));
+                ofBuffer = lookup.findStatic(segment, "ofBuffer", MethodType.methodType(segment, Buffer.class))
+                    .asType(MethodType.methodType(Object.class, ByteBuffer.class));
+                copy = lookup.findStatic(segment, "copy", MethodType.methodType(void.class,
+                        segment, long.class, segment, long.class, long.class))
+                    .asType(MethodType.methodType(void.class, Object.class, long.class, Object.class, long.class, long.class));
+            } catch (ReflectiveOperationException | LinkageError e) {
+                ofArray = null;
+            }
+            OF_ARRAY = ofArray;
+            OF_BUFFER = ofBuffer;
+            COPY = copy;
+        }
+
+        private final byte[] block = new byte[BLOCK_BYTES];
+        private final Object blockSegment;
+        private byte blockValue;
+
+        SegmentCopy() {
+            this.blockSegment = OF_ARRAY != null ? ofArray(block) : null;
+        }
+
+        @Override
+        String name() {
+            return "segment-copy";
+        }
+
+        @Override
+        String unavailableReason() {
+            return OF_ARRAY == null
+                ? "requer java.lang.foreign (JDK 22+); JVM atual: " + System.getProperty("java.version")
+                : null;
+        }
+
+        @Override
+        long read(byte[] data, int from, int to) {
+            copyOut(ofArray(data), from, to);
+            return block[0];
+        }
+
+        @Override
+        long read(ByteBuffer data, int from, int to) {
+            copyOut(ofBuffer(data), from, to);
+            return block[0];
+        }
+
+        @Override
+        void write(byte[] data, int from, int to, byte value) {
+            copyIn(ofArray(data), from, to, value);
+        }
+
+        @Override
+        void write(ByteBuffer data, int from, int to, byte value) {
+            copyIn(ofBuffer(data), from, to, value);
+        }
+
+        private void copyOut(Object source, int from, int to) {
+            for (int index = from; index < to; index += BLOCK_BYTES) {
+                copy(source, index, blockSegment, 0, Math.min(BLOCK_BYTES, to - index));
+            }
+        }
+
+        private void copyIn(Object target, int from, int to, byte value) {
+            if (blockValue != value) {
+                Arrays.fill(block, value);
+                blockValue = value;
+            }
+            for (int index = from; index < to; index += BLOCK_BYTES) {
+                copy(blockSegment, 0, target, index, Math.min(BLOCK_BYTES, to - index));
+            }
+        }
+
+        private static Object ofArray(byte[] data) {
+            try {
+                return (Object) OF_ARRAY.invokeExact(data);
+            } catch (Throwable t) {
+                throw new IllegalStateException("Falha em MemorySegment.ofArray", t);
+            }
+        }
+
+        private static Object ofBuffer(ByteBuffer data) {
+            try {
+                return (Object) OF_BUFFER.invokeExact(data);
+            } catch (Throwable t) {
+                throw new IllegalStateException("Falha em MemorySegment.ofBuffer", t);
+            }
+        }
+
+        private static void copy(Object source, long sourceOffset, Object target, long targetOffset, long bytes) {
+            try {
+                COPY.invokeExact(source, sourceOffset, target, targetOffset, bytes);
+            } catch (Throwable t) {
+                throw new IllegalStateException("Falha em MemorySegment.copy", t);
+            }
+        }
+    }
+}
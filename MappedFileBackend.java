@@ -0,0 +1,171 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Backend com memória mapeada de arquivo (FileChannel.map) sobre um arquivo de rascunho.
+ *
+ * Diferente dos backends anônimos, aqui as páginas vêm do page cache: com o cache
+ * "cold" o arquivo é descartado do cache antes de cada mapeamento, então a primeira
+ * leitura de cada página gera major page faults e I/O real de disco. Com "warm" o
+ * arquivo fica no cache e só aparecem minor faults, o que isola o custo do mapeamento.
+ *
+ * Especificação aceita em --backend: {@code mmap[:read_only|read_write|private[:cold|warm]]}.
+ */
+public class MappedFileBackend implements BufferBackend {
+    private static final int WRITE_BLOCK = 1024 * 1024;
+
+    private final String mode;
+    private final boolean cold;
+    private final int chunkBytes;
+    private final Path scratchDir;
+    private Path scratchFile;
+    private long preparedBytes;
+
+    public MappedFileBackend(String mode, boolean cold, int chunkBytes, Path scratchDir) {
+        this.mode = mode;
+        this.cold = cold;
+        this.chunkBytes = chunkBytes;
+        this.scratchDir = scratchDir;
+    }
+
+    /** Interpreta "mmap", "mmap:private" ou "mmap:read_only:cold". */
+    static MappedFileBackend parse(String spec, int chunkBytes, Path scratchDir) {
+        String[] parts = spec.toLowerCase(Locale.ROOT).split(":");
+        String mode = parts.length > 1 ? parts[1] : "read_write";
+        String cache = parts.length > 2 ? parts[2] : "warm";
+        if (!Arrays.asList("read_only", "read_write", "private").contains(mode)) {
+            throw new IllegalArgumentException("Modo mmap desconhecido: " + mode
+                + " (opções: read_only, read_write, private)");
+        }
+        if (!cache.equals("cold") && !cache.equals("warm")) {
+            throw new IllegalArgumentException("Cache mmap desconhecido: " + cache + " (opções: cold, warm)");
+        }
+        return new MappedFileBackend(mode, cache.equals("cold"), chunkBytes, scratchDir);
+    }
+
+    @Override
+    public String name() {
+        return "mmap:" + mode + ":" + (cold ? "cold" : "warm");
+    }
+
+    @Override
+    public boolean supports(long sizeBytes) {
+        return sizeBytes > 0 && sizeBytes / chunkBytes < Integer.MAX_VALUE;
+    }
+
+    /**
+     * Cria o arquivo de rascunho preenchido com 0xaa, fora das regiões medidas.
+     * O conteúdo precisa existir de fato no disco: um arquivo esparso seria lido
+     * como páginas zeradas, sem nenhum major fault.
+     */
+    @Override
+    public synchronized void prepare(long sizeBytes) {
+        if (scratchFile != null && preparedBytes == sizeBytes) {
+            return;
+        }
+        release();
+        try {
+            Files.createDirectories(scratchDir);
+            scratchFile = Files.createTempFile(scratchDir, "memtest-", ".bin");
+            byte[] block = new byte[(int) Math.min(WRITE_BLOCK, sizeBytes)];
+            Arrays.fill(block, (byte) 0xaa);
+            try (FileChannel channel = FileChannel.open(scratchFile, StandardOpenOption.WRITE)) {
+                ByteBuffer source = ByteBuffer.wrap(block);
+                long written = 0;
+                while (written < sizeBytes) {
+                    source.clear();
+                    source.limit((int) Math.min(block.length, sizeBytes - written));
+                    written += channel.write(source, written);
+                }
+                channel.force(true);
+            }
+            preparedBytes = sizeBytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao preparar arquivo de rascunho em " + scratchDir, e);
+        }
+    }
+
+    @Override
+    public synchronized void release() {
+        if (scratchFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(scratchFile);
+        } catch (IOException e) {
+            System.out.println("Aviso: não foi possível remover " + scratchFile + ": " + e.getMessage());
+        }
+        scratchFile = null;
+        preparedBytes = 0;
+    }
+
+    /** Com "cold", descarta o arquivo do page cache antes do próximo mapeamento. */
+    @Override
+    public synchronized void beforeAllocate(long sizeBytes) {
+        prepare(sizeBytes);
+        if (cold && !PageCache.evict(scratchFile)) {
+            System.out.println("Aviso: não foi possível descartar " + scratchFile + " do page cache");
+        }
+    }
+
+    @Override
+    public MemoryBuffer allocate(long sizeBytes) {
+        prepare(sizeBytes);
+        FileChannel.MapMode mapMode;
+        StandardOpenOption[] options;
+        switch (mode) {
+            case "read_only":
+                mapMode = FileChannel.MapMode.READ_ONLY;
+                options = new StandardOpenOption[] { StandardOpenOption.READ };
+                break;
+            case "private":
+                // Cópia na escrita: o arquivo nunca é alterado, mas o canal precisa de WRITE
+                mapMode = FileChannel.MapMode.PRIVATE;
+                options = new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE };
+                break;
+            default:
+                mapMode = FileChannel.MapMode.READ_WRITE;
+                options = new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE };
+        }
+        int chunkCount = (int) ((sizeBytes + chunkBytes - 1) / chunkBytes);
+        MappedByteBuffer[] chunks = new MappedByteBuffer[chunkCount];
+        // O mapeamento continua válido depois que o canal é fechado
+        try (FileChannel channel = FileChannel.open(scratchFile, options)) {
+            for (int i = 0; i < chunkCount; i++) {
+                long offset = (long) i * chunkBytes;
+                chunks[i] = channel.map(mapMode, offset, Math.min(chunkBytes, sizeBytes - offset));
+            }
+        } catch (IOException e) {
+            for (MappedByteBuffer chunk : chunks) {
+                DirectBackend.free(chunk);
+            }
+            throw new UncheckedIOException("Falha ao mapear " + scratchFile, e);
+        }
+        return new Buffer(chunks, chunkBytes, sizeBytes, !mode.equals("read_only"));
+    }
+
+    static class Buffer extends DirectBackend.SegmentedByteBuffer {
+        private final boolean writable;
+
+        Buffer(ByteBuffer[] chunks, int chunkBytes, long size, boolean writable) {
+            super(chunks, chunkBytes, size);
+            this.writable = writable;
+        }
+
+        @Override
+        public boolean writable() {
+            return writable;
+        }
+
+        /** O arquivo já contém o padrão; preencher aqui aqueceria o cache que queremos medir. */
+        @Override
+        public void initializeForReads(byte value) {
+        }
+    }
+}
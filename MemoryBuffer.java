@@ -0,0 +1,66 @@
+/**
+ * Buffer alocado por um {@link BufferBackend}.
+ *
+ * As operações em massa ({@link #fill(byte)}, {@link #sumStride(long)}, as dos
+ * padrões de acesso de {@link AccessPattern} e os kernels de {@link Kernels}) ficam
+ * dentro de cada implementação para que o laço quente rode direto sobre o
+ * armazenamento concreto (byte[], ByteBuffer, MemorySegment), sem uma chamada
+ * virtual por byte.
+ */
+public interface MemoryBuffer extends AutoCloseable {
+    long size();
+
+    byte get(long index);
+
+    void put(long index, byte value);
+
+    /** false para buffers somente leitura (ex.: mmap READ_ONLY). */
+    default boolean writable() {
+        return true;
+    }
+
+    /** Deixa o buffer com conteúdo conhecido antes de medir leituras. */
+    default void initializeForReads(byte value) {
+        fill(value);
+    }
+
+    /** Equivalente a Arrays.fill sobre o buffer inteiro. */
+    void fill(byte value);
+
+    /** Soma um byte a cada {@code stride} bytes, do início ao fim do buffer. */
+    long sumStride(long stride);
+
+    /** Long de 8 bytes na ordem nativa; {@code offset} é múltiplo de 8. */
+    long getLong(long offset);
+
+    void putLong(long offset, long value);
+
+    /** Soma um long a cada {@code stride} bytes (múltiplo de 8) dos primeiros {@code length} bytes. */
+    long sumLongs(long length, long stride);
+
+    /** Grava {@code value} num long a cada {@code stride} bytes (múltiplo de 8). */
+    void putLongs(long stride, long value);
+
+    /** Soma os longs em {@code offsets[0..count)}, na ordem dada. */
+    long gatherLongs(long[] offsets, int count);
+
+    /** Grava {@code value} nos longs em {@code offsets[0..count)}, na ordem dada. */
+    void scatterLongs(long[] offsets, int count, long value);
+
+    /**
+     * Segue {@code steps} ponteiros a partir de {@code offset}: cada nó guarda no seu
+     * primeiro long o offset do próximo, então cada leitura depende da anterior. Com
+     * {@code touch} grava também no segundo long de cada nó. Devolve o último offset.
+     */
+    long chase(long offset, long steps, boolean touch);
+
+    /** Lê o buffer inteiro com {@code kernel}, parte por parte do armazenamento. */
+    long readWith(Kernels.Kernel kernel);
+
+    /** Grava {@code value} no buffer inteiro com {@code kernel}. */
+    void writeWith(Kernels.Kernel kernel, byte value);
+
+    /** Libera o armazenamento. Para buffers no heap apenas descarta as referências. */
+    @Override
+    void close();
+}
@@ -1,5 +1,6 @@
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -8,17 +9,113 @@ import com.sun.management.OperatingSystemMXBean;
 
 public class MemoryTest {
     private static final String CONFIG_PATH = "../config/memory-scenarios.json";
-    private static final String REPORT_DIR = "../reports/memory";
+    static final String REPORT_DIR = "../reports/memory";
+    private static final String SCRATCH_DIR = "../scratch";
+    private static final long QUIESCE_TIMEOUT_NANOS = 5_000_000_000L;
+    private static final long QUIESCE_POLL_MILLIS = 50;
     
     static class Scenario {
         String id;
         int sizeMb;
         int iterations;
+        String backend;
+        int chunkMb;
+        String scratchDir = SCRATCH_DIR;
+        /**
+         * "buffer" (as quatro fases sobre um buffer grande), "fanout" (muitas requisições
+         * pequenas) ou "sweep" (varredura do working set).
+         */
+        String type = "buffer";
+        /** Requisições por rodada e distribuição de tamanhos, só no tipo fanout. */
+        int requests;
+        String sizeDistribution;
+        /** Faixa da varredura, ex.: "4k..1g", só no tipo sweep. */
+        String sweepRange;
         
         public Scenario(String id, int sizeMb, int iterations) {
+            this(id, sizeMb, iterations, "heap", BufferBackend.DEFAULT_CHUNK_MB);
+        }
+        
+        public Scenario(String id, int sizeMb, int iterations, String backend, int chunkMb) {
             this.id = id;
             this.sizeMb = sizeMb;
             this.iterations = iterations;
+            this.backend = backend;
+            this.chunkMb = chunkMb;
+        }
+        
+        static Scenario fanOut(String id, int requests, String sizeDistribution) {
+            Scenario scenario = new Scenario(id, 0, 1);
+            scenario.type = "fanout";
+            scenario.requests = requests;
+            scenario.sizeDistribution = sizeDistribution;
+            return scenario;
+        }
+        
+        static Scenario sweep(String id, String range) {
+            long maxBytes = WorkingSetSweep.Range.parse(range).maxBytes;
+            Scenario scenario = new Scenario(id, (int) Math.max(1, (maxBytes + (1 << 20) - 1) >> 20), 1);
+            scenario.type = "sweep";
+            scenario.sweepRange = range;
+            return scenario;
+        }
+        
+        boolean isFanOut() {
+            return "fanout".equals(type);
+        }
+        
+        boolean isSweep() {
+            return "sweep".equals(type);
+        }
+        
+        /** Cópia com outro id e backend, mantendo o tipo e os campos do fan-out e da varredura. */
+        Scenario copy(String newId, String newBackend, int newChunkMb) {
+            Scenario copy = new Scenario(newId, sizeMb, iterations, newBackend, newChunkMb);
+            copy.scratchDir = scratchDir;
+            copy.type = type;
+            copy.requests = requests;
+            copy.sizeDistribution = sizeDistribution;
+            copy.sweepRange = sweepRange;
+            return copy;
+        }
+    }
+    
+    /** As quatro fases medidas em cada cenário. */
+    enum Phase {
+        ALLOCATION("allocation", "Alocação"),
+        ALLOCATE_AND_FREE("allocateAndFree", "Aloca + Libera"),
+        WRITES("writes", "Escrita"),
+        READS("reads", "Leitura");
+        
+        final String key;
+        final String label;
+        
+        Phase(String key, String label) {
+            this.key = key;
+            this.label = label;
+        }
+        
+        double measure(BufferBackend backend, long sizeBytes, int iterations) {
+            return measure(backend, sizeBytes, iterations, null).seconds;
+        }
+        
+        /** Bytes que uma iteração toca: o buffer inteiro, ou um byte por página na leitura. */
+        long bytesTouched(long sizeBytes) {
+            return this == READS ? (sizeBytes + READ_STRIDE - 1) / READ_STRIDE : sizeBytes;
+        }
+        
+        /** Com {@code latency} não nulo, grava também o tempo de cada iteração. */
+        TimedRun measure(BufferBackend backend, long sizeBytes, int iterations, LatencyHistogram latency) {
+            switch (this) {
+                case ALLOCATION:
+                    return measureAllocation(backend, sizeBytes, iterations, latency);
+                case ALLOCATE_AND_FREE:
+                    return measureAllocateAndFree(backend, sizeBytes, iterations, latency);
+                case WRITES:
+                    return measureWrites(backend, sizeBytes, iterations, latency);
+                default:
+                    return measureReads(backend, sizeBytes, iterations, latency);
+            }
         }
     }
     
@@ -29,6 +126,29 @@ public class MemoryTest {
         double readsSeconds;
         Long pageFaultsMinor;
         Long pageFaultsMajor;
+        /** Resumo das repetições de cada fase; os campos *Seconds guardam a mediana. */
+        EnumMap<Phase, TrialStats> phaseStats = new EnumMap<>(Phase.class);
+        /** Contadores do /proc (THP, compactação, PSS) do cenário inteiro. */
+        UsageDelta usage;
+        /** Page faults, RSS e GC de cada fase, vindos do amostrador (--sample-ms). */
+        EnumMap<Phase, PhaseSampler.PhaseDelta> phaseDeltas;
+        /** Acertos, faltas e bytes retidos do pool (backend pooled), no total e por fase. */
+        BufferPool.Stats pool;
+        EnumMap<Phase, BufferPool.Stats> phasePool;
+        /** Bytes residentes do processo inteiro por nó NUMA logo após as fases; null sem --numa-maps. */
+        Map<Integer, Long> processNumaNodeBytes;
+        /** Tempo de cada iteração medida (sem o warmup), somando as threads, por fase. */
+        EnumMap<Phase, LatencyHistogram.Snapshot> iterationLatency;
+        /** Bytes alocados no heap pelas threads medidas, por fase; vazio quando a JVM não mede. */
+        EnumMap<Phase, AllocationRate> allocation;
+        /** Safepoints registrados pelo JFR no cenário inteiro e em cada fase; null sem --safepoints. */
+        SafepointRecorder.Stats safepoints;
+        EnumMap<Phase, SafepointRecorder.Stats> phaseSafepoints;
+        /** Faltas, reclaim e PSI do cenário sob o limite de memória; null fora de --pressure. */
+        PressureMode.Measurement pressure;
+        /** Pausas por coletor no cenário inteiro e em cada fase, das notificações de GC. */
+        Map<String, GcPauseRecorder.PauseStats> gcPauses;
+        EnumMap<Phase, Map<String, GcPauseRecorder.PauseStats>> phaseGcPauses;
         
         public Metrics(double allocationSeconds, double allocateAndFreeSeconds, 
                       double writesSeconds, double readsSeconds,
@@ -42,26 +162,245 @@ public class MemoryTest {
         }
     }
     
+    /** Opções de execução vindas da linha de comando, comuns a todos os cenários. */
+    static class RunOptions {
+        /** 0 roda cada fase na thread atual; N &gt; 0 usa N threads (--threads). */
+        int threads;
+        /** Execuções descartadas de cada fase antes das medições (--warmup). */
+        int warmup;
+        /** Execuções medidas de cada fase (--trials). */
+        int trials = 1;
+        /** Intervalo do amostrador em segundo plano; 0 desliga (--sample-ms). */
+        long sampleMillis;
+        /** Máximo de amostras guardadas por cenário (--sample-capacity). */
+        int sampleCapacity = 65536;
+        /** Executores comparados nos cenários de fan-out (--fanout-executors). */
+        List<FanOutRunner.Kind> fanOutExecutors = 
+            Arrays.asList(FanOutRunner.Kind.VIRTUAL, FanOutRunner.Kind.PLATFORM);
+        /** Threads do pool de plataforma no fan-out (--fanout-pool). */
+        int fanOutPool = FanOutRunner.DEFAULT_POOL;
+        /** Passos por oitava da varredura do working set (--sweep-steps). */
+        int sweepStepsPerOctave = WorkingSetSweep.DEFAULT_STEPS_PER_OCTAVE;
+        /** Padrões de acesso medidos depois das quatro fases; null desliga (--access). */
+        List<AccessPattern> accessPatterns;
+        /** Kernels de leitura/escrita comparados depois das fases; null desliga (--kernels). */
+        List<Kernels.Kernel> kernels;
+        /** Registra as páginas por nó NUMA de /proc/self/numa_maps (--numa-maps, filhos de --numa). */
+        boolean numaMaps;
+        /** Célula nome:mecanismo:limite de um filho de --pressure; null fora desse modo. */
+        String pressureCell;
+        /** Registra safepoints e time-to-safepoint por JFR (--safepoints). */
+        boolean safepoints;
+        
+        static RunOptions fromCli(Map<String, String> cliArgs) {
+            RunOptions options = new RunOptions();
+            if (cliArgs.containsKey("warmup")) {
+                options.warmup = Integer.parseInt(cliArgs.get("warmup"));
+            }
+            if (cliArgs.containsKey("trials")) {
+                options.trials = Integer.parseInt(cliArgs.get("trials"));
+            }
+            if (cliArgs.containsKey("sample-ms")) {
+                options.sampleMillis = Long.parseLong(cliArgs.get("sample-ms"));
+            }
+            if (cliArgs.containsKey("sample-capacity")) {
+                options.sampleCapacity = Integer.parseInt(cliArgs.get("sample-capacity"));
+                if (options.sampleCapacity < PhaseSampler.MIN_CAPACITY) {
+                    throw new IllegalArgumentException("--sample-capacity precisa ser >= " + PhaseSampler.MIN_CAPACITY);
+                }
+            }
+            if (cliArgs.containsKey("fanout-executors")) {
+                options.fanOutExecutors = new ArrayList<>();
+                for (String kind : cliArgs.get("fanout-executors").split(",")) {
+                    options.fanOutExecutors.add(FanOutRunner.Kind.parse(kind));
+                }
+            }
+            if (cliArgs.containsKey("fanout-pool")) {
+                options.fanOutPool = Integer.parseInt(cliArgs.get("fanout-pool"));
+            }
+            if (cliArgs.containsKey("sweep-steps")) {
+                options.sweepStepsPerOctave = Integer.parseInt(cliArgs.get("sweep-steps"));
+                if (options.sweepStepsPerOctave < 1) {
+                    throw new IllegalArgumentException("--sweep-steps precisa ser >= 1");
+                }
+            }
+            if (cliArgs.containsKey("access")) {
+                String spec = cliArgs.get("access");
+                options.accessPatterns = AccessPattern.parseList(
+                    "true".equals(spec) ? AccessPattern.DEFAULT_SPEC : spec);
+            }
+            if (cliArgs.containsKey("kernels")) {
+                String spec = cliArgs.get("kernels");
+                options.kernels = Kernels.parseList("true".equals(spec) ? Kernels.DEFAULT_SPEC : spec);
+            }
+            options.numaMaps = cliArgs.containsKey("numa-maps") || cliArgs.containsKey("numa-placement");
+            options.pressureCell = cliArgs.get("pressure-cell");
+            options.safepoints = cliArgs.containsKey("safepoints");
+            if (options.warmup < 0 || options.trials < 1) {
+                throw new IllegalArgumentException("--warmup precisa ser >= 0 e --trials >= 1");
+            }
+            return options;
+        }
+        
+        RunOptions withThreads(int threads) {
+            RunOptions copy = new RunOptions();
+            copy.threads = threads;
+            copy.warmup = warmup;
+            copy.trials = trials;
+            copy.sampleMillis = sampleMillis;
+            copy.sampleCapacity = sampleCapacity;
+            copy.fanOutExecutors = fanOutExecutors;
+            copy.fanOutPool = fanOutPool;
+            copy.accessPatterns = accessPatterns;
+            copy.kernels = kernels;
+            copy.numaMaps = numaMaps;
+            copy.pressureCell = pressureCell;
+            copy.safepoints = safepoints;
+            copy.sweepStepsPerOctave = sweepStepsPerOctave;
+            return copy;
+        }
+    }
+    
     static class Result {
         String scenarioId;
         int sizeMb;
         int iterations;
+        String backend;
         Metrics metrics;
         String timestamp;
         String javaVersion;
+        /** 0 no modo original (thread principal); N quando rodou com --threads. */
+        int threads;
+        EnumMap<Phase, ConcurrentPhaseRunner.PhaseRun> concurrency;
+        int warmup;
+        int trials = 1;
+        /** Séries temporais por fase; null sem --sample-ms. */
+        PhaseSampler sampler;
+        long sampleMillis;
+        /** Flags e opções efetivas da JVM que rodou o cenário. */
+        JvmSettings jvm;
+        /** Latências e vazão de um cenário de fan-out; null nos cenários de buffer. */
+        FanOutRunner.FanOutRun fanOut;
+        /** Curvas e joelhos da varredura do working set; null nos outros tipos. */
+        WorkingSetSweep.Sweep sweep;
+        /** ns/acesso e GB/s de cada padrão de acesso; null sem --access. */
+        List<AccessPattern.Measurement> access;
+        /** GB/s de leitura e escrita de cada kernel; null sem --kernels. */
+        List<Kernels.Measurement> kernels;
+        /** Lançamento até o main e até o fim do primeiro cenário; só no primeiro resultado de um filho de --startup. */
+        StartupMode.Probe startup;
         
-        public Result(String scenarioId, int sizeMb, int iterations, 
+        public Result(String scenarioId, int sizeMb, int iterations, String backend,
                      Metrics metrics, String timestamp, String javaVersion) {
             this.scenarioId = scenarioId;
             this.sizeMb = sizeMb;
             this.iterations = iterations;
+            this.backend = backend;
             this.metrics = metrics;
             this.timestamp = timestamp;
             this.javaVersion = javaVersion;
         }
     }
     
+    /**
+     * Opções de memória da JVM em execução, gravadas em cada resultado para que
+     * relatórios de JVMs diferentes (ex.: --jvm-matrix) possam ser comparados.
+     */
+    static class JvmSettings {
+        /** Opções lidas do HotSpotDiagnosticMXBean; as ausentes na JVM são omitidas. */
+        static final String[] RECORDED_OPTIONS = {
+            "UseTransparentHugePages", "AlwaysPreTouch", "UseLargePages", 
+            "LargePageSizeInBytes", "InitialHeapSize", "MaxHeapSize", "UseNUMA"
+        };
+        /** Flag de seleção de cada coletor e o nome gravado no relatório. */
+        static final String[][] COLLECTOR_OPTIONS = {
+            {"UseSerialGC", "Serial"}, {"UseParallelGC", "Parallel"}, {"UseG1GC", "G1"}, 
+            {"UseZGC", "ZGC"}, {"UseShenandoahGC", "Shenandoah"}, {"UseEpsilonGC", "Epsilon"}
+        };
+        /** Uptime da JVM ao entrar no main: inclui a inicialização e o pre-touch do heap. */
+        static long startupMillis = -1;
+        /** Nome da célula de --jvm-matrix que lançou esta JVM, ou null. */
+        static String variant;
+        /** "cpu:mem:lançador" da célula de --numa que lançou esta JVM, ou null. */
+        static String numaPlacement;
+        private static JvmSettings current;
+        
+        List<String> flags;
+        Map<String, String> options = new LinkedHashMap<>();
+        /** Coletor em uso (G1, Parallel, ZGC...) e os nomes dos seus GarbageCollectorMXBeans. */
+        String collector = "n/d";
+        List<String> gcBeans = new ArrayList<>();
+        String thpMode;
+        long startup;
+        String variantName;
+        String numaPlacementSpec;
+        
+        static synchronized JvmSettings current() {
+            if (current == null) {
+                JvmSettings settings = new JvmSettings();
+                settings.flags = ManagementFactory.getRuntimeMXBean().getInputArguments();
+                com.sun.management.HotSpotDiagnosticMXBean diagnostics = 
+                    ManagementFactory.getPlatformMXBean(com.sun.management.HotSpotDiagnosticMXBean.class);
+                for (String option : RECORDED_OPTIONS) {
+                    try {
+                        settings.options.put(option, diagnostics.getVMOption(option).getValue());
+                    } catch (RuntimeException e) {
+                        // Opção inexistente nesta plataforma (ex.: THP fora do Linux)
+                    }
+                }
+                for (String[] option : COLLECTOR_OPTIONS) {
+                    try {
+                        if ("true".equals(diagnostics.getVMOption(option[0]).getValue())) {
+                            settings.collector = option[1];
+                        }
+                    } catch (RuntimeException e) {
+                        // Coletor não incluído nesta build (ex.: Shenandoah na JDK da Oracle)
+                    }
+                }
+                for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                    settings.gcBeans.add(bean.getName());
+                }
+                settings.thpMode = transparentHugePagesMode();
+                settings.startup = startupMillis;
+                settings.variantName = variant;
+                settings.numaPlacementSpec = numaPlacement;
+                current = settings;
+            }
+            return current;
+        }
+        
+        /** Modo selecionado em /sys/kernel/mm/transparent_hugepage/enabled, ou "n/d". */
+        static String transparentHugePagesMode() {
+            try {
+                String enabled = new String(Files.readAllBytes(
+                    Paths.get("/sys/kernel/mm/transparent_hugepage/enabled"))).trim();
+                int open = enabled.indexOf('[');
+                int close = enabled.indexOf(']');
+                return open >= 0 && close > open ? enabled.substring(open + 1, close) : enabled;
+            } catch (IOException e) {
+                return "n/d";
+            }
+        }
+    }
+    
+    /**
+     * Retrato dos contadores de memória, GC e page faults do processo.
+     *
+     * No Linux os contadores vêm de um {@link ProcReader} compartilhado, que relê o
+     * /proc para campos primitivos sem alocar; uma instância pode ser recapturada com
+     * {@link #capture()}, então um cenário mede sem gerar lixo entre o início e o fim.
+     */
     static class ResourceUsage {
+        private static final boolean LINUX = 
+            System.getProperty("os.name").toLowerCase().contains("linux");
+        private static final boolean WINDOWS = 
+            System.getProperty("os.name").toLowerCase().contains("windows");
+        private static final ProcReader PROC = LINUX ? new ProcReader() : null;
+        private static final GarbageCollectorMXBean[] GC_BEANS = 
+            ManagementFactory.getGarbageCollectorMXBeans().toArray(new GarbageCollectorMXBean[0]);
+        private static final OperatingSystemMXBean OS_BEAN = 
+            ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
+        
         long timestamp;
         long committedVirtualMemorySize;
         long minorPageFaults;
@@ -70,11 +409,26 @@ public class MemoryTest {
         long gcTime;
         long usedMemory;
         long totalMemory;
+        // Campos só disponíveis no Linux (-1 caso contrário)
+        long vmRssKb = -1;
+        long vmHwmKb = -1;
+        long pssKb = -1;
+        long anonHugePagesKb = -1;
+        long thpFaultAlloc = -1;
+        long thpFaultFallback = -1;
+        long thpCollapseAlloc = -1;
+        long thpSplitPage = -1;
+        long compactStall = -1;
+        long compactFail = -1;
+        long compactSuccess = -1;
         
         public ResourceUsage() {
-            OperatingSystemMXBean osBean = ManagementFactory.getPlatformMXBean(OperatingSystemMXBean.class);
+            capture();
+        }
+        
+        /** Recaptura todos os contadores nesta mesma instância. */
+        public void capture() {
             this.timestamp = System.nanoTime();
-            this.committedVirtualMemorySize = osBean.getCommittedVirtualMemorySize();
             
             // Capturar informações de memória
             Runtime runtime = Runtime.getRuntime();
@@ -82,10 +436,9 @@ public class MemoryTest {
             this.usedMemory = runtime.totalMemory() - runtime.freeMemory();
             
             // Capturar informações de GC
-            List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
             this.gcCount = 0;
             this.gcTime = 0;
-            for (GarbageCollectorMXBean gcBean : gcBeans) {
+            for (GarbageCollectorMXBean gcBean : GC_BEANS) {
                 long count = gcBean.getCollectionCount();
                 long time = gcBean.getCollectionTime();
                 if (count >= 0) this.gcCount += count;
@@ -94,11 +447,13 @@ public class MemoryTest {
             
             // Tentar capturar page faults do sistema operacional
             try {
-                if (System.getProperty("os.name").toLowerCase().contains("linux")) {
-                    readLinuxPageFaults();
-                } else if (System.getProperty("os.name").toLowerCase().contains("windows")) {
+                if (LINUX && PROC.isAvailable()) {
+                    readLinuxCounters();
+                } else if (WINDOWS) {
+                    this.committedVirtualMemorySize = OS_BEAN.getCommittedVirtualMemorySize();
                     readWindowsPageFaults();
                 } else {
+                    this.committedVirtualMemorySize = OS_BEAN.getCommittedVirtualMemorySize();
                     this.minorPageFaults = -1;
                     this.majorPageFaults = -1;
                 }
@@ -108,21 +463,25 @@ public class MemoryTest {
             }
         }
         
-        private void readLinuxPageFaults() {
-            try {
-                String statFile = "/proc/self/stat";
-                String content = new String(Files.readAllBytes(Paths.get(statFile)));
-                String[] parts = content.split(" ");
-                if (parts.length > 12) {
-                    this.minorPageFaults = Long.parseLong(parts[9]);  // minflt
-                    this.majorPageFaults = Long.parseLong(parts[11]); // majflt
-                } else {
-                    this.minorPageFaults = -1;
-                    this.majorPageFaults = -1;
-                }
-            } catch (Exception e) {
-                this.minorPageFaults = -1;
-                this.majorPageFaults = -1;
+        private void readLinuxCounters() {
+            synchronized (PROC) {
+                PROC.capture(ProcReader.ALL);
+                this.minorPageFaults = PROC.minorFaults;
+                this.majorPageFaults = PROC.majorFaults;
+                this.committedVirtualMemorySize = PROC.sizePages >= 0 
+                    ? PROC.sizePages * PROC.pageSize 
+                    : OS_BEAN.getCommittedVirtualMemorySize();
+                this.vmRssKb = PROC.vmRssKb;
+                this.vmHwmKb = PROC.vmHwmKb;
+                this.pssKb = PROC.rollupPssKb;
+                this.anonHugePagesKb = PROC.anonHugePagesKb;
+                this.thpFaultAlloc = PROC.thpFaultAlloc;
+                this.thpFaultFallback = PROC.thpFaultFallback;
+                this.thpCollapseAlloc = PROC.thpCollapseAlloc;
+                this.thpSplitPage = PROC.thpSplitPage;
+                this.compactStall = PROC.compactStall;
+                this.compactFail = PROC.compactFail;
+                this.compactSuccess = PROC.compactSuccess;
             }
         }
         
@@ -151,6 +510,49 @@ public class MemoryTest {
         }
     }
     
+    /**
+     * Diferença entre dois retratos de {@link ResourceUsage}, em campos primitivos.
+     * Contadores indisponíveis ficam em -1.
+     */
+    static class UsageDelta {
+        long pageFaultsMinor = -1;
+        long pageFaultsMajor = -1;
+        long thpFaultAlloc = -1;
+        long thpFaultFallback = -1;
+        long thpCollapseAlloc = -1;
+        long thpSplitPage = -1;
+        long compactStall = -1;
+        long compactFail = -1;
+        long compactSuccess = -1;
+        /** Valores no fim do cenário, não diferenças. */
+        long vmHwmKb = -1;
+        long pssKb = -1;
+        long anonHugePagesKb = -1;
+        
+        boolean hasProcCounters() {
+            return vmHwmKb >= 0 || thpFaultAlloc >= 0;
+        }
+        
+        private static long diff(long start, long end) {
+            return start < 0 || end < 0 ? -1 : Math.max(0, end - start);
+        }
+    }
+    
+    /** Bytes alocados no heap dentro das regiões cronometradas de uma fase e o tempo delas. */
+    static class AllocationRate {
+        final long bytes;
+        final double seconds;
+        
+        AllocationRate(long bytes, double seconds) {
+            this.bytes = bytes;
+            this.seconds = seconds;
+        }
+        
+        double mbPerSecond() {
+            return bytes / (1024.0 * 1024.0) / seconds;
+        }
+    }
+    
     public static List<Scenario> loadScenarioConfig() {
         List<Scenario> scenarios = new ArrayList<>();
         try {
@@ -160,15 +562,35 @@ public class MemoryTest {
                 return scenarios;
             }
             
-            String content = new String(Files.readAllBytes(configFile.toPath()));
-            // Parsing simples de JSON (para produção, use Gson ou Jackson)
-            String[] entries = content.split("\\{");
-            for (String entry : entries) {
-                if (entry.contains("\"id\"")) {
-                    String id = extractJsonValue(entry, "id");
-                    int sizeMb = Integer.parseInt(extractJsonValue(entry, "sizeMb"));
-                    int iterations = Integer.parseInt(extractJsonValue(entry, "iterations"));
-                    scenarios.add(new Scenario(id, sizeMb, iterations));
+            Object root = JsonReader.parse(new String(Files.readAllBytes(configFile.toPath()), StandardCharsets.UTF_8));
+            // Aceita o array de cenários direto ou dentro de {"scenarios": [...]}
+            Object entries = root instanceof Map ? JsonReader.path(root, "scenarios") : root;
+            if (!(entries instanceof List)) {
+                throw new IllegalArgumentException("esperado um array de cenários");
+            }
+            for (Object entry : (List<?>) entries) {
+                String id = configValue(entry, "id");
+                if (id.isEmpty()) {
+                    continue;
+                }
+                String type = configValue(entry, "type");
+                String backend = configValue(entry, "backend");
+                if ("fanout".equals(type)) {
+                    // Em "sizes" os pares tamanho:peso são separados por ';' neste arquivo
+                    String sizes = configValue(entry, "sizes");
+                    scenarios.add(Scenario.fanOut(id, Integer.parseInt(configValue(entry, "requests")),
+                        sizes.isEmpty() ? FanOutRunner.DEFAULT_SIZES : sizes));
+                } else if ("sweep".equals(type)) {
+                    String range = configValue(entry, "range");
+                    Scenario sweep = Scenario.sweep(id, range.isEmpty() ? WorkingSetSweep.DEFAULT_RANGE : range);
+                    sweep.backend = backend.isEmpty() ? "heap" : backend;
+                    scenarios.add(sweep);
+                } else {
+                    String chunkMb = configValue(entry, "chunkMb");
+                    scenarios.add(new Scenario(id, Integer.parseInt(configValue(entry, "sizeMb")),
+                        Integer.parseInt(configValue(entry, "iterations")),
+                        backend.isEmpty() ? "heap" : backend,
+                        chunkMb.isEmpty() ? BufferBackend.DEFAULT_CHUNK_MB : Integer.parseInt(chunkMb)));
                 }
             }
         } catch (Exception e) {
@@ -177,14 +599,10 @@ public class MemoryTest {
         return scenarios;
     }
     
-    private static String extractJsonValue(String json, String key) {
-        String pattern = "\"" + key + "\"\\s*:\\s*\"?([^\",}]+)\"?";
-        java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-        java.util.regex.Matcher m = p.matcher(json);
-        if (m.find()) {
-            return m.group(1).trim();
-        }
-        return "";
+    /** Campo de um cenário como texto ("" se ausente); números inteiros sem ".0". */
+    private static String configValue(Object entry, String key) {
+        Object value = JsonReader.path(entry, key);
+        return value == null ? "" : value.toString().trim();
     }
     
     public static Map<String, String> parseCliArgs(String[] args) {
@@ -212,6 +630,60 @@ public class MemoryTest {
     }
     
     public static List<Scenario> resolveScenarios(Map<String, String> cliArgs) throws Exception {
+        List<Scenario> scenarios = resolveBaseScenarios(cliArgs);
+        if (cliArgs.containsKey("mmap-dir")) {
+            for (Scenario s : scenarios) {
+                s.scratchDir = cliArgs.get("mmap-dir");
+            }
+        }
+        if (!cliArgs.containsKey("backend") && !cliArgs.containsKey("chunk-mb")) {
+            return scenarios;
+        }
+        
+        // --backend e --chunk-mb sobrescrevem o arquivo de configuração; com vários
+        // backends cada cenário é repetido uma vez por backend
+        String[] backends = cliArgs.containsKey("backend") 
+            ? cliArgs.get("backend").split(",") 
+            : null;
+        List<Scenario> expanded = new ArrayList<>();
+        for (Scenario s : scenarios) {
+            int chunkMb = cliArgs.containsKey("chunk-mb") 
+                ? Integer.parseInt(cliArgs.get("chunk-mb")) 
+                : s.chunkMb;
+            if (backends == null) {
+                expanded.add(s.copy(s.id, s.backend, chunkMb));
+                continue;
+            }
+            for (String backend : backends) {
+                backend = backend.trim();
+                if (!BufferBackend.isKnown(backend)) {
+                    throw new Exception("Backend desconhecido: " + backend 
+                        + " (opções: " + String.join(", ", BufferBackend.names()) + ")");
+                }
+                String id = backends.length > 1 ? s.id + "-" + backend.replace(':', '-') : s.id;
+                expanded.add(s.copy(id, backend, chunkMb));
+            }
+        }
+        return expanded;
+    }
+    
+    private static List<Scenario> resolveBaseScenarios(Map<String, String> cliArgs) throws Exception {
+        // --fanout=10000,50000 e --sweep criam cenários ad-hoc, sozinhos ou junto de --sizes
+        List<Scenario> fanOut = new ArrayList<>();
+        if (cliArgs.containsKey("fanout")) {
+            String sizes = cliArgs.getOrDefault("fanout-sizes", FanOutRunner.DEFAULT_SIZES);
+            for (String requests : cliArgs.get("fanout").split(",")) {
+                int count = Integer.parseInt(requests.trim());
+                fanOut.add(Scenario.fanOut("fanout-" + count + "req", count, sizes));
+            }
+        }
+        if (cliArgs.containsKey("sweep")) {
+            String range = cliArgs.get("sweep");
+            fanOut.add(Scenario.sweep("sweep", "true".equals(range) ? WorkingSetSweep.DEFAULT_RANGE : range));
+        }
+        if (!fanOut.isEmpty() && !cliArgs.containsKey("sizes")) {
+            return fanOut;
+        }
         List<Scenario> config = loadScenarioConfig();
         
         if (cliArgs.containsKey("sizes")) {
@@ -224,6 +696,7 @@ public class MemoryTest {
                 int sizeMb = Integer.parseInt(sizeStr.trim());
                 scenarios.add(new Scenario("ad-hoc-" + sizeMb + "mb", sizeMb, iterations));
             }
+            scenarios.addAll(fanOut);
             return scenarios;
         }
         
@@ -256,56 +729,244 @@ public class MemoryTest {
         return (long) sizeMb * 1024 * 1024;
     }
     
+    /**
+     * Resolve o backend do cenário. O backend heap usa um único byte[] e não passa
+     * de ~2 GB; acima disso o cenário roda automaticamente no backend chunked.
+     */
+    public static BufferBackend resolveBackend(Scenario scenario, long sizeBytes) {
+        BufferBackend backend = BufferBackend.forName(
+            scenario.backend, scenario.chunkMb, Paths.get(scenario.scratchDir));
+        if (backend instanceof HeapBackend && !backend.supports(sizeBytes)) {
+            System.out.println("Aviso: " + scenario.sizeMb + " MB excede o limite de um byte[]; "
+                + "usando backend chunked");
+            return BufferBackend.forName("chunked", scenario.chunkMb);
+        }
+        if (backend instanceof SegmentBackend && !SegmentBackend.isAvailable()) {
+            throw new IllegalArgumentException("Backend segment requer java.lang.foreign (JDK 22+); "
+                + "JVM atual: " + System.getProperty("java.version"));
+        }
+        if (!backend.supports(sizeBytes)) {
+            throw new IllegalArgumentException("Backend " + backend.name() 
+                + " não suporta " + scenario.sizeMb + " MB nesta JVM");
+        }
+        return backend;
+    }
+    
+    /** Destino de leituras que não podem ser descartadas pela JIT. */
+    static volatile long sink;
+    
+    /** A fase de leitura toca um byte a cada READ_STRIDE (uma página de 4 KB). */
+    static final int READ_STRIDE = 4096;
+    
+    /** Tempo de uma medição e os bytes alocados pela thread só dentro da região cronometrada. */
+    static class TimedRun {
+        final double seconds;
+        /** -1 quando a JVM não mede alocação por thread. */
+        final long allocatedBytes;
+        
+        TimedRun(double seconds, long allocatedBytes) {
+            this.seconds = seconds;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+    
     public static double measureAllocation(long sizeBytes, int iterations) {
-        long start = System.nanoTime();
+        return measureAllocation(new HeapBackend(), sizeBytes, iterations);
+    }
+    
+    public static double measureAllocation(BufferBackend backend, long sizeBytes, int iterations) {
+        return measureAllocation(backend, sizeBytes, iterations, null).seconds;
+    }
+    
+    static TimedRun measureAllocation(BufferBackend backend, long sizeBytes, int iterations,
+                                    LatencyHistogram latency) {
+        // Só a alocação entra no tempo; a liberação explícita dos backends nativos
+        // fica fora para não misturar com measureAllocateAndFree
+        long elapsed = 0;
+        long allocated = 0;
         for (int iteration = 0; iteration < iterations; iteration++) {
-            byte[] buffer = new byte[(int) sizeBytes];
-            buffer[0] = (byte) ((buffer[0] + iteration) & 0xff);
+            backend.beforeAllocate(sizeBytes);
+            long allocatedStart = threadAllocatedBytes();
+            long start = System.nanoTime();
+            MemoryBuffer buffer = backend.allocate(sizeBytes);
+            if (buffer.writable()) {
+                buffer.put(0, (byte) ((buffer.get(0) + iteration) & 0xff));
+            } else {
+                sink += buffer.get(0);
+            }
+            long iterationNanos = System.nanoTime() - start;
+            allocated = allocatedSince(allocated, allocatedStart);
+            elapsed += iterationNanos;
+            if (latency != null) {
+                latency.record(iterationNanos);
+            }
+            buffer.close();
         }
-        long end = System.nanoTime();
-        return (end - start) / 1e9;
+        return new TimedRun(elapsed / 1e9, allocated);
     }
     
     public static double measureAllocateAndFree(long sizeBytes, int iterations) {
-        long start = System.nanoTime();
+        return measureAllocateAndFree(new HeapBackend(), sizeBytes, iterations);
+    }
+    
+    public static double measureAllocateAndFree(BufferBackend backend, long sizeBytes, int iterations) {
+        return measureAllocateAndFree(backend, sizeBytes, iterations, null).seconds;
+    }
+    
+    static TimedRun measureAllocateAndFree(BufferBackend backend, long sizeBytes, int iterations,
+                                         LatencyHistogram latency) {
+        // Cada iteração é cronometrada à parte para deixar beforeAllocate fora do tempo
+        long elapsed = 0;
+        long allocated = 0;
         int accumulator = 0;
         for (int iteration = 0; iteration < iterations; iteration++) {
-            byte[] buffer = new byte[(int) sizeBytes];
-            accumulator += buffer[(int) sizeBytes - 1];
+            backend.beforeAllocate(sizeBytes);
+            long allocatedStart = threadAllocatedBytes();
+            long start = System.nanoTime();
+            MemoryBuffer buffer = backend.allocate(sizeBytes);
+            accumulator += buffer.get(sizeBytes - 1);
+            buffer.close();
+            long iterationNanos = System.nanoTime() - start;
+            allocated = allocatedSince(allocated, allocatedStart);
+            elapsed += iterationNanos;
+            if (latency != null) {
+                latency.record(iterationNanos);
+            }
         }
         // Consome valor acumulado para evitar eliminação pelo otimizador
         if (accumulator == Integer.MIN_VALUE) {
             System.out.println("accumulator sentinel: " + accumulator);
         }
-        long end = System.nanoTime();
-        return (end - start) / 1e9;
+        return new TimedRun(elapsed / 1e9, allocated);
     }
     
     public static double measureWrites(long sizeBytes, int iterations) {
-        byte[] buffer = new byte[(int) sizeBytes];
-        long start = System.nanoTime();
-        for (int iteration = 0; iteration < iterations; iteration++) {
-            Arrays.fill(buffer, (byte) (iteration & 0xff));
+        return measureWrites(new HeapBackend(), sizeBytes, iterations);
+    }
+    
+    /** Retorna NaN quando o backend é somente leitura (mmap READ_ONLY). */
+    public static double measureWrites(BufferBackend backend, long sizeBytes, int iterations) {
+        return measureWrites(backend, sizeBytes, iterations, null).seconds;
+    }
+    
+    /** O buffer é alocado fora da região cronometrada, então não entra em allocatedBytes. */
+    static TimedRun measureWrites(BufferBackend backend, long sizeBytes, int iterations, LatencyHistogram latency) {
+        backend.beforeAllocate(sizeBytes);
+        MemoryBuffer buffer = backend.allocate(sizeBytes);
+        try {
+            if (!buffer.writable()) {
+                return new TimedRun(Double.NaN, -1);
+            }
+            long allocatedStart = threadAllocatedBytes();
+            long start = System.nanoTime();
+            long previous = start;
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                buffer.fill((byte) (iteration & 0xff));
+                previous = recordIteration(latency, previous);
+            }
+            long end = System.nanoTime();
+            return new TimedRun((end - start) / 1e9, allocatedSince(0, allocatedStart));
+        } finally {
+            buffer.close();
         }
-        long end = System.nanoTime();
-        return (end - start) / 1e9;
     }
     
     public static double measureReads(long sizeBytes, int iterations) {
-        byte[] buffer = new byte[(int) sizeBytes];
-        Arrays.fill(buffer, (byte) 0xaa);
-        int accumulator = 0;
-        long start = System.nanoTime();
-        for (int iteration = 0; iteration < iterations; iteration++) {
-            for (int index = 0; index < buffer.length; index += 4096) {
-                accumulator += buffer[index];
+        return measureReads(new HeapBackend(), sizeBytes, iterations);
+    }
+    
+    public static double measureReads(BufferBackend backend, long sizeBytes, int iterations) {
+        return measureReads(backend, sizeBytes, iterations, null).seconds;
+    }
+    
+    /** Como em measureWrites, a alocação e o preenchimento do buffer ficam fora de allocatedBytes. */
+    static TimedRun measureReads(BufferBackend backend, long sizeBytes, int iterations, LatencyHistogram latency) {
+        backend.beforeAllocate(sizeBytes);
+        MemoryBuffer buffer = backend.allocate(sizeBytes);
+        try {
+            buffer.initializeForReads((byte) 0xaa);
+            long accumulator = 0;
+            long allocatedStart = threadAllocatedBytes();
+            long start = System.nanoTime();
+            long previous = start;
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                accumulator += buffer.sumStride(READ_STRIDE);
+                previous = recordIteration(latency, previous);
+            }
+            long end = System.nanoTime();
+            long allocated = allocatedSince(0, allocatedStart);
+            if (accumulator == Long.MAX_VALUE) {
+                System.out.println("accumulator sentinel: " + accumulator);
             }
+            return new TimedRun((end - start) / 1e9, allocated);
+        } finally {
+            buffer.close();
         }
-        if (accumulator == Integer.MAX_VALUE) {
-            System.out.println("accumulator sentinel: " + accumulator);
+    }
+    
+    /**
+     * Grava o tempo desde {@code previous} e devolve o instante atual, o início da
+     * próxima iteração. As iterações ficam contíguas, então a soma delas é o total da fase.
+     */
+    private static long recordIteration(LatencyHistogram latency, long previous) {
+        if (latency == null) {
+            return previous;
+        }
+        long now = System.nanoTime();
+        latency.record(now - previous);
+        return now;
+    }
+    
+    /** {@code total} mais o que a thread alocou desde {@code start}; -1 se um dos dois não foi medido. */
+    private static long allocatedSince(long total, long start) {
+        return total < 0 || start < 0 ? -1 : total + threadAllocatedBytes() - start;
+    }
+    
+    /**
+     * Bytes alocados no heap pela thread atual até agora, de
+     * com.sun.management.ThreadMXBean; -1 quando a JVM não mede.
+     */
+    static long threadAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean.getCurrentThreadAllocatedBytes();
+            }
         }
-        long end = System.nanoTime();
-        return (end - start) / 1e9;
+        return -1;
+    }
+    
+    /**
+     * Deixa a JVM em repouso entre fases: força um GC e espera até que os contadores
+     * dos GarbageCollectorMXBeans parem de mudar, para que o trabalho de coleta de uma
+     * fase (ex.: o lixo de measureAllocateAndFree) não vaze para a medição seguinte.
+     */
+    public static void quiesce() {
+        System.gc();
+        long deadline = System.nanoTime() + QUIESCE_TIMEOUT_NANOS;
+        long previous = gcActivity();
+        int stablePolls = 0;
+        while (stablePolls < 2 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(QUIESCE_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long current = gcActivity();
+            stablePolls = current == previous ? stablePolls + 1 : 0;
+            previous = current;
+        }
+    }
+    
+    /** Soma de coletas e milissegundos de GC de todos os coletores. */
+    private static long gcActivity() {
+        long activity = 0;
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            activity += Math.max(0, gcBean.getCollectionCount()) + Math.max(0, gcBean.getCollectionTime());
+        }
+        return activity;
     }
     
     public static ResourceUsage captureResourceUsage() {
@@ -316,78 +977,810 @@ public class MemoryTest {
         }
     }
     
-    public static Map<String, Long> computePageFaultMetrics(
+    public static UsageDelta computePageFaultMetrics(
             ResourceUsage startUsage, ResourceUsage endUsage) {
-        Map<String, Long> metrics = new HashMap<>();
+        UsageDelta delta = new UsageDelta();
         
         if (startUsage == null || endUsage == null) {
-            metrics.put("pageFaultsMinor", null);
-            metrics.put("pageFaultsMajor", null);
-            return metrics;
+            return delta;
         }
         
-        // Se não conseguiu ler page faults (-1), retorna null
-        if (startUsage.minorPageFaults < 0 || endUsage.minorPageFaults < 0) {
-            metrics.put("pageFaultsMinor", null);
-            metrics.put("pageFaultsMajor", null);
-        } else {
-            long minorDiff = Math.max(0, endUsage.minorPageFaults - startUsage.minorPageFaults);
-            long majorDiff = Math.max(0, endUsage.majorPageFaults - startUsage.majorPageFaults);
-            metrics.put("pageFaultsMinor", minorDiff);
-            metrics.put("pageFaultsMajor", majorDiff);
+        // Se não conseguiu ler page faults (-1), o delta fica em -1 e vira null no relatório
+        if (startUsage.minorPageFaults >= 0 && endUsage.minorPageFaults >= 0) {
+            delta.pageFaultsMinor = UsageDelta.diff(startUsage.minorPageFaults, endUsage.minorPageFaults);
+            delta.pageFaultsMajor = UsageDelta.diff(startUsage.majorPageFaults, endUsage.majorPageFaults);
         }
+        delta.thpFaultAlloc = UsageDelta.diff(startUsage.thpFaultAlloc, endUsage.thpFaultAlloc);
+        delta.thpFaultFallback = UsageDelta.diff(startUsage.thpFaultFallback, endUsage.thpFaultFallback);
+        delta.thpCollapseAlloc = UsageDelta.diff(startUsage.thpCollapseAlloc, endUsage.thpCollapseAlloc);
+        delta.thpSplitPage = UsageDelta.diff(startUsage.thpSplitPage, endUsage.thpSplitPage);
+        delta.compactStall = UsageDelta.diff(startUsage.compactStall, endUsage.compactStall);
+        delta.compactFail = UsageDelta.diff(startUsage.compactFail, endUsage.compactFail);
+        delta.compactSuccess = UsageDelta.diff(startUsage.compactSuccess, endUsage.compactSuccess);
+        delta.vmHwmKb = endUsage.vmHwmKb;
+        delta.pssKb = endUsage.pssKb;
+        delta.anonHugePagesKb = endUsage.anonHugePagesKb;
         
-        return metrics;
+        return delta;
     }
     
     public static Result runScenario(Scenario scenario) {
+        return runScenario(scenario, new RunOptions());
+    }
+    
+    /**
+     * Executa o cenário. Cada fase roda {@code warmup} vezes sem medir e depois
+     * {@code trials} vezes medindo, com a JVM em repouso entre uma fase e outra. Com
+     * {@code threads == 0} a fase roda na thread atual; com N &gt; 0 roda em N threads
+     * iniciadas por uma barreira.
+     */
+    public static Result runScenario(Scenario scenario, RunOptions options) {
+        int threads = options.threads;
         long sizeBytes = bytesFromMb(scenario.sizeMb);
         int iterations = scenario.iterations;
         
+        BufferBackend backend = resolveBackend(scenario, sizeBytes);
+        
         System.out.println("\nExecutando cenário " + scenario.id + 
-            " (" + scenario.sizeMb + " MB x " + iterations + " iterações)");
+            " (" + scenario.sizeMb + " MB x " + iterations + " iterações, backend " 
+            + backend.name() + (threads > 0 ? ", " + threads + " threads" : "") 
+            + (options.trials > 1 || options.warmup > 0 
+                ? ", " + options.warmup + " warmup + " + options.trials + " trials" : "") + ")");
         
+        backend.prepare(sizeBytes);
+        // Os dois retratos são criados antes das fases; o do fim só é recapturado
         ResourceUsage resourceUsageStart = captureResourceUsage();
+        ResourceUsage resourceUsageEnd = captureResourceUsage();
+        PressureMode.Snapshot pressureStart = options.pressureCell != null ? PressureMode.Snapshot.capture() : null;
+        SafepointRecorder safepointRecorder = options.safepoints ? SafepointRecorder.install() : null;
+        EnumMap<Phase, LatencyHistogram.Snapshot> iterationLatency = new EnumMap<>(Phase.class);
+        EnumMap<Phase, AllocationRate> allocation = new EnumMap<>(Phase.class);
         
-        double allocationSeconds = measureAllocation(sizeBytes, iterations);
-        double allocateAndFreeSeconds = measureAllocateAndFree(sizeBytes, iterations);
-        double writesSeconds = measureWrites(sizeBytes, iterations);
-        double readsSeconds = measureReads(sizeBytes, iterations);
+        EnumMap<Phase, Double> seconds = new EnumMap<>(Phase.class);
+        EnumMap<Phase, TrialStats> phaseStats = new EnumMap<>(Phase.class);
+        EnumMap<Phase, ConcurrentPhaseRunner.PhaseRun> concurrency = 
+            threads > 0 ? new EnumMap<>(Phase.class) : null;
+        PhaseSampler sampler = options.sampleMillis > 0 
+            ? new PhaseSampler(options.sampleMillis, options.sampleCapacity) 
+            : null;
+        GcPauseRecorder gcRecorder = GcPauseRecorder.install();
+        BufferPool<?> pool = backend instanceof PooledBackend ? ((PooledBackend) backend).pool() : null;
+        BufferPool.Stats poolStart = pool != null ? pool.stats() : null;
+        EnumMap<Phase, BufferPool.Stats> phasePool = pool != null ? new EnumMap<>(Phase.class) : null;
+        BufferPool.Stats poolTotal = null;
+        List<AccessPattern.Measurement> access = null;
+        List<Kernels.Measurement> kernels = null;
+        Map<Integer, Long> processNumaNodeBytes = null;
+        // Janela [início, fim] de cada fase em ms de uptime, a base de tempo dos eventos do JFR
+        EnumMap<Phase, long[]> phaseWindows = new EnumMap<>(Phase.class);
+        // Marcas [início, fim) de cada fase no GcPauseRecorder; coletas de cenários anteriores saem da lista
+        EnumMap<Phase, long[]> phaseGcMarks = new EnumMap<>(Phase.class);
+        gcRecorder.discardBefore(gcRecorder.mark());
+        try {
+            for (Phase phase : Phase.values()) {
+                quiesce();
+                if (sampler != null) {
+                    sampler.beginPhase(phase);
+                }
+                long phaseStartMillis = GcPauseRecorder.uptimeMillis();
+                long phaseStartMark = gcRecorder.mark();
+                BufferPool.Stats phasePoolStart = pool != null ? pool.stats() : null;
+                for (int w = 0; w < options.warmup; w++) {
+                    measurePhase(phase, backend, sizeBytes, iterations, threads);
+                }
+                
+                double[] trialSeconds = new double[options.trials];
+                ConcurrentPhaseRunner.PhaseRun[] trialRuns = new ConcurrentPhaseRunner.PhaseRun[options.trials];
+                // Criado antes das medições: gravar uma iteração não aloca
+                LatencyHistogram latency = new LatencyHistogram();
+                long allocatedBytes = 0;
+                double measuredSeconds = 0;
+                for (int t = 0; t < options.trials; t++) {
+                    long trialAllocated;
+                    if (threads > 0) {
+                        trialRuns[t] = ConcurrentPhaseRunner.run(phase, backend, sizeBytes, iterations, threads, latency);
+                        trialSeconds[t] = trialRuns[t].slowestThreadSeconds();
+                        trialAllocated = trialRuns[t].allocatedBytes;
+                    } else {
+                        TimedRun run = phase.measure(backend, sizeBytes, iterations, latency);
+                        trialSeconds[t] = run.seconds;
+                        trialAllocated = run.allocatedBytes;
+                    }
+                    allocatedBytes = allocatedBytes < 0 || trialAllocated < 0 ? -1 : allocatedBytes + trialAllocated;
+                    measuredSeconds += trialSeconds[t];
+                }
+                iterationLatency.put(phase, latency.snapshot());
+                if (allocatedBytes >= 0) {
+                    allocation.put(phase, new AllocationRate(allocatedBytes, measuredSeconds));
+                }
+                if (sampler != null) {
+                    sampler.endPhase();
+                }
+                phaseWindows.put(phase, new long[] {phaseStartMillis, GcPauseRecorder.uptimeMillis()});
+                phaseGcMarks.put(phase, new long[] {phaseStartMark, gcRecorder.mark()});
+                if (pool != null) {
+                    phasePool.put(phase, pool.stats().minus(phasePoolStart));
+                }
+                
+                TrialStats stats = TrialStats.of(trialSeconds);
+                double median = stats != null ? stats.median : Double.NaN;
+                seconds.put(phase, median);
+                if (stats != null) {
+                    phaseStats.put(phase, stats);
+                }
+                if (threads > 0) {
+                    concurrency.put(phase, closestRun(trialRuns, median));
+                }
+            }
+            if (options.numaMaps) {
+                // Antes dos buffers de --access e --kernels; é o processo todo, não só o buffer
+                processNumaNodeBytes = NumaMode.residentBytesPerNode();
+            }
+            if (options.accessPatterns != null) {
+                // Numa thread só, depois das fases, com um buffer novo já preenchido
+                quiesce();
+                access = AccessPattern.run(backend, sizeBytes, iterations, options.accessPatterns);
+            }
+            if (options.kernels != null) {
+                quiesce();
+                kernels = Kernels.run(backend, sizeBytes, iterations, options.kernels);
+            }
+            if (pool != null) {
+                // Antes do release, que esvazia o pool
+                pool.reclaimDeadThreads();
+                poolTotal = pool.stats().minus(poolStart);
+            }
+        } finally {
+            if (sampler != null) {
+                sampler.close();
+            }
+            backend.release();
+        }
+        double allocationSeconds = seconds.get(Phase.ALLOCATION);
+        double allocateAndFreeSeconds = seconds.get(Phase.ALLOCATE_AND_FREE);
+        double writesSeconds = seconds.get(Phase.WRITES);
+        double readsSeconds = seconds.get(Phase.READS);
         
-        ResourceUsage resourceUsageEnd = captureResourceUsage();
-        Map<String, Long> pageFaults = computePageFaultMetrics(
-            resourceUsageStart, resourceUsageEnd);
+        if (resourceUsageEnd != null) {
+            resourceUsageEnd.capture();
+        }
+        UsageDelta usage = computePageFaultMetrics(resourceUsageStart, resourceUsageEnd);
+        PressureMode.Measurement pressure = pressureStart != null
+            ? PressureMode.Measurement.finish(options.pressureCell, pressureStart) : null;
         
         Metrics metrics = new Metrics(
             allocationSeconds,
             allocateAndFreeSeconds,
             writesSeconds,
             readsSeconds,
-            pageFaults.get("pageFaultsMinor"),
-            pageFaults.get("pageFaultsMajor")
+            usage.pageFaultsMinor >= 0 ? usage.pageFaultsMinor : null,
+            usage.pageFaultsMajor >= 0 ? usage.pageFaultsMajor : null
         );
+        metrics.usage = usage;
+        metrics.phaseStats = phaseStats;
+        metrics.pool = poolTotal;
+        metrics.phasePool = phasePool;
+        metrics.processNumaNodeBytes = processNumaNodeBytes;
+        metrics.pressure = pressure;
+        metrics.iterationLatency = iterationLatency;
+        metrics.allocation = allocation;
+        if (safepointRecorder != null) {
+            if (!safepointRecorder.awaitFlushed(5000)) {
+                System.out.println("Aviso: o JFR não fez flush a tempo; safepoints podem estar incompletos");
+            }
+            metrics.safepoints = safepointRecorder.summarize(
+                phaseWindows.get(Phase.ALLOCATION)[0], phaseWindows.get(Phase.READS)[1]);
+            metrics.phaseSafepoints = new EnumMap<>(Phase.class);
+            for (Map.Entry<Phase, long[]> window : phaseWindows.entrySet()) {
+                metrics.phaseSafepoints.put(window.getKey(),
+                    safepointRecorder.summarize(window.getValue()[0], window.getValue()[1]));
+            }
+        }
+        metrics.gcPauses = gcRecorder.summarize(
+            phaseGcMarks.get(Phase.ALLOCATION)[0], phaseGcMarks.get(Phase.READS)[1]);
+        metrics.phaseGcPauses = new EnumMap<>(Phase.class);
+        for (Map.Entry<Phase, long[]> window : phaseGcMarks.entrySet()) {
+            metrics.phaseGcPauses.put(window.getKey(), 
+                gcRecorder.summarize(window.getValue()[0], window.getValue()[1]));
+        }
+        if (sampler != null) {
+            metrics.phaseDeltas = sampler.deltas();
+        }
         
         System.out.println("┌─────────────────────────┬──────────────────┐");
-        System.out.printf("│ %-23s │ %16s │%n", "Alocação", 
-            String.format("%.4f s", allocationSeconds));
-        System.out.printf("│ %-23s │ %16s │%n", "Aloca + Libera", 
-            String.format("%.4f s", allocateAndFreeSeconds));
-        System.out.printf("│ %-23s │ %16s │%n", "Escrita", 
-            String.format("%.4f s", writesSeconds));
-        System.out.printf("│ %-23s │ %16s │%n", "Leitura", 
-            String.format("%.4f s", readsSeconds));
+        System.out.printf("│ %-23s │ %16s │%n", "Alocação", formatSeconds(allocationSeconds));
+        System.out.printf("│ %-23s │ %16s │%n", "Aloca + Libera", formatSeconds(allocateAndFreeSeconds));
+        System.out.printf("│ %-23s │ %16s │%n", "Escrita", formatSeconds(writesSeconds));
+        System.out.printf("│ %-23s │ %16s │%n", "Leitura", formatSeconds(readsSeconds));
         System.out.printf("│ %-23s │ %16s │%n", "Page faults (minor)", 
             metrics.pageFaultsMinor != null ? metrics.pageFaultsMinor.toString() : "n/d");
         System.out.printf("│ %-23s │ %16s │%n", "Page faults (major)", 
             metrics.pageFaultsMajor != null ? metrics.pageFaultsMajor.toString() : "n/d");
         System.out.println("└─────────────────────────┴──────────────────┘");
+        if (options.trials > 1) {
+            printTrialStats(phaseStats);
+        }
+        printIterationLatency(metrics);
+        if (metrics.phaseDeltas != null) {
+            printPhaseDeltas(metrics.phaseDeltas);
+        }
+        if (!metrics.gcPauses.isEmpty()) {
+            printGcPauses(JvmSettings.current().collector, metrics.gcPauses);
+        }
+        if (phasePool != null) {
+            printPoolStats(phasePool);
+        }
+        if (access != null) {
+            printAccessPatterns(access);
+        }
+        if (kernels != null) {
+            printKernels(kernels, sizeBytes * (double) iterations / writesSeconds / 1e9);
+        }
         
         String timestamp = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
             .format(new Date());
         String javaVersion = System.getProperty("java.version");
         
-        return new Result(scenario.id, scenario.sizeMb, iterations, 
+        Result result = new Result(scenario.id, scenario.sizeMb, iterations, backend.name(),
             metrics, timestamp, javaVersion);
+        result.threads = threads;
+        result.concurrency = concurrency;
+        result.warmup = options.warmup;
+        result.trials = options.trials;
+        result.sampler = sampler;
+        result.sampleMillis = options.sampleMillis;
+        result.jvm = JvmSettings.current();
+        result.access = access;
+        result.kernels = kernels;
+        return result;
+    }
+    
+    /**
+     * Executa um cenário de fan-out uma vez por executor (threads virtuais e pool de
+     * plataforma), com os mesmos deltas de page faults e pausas de GC de runScenario.
+     */
+    public static List<Result> runFanOut(Scenario scenario, RunOptions options) {
+        FanOutRunner.SizeDistribution sizes = FanOutRunner.SizeDistribution.parse(scenario.sizeDistribution);
+        BufferBackend backend = BufferBackend.forName(
+            scenario.backend, scenario.chunkMb, Paths.get(scenario.scratchDir));
+        if (backend instanceof MappedFileBackend) {
+            throw new IllegalArgumentException("Cenários de fan-out não suportam o backend mmap");
+        }
+        if (!backend.supports(sizes.maxSize())) {
+            throw new IllegalArgumentException("Backend " + backend.name() + " não suporta buffers de " 
+                + sizes.maxSize() + " bytes");
+        }
+        
+        List<Result> results = new ArrayList<>();
+        GcPauseRecorder gcRecorder = GcPauseRecorder.install();
+        gcRecorder.discardBefore(gcRecorder.mark());
+        BufferPool<?> pool = backend instanceof PooledBackend ? ((PooledBackend) backend).pool() : null;
+        for (FanOutRunner.Kind kind : options.fanOutExecutors) {
+            if (kind == FanOutRunner.Kind.VIRTUAL && !FanOutRunner.virtualThreadsAvailable()) {
+                System.out.println("\nAviso: threads virtuais requerem JDK 21+ (JVM atual: " 
+                    + System.getProperty("java.version") + "); variante virtual ignorada");
+                continue;
+            }
+            System.out.println("\nExecutando fan-out " + scenario.id + " (" + scenario.requests 
+                + " requisições, tamanhos " + sizes.spec + ", threads " + kind.key 
+                + (kind == FanOutRunner.Kind.PLATFORM ? " x" + options.fanOutPool : "") 
+                + ", backend " + backend.name() + ", " + options.warmup + " warmup + " 
+                + options.trials + " rodadas)");
+            
+            quiesce();
+            ResourceUsage start = captureResourceUsage();
+            ResourceUsage end = captureResourceUsage();
+            PressureMode.Snapshot pressureStart = options.pressureCell != null ? PressureMode.Snapshot.capture() : null;
+            long startMark = gcRecorder.mark();
+            BufferPool.Stats poolStart = pool != null ? pool.stats() : null;
+            FanOutRunner.FanOutRun run = FanOutRunner.run(kind, backend, sizes, scenario.requests, 
+                options.fanOutPool, options.warmup, options.trials);
+            long endMark = gcRecorder.mark();
+            end.capture();
+            
+            UsageDelta usage = computePageFaultMetrics(start, end);
+            Metrics metrics = new Metrics(Double.NaN, Double.NaN, Double.NaN, Double.NaN,
+                usage.pageFaultsMinor >= 0 ? usage.pageFaultsMinor : null,
+                usage.pageFaultsMajor >= 0 ? usage.pageFaultsMajor : null);
+            metrics.usage = usage;
+            metrics.gcPauses = gcRecorder.summarize(startMark, endMark);
+            if (pressureStart != null) {
+                metrics.pressure = PressureMode.Measurement.finish(options.pressureCell, pressureStart);
+            }
+            if (pool != null) {
+                pool.reclaimDeadThreads();
+                metrics.pool = pool.stats().minus(poolStart);
+                // Cada executor começa com o pool vazio, como o backend sem pool
+                pool.close();
+            }
+            
+            printFanOut(run, metrics);
+            
+            Result result = new Result(scenario.id + "-" + kind.key, 0, run.rounds, backend.name(), metrics,
+                new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").format(new Date()),
+                System.getProperty("java.version"));
+            result.warmup = options.warmup;
+            result.trials = options.trials;
+            result.fanOut = run;
+            result.jvm = JvmSettings.current();
+            results.add(result);
+        }
+        return results;
+    }
+    
+    private static void printFanOut(FanOutRunner.FanOutRun run, Metrics metrics) {
+        System.out.printf("Vazão: %.0f req/s, %.1f MB alocados em %.3f s%n", run.requestsPerSecond(), 
+            run.bytesAllocated / (1024.0 * 1024.0), run.wallSeconds);
+        System.out.printf("%-10s %10s %10s %10s %10s %10s %10s%n", 
+            "(µs)", "média", "p50", "p90", "p99", "p99.9", "máx");
+        for (Object[] row : new Object[][] {{"latência", run.latency}, {"serviço", run.service}}) {
+            LatencyHistogram.Snapshot h = (LatencyHistogram.Snapshot) row[1];
+            System.out.printf("%-10s %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", row[0], h.mean / 1e3,
+                h.percentile(50) / 1e3, h.percentile(90) / 1e3, h.percentile(99) / 1e3, 
+                h.percentile(99.9) / 1e3, h.max / 1e3);
+        }
+        System.out.println("Page faults: " + (metrics.pageFaultsMinor != null ? metrics.pageFaultsMinor : "n/d") 
+            + " minor, " + (metrics.pageFaultsMajor != null ? metrics.pageFaultsMajor : "n/d") + " major");
+        if (!metrics.gcPauses.isEmpty()) {
+            printGcPauses(JvmSettings.current().collector, metrics.gcPauses);
+        }
+        if (metrics.pool != null) {
+            BufferPool.Stats p = metrics.pool;
+            System.out.printf("Pool: %.1f%% de acertos (%d do cache da thread, %d compartilhados, %d faltas), "
+                + "%d descartes, %.1f MB retidos (pico %.1f MB)%n", p.hitRate() * 100, p.threadCacheHits, 
+                p.sharedHits, p.misses, p.evictions, p.bytesHeld / 1048576.0, p.peakBytesHeld / 1048576.0);
+        }
+    }
+    
+    /**
+     * Varre o working set de um cenário do tipo sweep num único buffer do backend do
+     * cenário. --trials repete cada medida (vale a mediana); --warmup não se aplica,
+     * já que cada medida tem a sua volta de aquecimento.
+     */
+    public static Result runSweep(Scenario scenario, RunOptions options) {
+        WorkingSetSweep.Range range = WorkingSetSweep.Range.parse(scenario.sweepRange);
+        BufferBackend backend = resolveBackend(scenario, range.maxBytes);
+        System.out.println("\nVarrendo working set " + scenario.id + " (" 
+            + WorkingSetSweep.formatBytes(range.minBytes) + " a " + WorkingSetSweep.formatBytes(range.maxBytes) 
+            + ", " + options.sweepStepsPerOctave + " passos por oitava, backend " + backend.name() 
+            + (options.trials > 1 ? ", mediana de " + options.trials + " trials" : "") + ")");
+        System.out.printf("%12s %12s %12s %10s%n", "working set", "lat. ns", "lat./pág. ns", "GB/s");
+        
+        quiesce();
+        ResourceUsage start = captureResourceUsage();
+        ResourceUsage end = captureResourceUsage();
+        PressureMode.Snapshot pressureStart = options.pressureCell != null ? PressureMode.Snapshot.capture() : null;
+        GcPauseRecorder gcRecorder = GcPauseRecorder.install();
+        gcRecorder.discardBefore(gcRecorder.mark());
+        long startMark = gcRecorder.mark();
+        WorkingSetSweep.Sweep sweep;
+        try {
+            sweep = WorkingSetSweep.run(backend, range, options.sweepStepsPerOctave, options.trials);
+        } finally {
+            backend.release();
+        }
+        long endMark = gcRecorder.mark();
+        if (end != null) {
+            end.capture();
+        }
+        
+        UsageDelta usage = computePageFaultMetrics(start, end);
+        Metrics metrics = new Metrics(Double.NaN, Double.NaN, Double.NaN, Double.NaN,
+            usage.pageFaultsMinor >= 0 ? usage.pageFaultsMinor : null,
+            usage.pageFaultsMajor >= 0 ? usage.pageFaultsMajor : null);
+        metrics.usage = usage;
+        metrics.gcPauses = gcRecorder.summarize(startMark, endMark);
+        if (pressureStart != null) {
+            metrics.pressure = PressureMode.Measurement.finish(options.pressureCell, pressureStart);
+        }
+        
+        printKnees("Joelhos de latência (cache)", sweep.latencyKnees, "ns");
+        printKnees("Joelhos de latência por página (TLB)", sweep.pageLatencyKnees, "ns");
+        printKnees("Joelhos de banda", sweep.bandwidthKnees, "GB/s");
+        if (!sweep.caches.isEmpty()) {
+            StringBuilder caches = new StringBuilder("Caches informadas pelo kernel:");
+            for (WorkingSetSweep.CacheInfo cache : sweep.caches) {
+                caches.append(' ').append(cache.label()).append(' ').append(WorkingSetSweep.formatBytes(cache.sizeBytes));
+            }
+            System.out.println(caches);
+        }
+        
+        Result result = new Result(scenario.id, scenario.sizeMb, options.trials, backend.name(), metrics,
+            new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").format(new Date()),
+            System.getProperty("java.version"));
+        result.trials = options.trials;
+        result.sweep = sweep;
+        result.jvm = JvmSettings.current();
+        return result;
+    }
+    
+    private static void printKnees(String title, List<WorkingSetSweep.Knee> knees, String unit) {
+        System.out.println(title + ":" + (knees.isEmpty() ? " nenhum" : ""));
+        for (WorkingSetSweep.Knee knee : knees) {
+            System.out.printf("  até %-10s %8.2f -> %8.2f %s%s%n", WorkingSetSweep.formatBytes(knee.boundaryBytes),
+                knee.before, knee.after, unit, knee.cacheLevel != null ? "  (~" + knee.cacheLevel + ")" : "");
+        }
+    }
+    
+    private static void printAccessPatterns(List<AccessPattern.Measurement> access) {
+        System.out.printf("%-16s %14s %12s %10s %12s %10s %8s %8s%n", "Padrão", "acessos", 
+            "leit. ns", "leit. GB/s", "escr. ns", "escr. GB/s", "minflt L", "minflt E");
+        for (AccessPattern.Measurement m : access) {
+            System.out.printf("%-16s %14d %12.2f %10.2f %12.2f %10.2f %8s %8s%n", m.pattern.label(), m.accesses(), 
+                m.nanosPerAccess(m.readSeconds), m.gbps(m.readSeconds), 
+                m.nanosPerAccess(m.writeSeconds), m.gbps(m.writeSeconds),
+                m.readFaultsMinor >= 0 ? Long.toString(m.readFaultsMinor) : "n/d",
+                m.writeFaultsMinor >= 0 ? Long.toString(m.writeFaultsMinor) : "n/d");
+        }
+    }
+    
+    /**
+     * Banda de cada kernel ao lado da fase de escrita atual (fill). A fase de leitura
+     * toca só um byte a cada 4 KB, então a referência de leitura é o kernel scalar.
+     */
+    private static void printKernels(List<Kernels.Measurement> kernels, double phaseWriteGbps) {
+        Kernels.Measurement scalar = null;
+        for (Kernels.Measurement m : kernels) {
+            if (m.kernel.equals("scalar") && m.unavailableReason == null) {
+                scalar = m;
+            }
+        }
+        System.out.printf("%-14s %12s %10s %12s %10s %12s%n", "Kernel", "leit. GB/s", "x scalar", "escr. GB/s", "x fases",
+            "aquec. l/e");
+        // Sem fase de escrita (mmap READ_ONLY) não há referência para a última coluna
+        boolean hasPhase = !Double.isNaN(phaseWriteGbps);
+        System.out.printf("%-14s %12s %10s %12s %10s %12s%n", "fases (fill)", "-", "-",
+            hasPhase ? String.format("%.2f", phaseWriteGbps) : "n/d", hasPhase ? "1.00x" : "n/d", "-");
+        for (Kernels.Measurement m : kernels) {
+            if (m.unavailableReason != null) {
+                System.out.printf("%-14s n/d: %s%n", m.kernel, m.unavailableReason);
+                continue;
+            }
+            System.out.printf("%-14s %12.2f %10s %12s %10s %12s%n", m.kernel, m.readGbps(),
+                scalar != null ? String.format("%.2fx", m.readGbps() / scalar.readGbps()) : "-",
+                Double.isNaN(m.writeGbps()) ? "n/d" : String.format("%.2f", m.writeGbps()),
+                Double.isNaN(m.writeGbps()) ? "-" : hasPhase ? String.format("%.2fx", m.writeGbps() / phaseWriteGbps) : "n/d",
+                m.readWarmupPasses + "/" + m.writeWarmupPasses);
+        }
+    }
+    
+    private static void printPoolStats(EnumMap<Phase, BufferPool.Stats> phasePool) {
+        System.out.printf("%-16s %10s %10s %10s %10s %10s %12s %12s%n", "Pool", "pedidos", "acertos", 
+            "thread", "faltas", "descartes", "retido MB", "pico MB");
+        for (Map.Entry<Phase, BufferPool.Stats> entry : phasePool.entrySet()) {
+            BufferPool.Stats p = entry.getValue();
+            System.out.printf("%-16s %10d %9.1f%% %10d %10d %10d %12.1f %12.1f%n", entry.getKey().label, 
+                p.acquires, p.hitRate() * 100, p.threadCacheHits, p.misses, p.evictions, 
+                p.bytesHeld / 1048576.0, p.peakBytesHeld / 1048576.0);
+        }
+    }
+    
+    /**
+     * Compara cada resultado com pool ao resultado equivalente sem pool (mesmo
+     * armazenamento, tamanho, iterações e threads), quando os dois rodaram juntos, ex.:
+     * --backend=heap,pooled:heap.
+     */
+    static void printPoolComparison(List<Result> results) {
+        List<Result[]> pairs = new ArrayList<>();
+        for (Result pooled : results) {
+            if (pooled.metrics.pool == null) {
+                continue;
+            }
+            String storage = pooled.backend.substring(pooled.backend.indexOf(':') + 1);
+            for (Result plain : results) {
+                if (plain.metrics.pool == null && plain.backend.equals(storage) 
+                        && plain.sizeMb == pooled.sizeMb && plain.iterations == pooled.iterations 
+                        && plain.threads == pooled.threads 
+                        && (plain.fanOut == null) == (pooled.fanOut == null)
+                        && (plain.fanOut == null || plain.fanOut.kind == pooled.fanOut.kind)) {
+                    pairs.add(new Result[] {plain, pooled});
+                    break;
+                }
+            }
+        }
+        if (pairs.isEmpty()) {
+            return;
+        }
+        System.out.println("\nSem pool x com pool");
+        System.out.printf("%-38s %-14s %10s %12s %10s %7s %9s %10s %8s %10s%n", "Cenário", "backend", 
+            "alocação", "aloca+lib.", "req/s", "GCs", "GC ms", "minflt", "acertos", "pool MB");
+        for (Result[] pair : pairs) {
+            for (Result r : pair) {
+                long gcCount = 0;
+                long gcMillis = 0;
+                for (GcPauseRecorder.PauseStats stats : r.metrics.gcPauses.values()) {
+                    gcCount += stats.count;
+                    gcMillis += stats.totalMillis;
+                }
+                BufferPool.Stats p = r.metrics.pool;
+                System.out.printf("%-38s %-14s %10s %12s %10s %7d %9d %10s %8s %10s%n", r.scenarioId, r.backend,
+                    formatSeconds(r.metrics.allocationSeconds), formatSeconds(r.metrics.allocateAndFreeSeconds),
+                    r.fanOut != null ? String.format("%.0f", r.fanOut.requestsPerSecond()) : "-",
+                    gcCount, gcMillis, r.metrics.pageFaultsMinor != null ? r.metrics.pageFaultsMinor.toString() : "n/d",
+                    p != null ? String.format("%.1f%%", p.hitRate() * 100) : "-",
+                    p != null ? String.format("%.1f", p.peakBytesHeld / 1048576.0) : "-");
+            }
+        }
+    }
+    
+    private static void printPhaseDeltas(EnumMap<Phase, PhaseSampler.PhaseDelta> deltas) {
+        System.out.printf("%-16s %12s %8s %8s %10s %12s %12s%n", 
+            "Fase", "minflt", "majflt", "GCs", "GC (ms)", "RSS pico KB", "VmHWM KB");
+        for (Map.Entry<Phase, PhaseSampler.PhaseDelta> entry : deltas.entrySet()) {
+            PhaseSampler.PhaseDelta delta = entry.getValue();
+            System.out.printf("%-16s %12d %8d %8d %10d %12d %12d%n", entry.getKey().label,
+                delta.minorFaults, delta.majorFaults, delta.gcCount, delta.gcTimeMs, 
+                delta.rssPeakKb, delta.hwmKb);
+        }
+    }
+    
+    private static void printGcPauses(String collector, Map<String, GcPauseRecorder.PauseStats> pauses) {
+        System.out.printf("%-28s %-20s %8s %10s %10s %10s%n", 
+            "Coletor (" + collector + ")", "ação", "eventos", "total ms", "média ms", "máx ms");
+        for (Map.Entry<String, GcPauseRecorder.PauseStats> entry : pauses.entrySet()) {
+            GcPauseRecorder.PauseStats stats = entry.getValue();
+            System.out.printf("%-28s %-20s %8d %10d %10.2f %10d%n", entry.getKey(), stats.action,
+                stats.count, stats.totalMillis, stats.meanMillis(), stats.maxMillis);
+        }
+    }
+    
+    /** Percentis de latência em ns e os baldes não vazios como pares [limite superior, contagem]. */
+    private static void appendHistogram(StringBuilder json, LatencyHistogram.Snapshot h) {
+        json.append("{\"count\": ").append(h.count);
+        json.append(", \"mean\": ").append(jsonNumber(h.mean));
+        json.append(", \"p50\": ").append(h.percentile(50));
+        json.append(", \"p90\": ").append(h.percentile(90));
+        json.append(", \"p99\": ").append(h.percentile(99));
+        json.append(", \"p999\": ").append(h.percentile(99.9));
+        json.append(", \"max\": ").append(h.max);
+        json.append(", \"buckets\": [");
+        boolean first = true;
+        for (int i = 0; i < h.buckets.length; i++) {
+            if (h.buckets[i] > 0) {
+                json.append(first ? "" : ", ").append("[")
+                    .append(LatencyHistogram.bucketUpperBound(i)).append(", ").append(h.buckets[i]).append("]");
+                first = false;
+            }
+        }
+        json.append("]}");
+    }
+    
+    /** Safepoints em ns: contagem, total, percentis da pausa e do time-to-safepoint e os mais longos. */
+    private static void appendSafepoints(StringBuilder json, SafepointRecorder.Stats s) {
+        json.append("{\"count\": ").append(s.count);
+        json.append(", \"totalNanos\": ").append(s.totalNanos);
+        json.append(", \"pauseP50\": ").append(s.pauses.percentile(50));
+        json.append(", \"pauseP99\": ").append(s.pauses.percentile(99));
+        json.append(", \"pauseMax\": ").append(s.pauses.max);
+        json.append(", \"ttspP50\": ").append(s.timeToSafepoint.percentile(50));
+        json.append(", \"ttspP99\": ").append(s.timeToSafepoint.percentile(99));
+        json.append(", \"ttspMax\": ").append(s.timeToSafepoint.max);
+        json.append(", \"longest\": [");
+        for (int i = 0; i < s.longest.size(); i++) {
+            SafepointRecorder.Safepoint safepoint = s.longest.get(i);
+            json.append(i > 0 ? ", " : "").append("{\"operation\": ").append(jsonString(safepoint.operation));
+            json.append(", \"pauseNanos\": ").append(safepoint.pauseNanos());
+            json.append(", \"ttspNanos\": ").append(safepoint.timeToSafepointNanos);
+            json.append(", \"startMs\": ").append(safepoint.startMillis);
+            json.append("}");
+        }
+        json.append("]}");
+    }
+    
+    private static void appendKnees(StringBuilder json, List<WorkingSetSweep.Knee> knees) {
+        json.append("[");
+        for (int k = 0; k < knees.size(); k++) {
+            WorkingSetSweep.Knee knee = knees.get(k);
+            json.append(k > 0 ? ", " : "").append("{\"boundaryBytes\": ").append(knee.boundaryBytes);
+            json.append(", \"before\": ").append(jsonNumber(knee.before));
+            json.append(", \"after\": ").append(jsonNumber(knee.after));
+            json.append(", \"cache\": ").append(knee.cacheLevel != null ? jsonString(knee.cacheLevel) : "null");
+            json.append("}");
+        }
+        json.append("]");
+    }
+    
+    private static void appendAccess(StringBuilder json, AccessPattern.Measurement m, double seconds, long faults) {
+        json.append("{\"seconds\": ").append(jsonNumber(seconds));
+        json.append(", \"nsPerAccess\": ").append(jsonNumber(m.nanosPerAccess(seconds)));
+        json.append(", \"gbps\": ").append(jsonNumber(m.gbps(seconds)));
+        json.append(", \"pageFaultsMinor\": ").append(faults >= 0 ? Long.toString(faults) : "null");
+        json.append("}");
+    }
+    
+    private static void appendPoolStats(StringBuilder json, BufferPool.Stats p) {
+        json.append("{\"acquires\": ").append(p.acquires);
+        json.append(", \"hitRate\": ").append(jsonNumber(p.hitRate()));
+        json.append(", \"threadCacheHits\": ").append(p.threadCacheHits);
+        json.append(", \"sharedHits\": ").append(p.sharedHits);
+        json.append(", \"misses\": ").append(p.misses);
+        json.append(", \"releases\": ").append(p.releases);
+        json.append(", \"evictions\": ").append(p.evictions);
+        json.append(", \"bytesAllocated\": ").append(p.bytesAllocated);
+        json.append(", \"bytesHeld\": ").append(p.bytesHeld);
+        json.append(", \"peakBytesHeld\": ").append(p.peakBytesHeld);
+        json.append("}");
+    }
+    
+    /** Objeto JSON com as pausas de cada coletor, na mesma linha. */
+    private static void appendGcPauses(StringBuilder json, Map<String, GcPauseRecorder.PauseStats> pauses) {
+        json.append("{");
+        int index = 0;
+        for (Map.Entry<String, GcPauseRecorder.PauseStats> entry : pauses.entrySet()) {
+            GcPauseRecorder.PauseStats stats = entry.getValue();
+            json.append(index++ > 0 ? ", " : "").append(jsonString(entry.getKey())).append(": {");
+            json.append("\"action\": ").append(jsonString(stats.action));
+            json.append(", \"count\": ").append(stats.count);
+            json.append(", \"totalMs\": ").append(stats.totalMillis);
+            json.append(", \"meanMs\": ").append(jsonNumber(stats.meanMillis()));
+            json.append(", \"maxMs\": ").append(stats.maxMillis);
+            json.append("}");
+        }
+        json.append("}");
+    }
+    
+    /** Objeto JSON de contadores nomeados, na mesma linha. */
+    private static void appendLongMap(StringBuilder json, Map<String, Long> values) {
+        json.append("{");
+        int index = 0;
+        for (Map.Entry<String, Long> entry : values.entrySet()) {
+            json.append(index++ > 0 ? ", " : "").append(jsonString(entry.getKey())).append(": ").append(entry.getValue());
+        }
+        json.append("}");
+    }
+    
+    /** Execução descartada de uma fase, usada no warmup. */
+    private static void measurePhase(Phase phase, BufferBackend backend, long sizeBytes, 
+                                     int iterations, int threads) {
+        if (threads > 0) {
+            ConcurrentPhaseRunner.run(phase, backend, sizeBytes, iterations, threads);
+        } else {
+            phase.measure(backend, sizeBytes, iterations);
+        }
+    }
+    
+    /** Trial com N threads cujo tempo é o mais próximo da mediana, usado no relatório de escala. */
+    private static ConcurrentPhaseRunner.PhaseRun closestRun(
+            ConcurrentPhaseRunner.PhaseRun[] runs, double median) {
+        ConcurrentPhaseRunner.PhaseRun closest = runs[0];
+        for (ConcurrentPhaseRunner.PhaseRun run : runs) {
+            if (Math.abs(run.slowestThreadSeconds() - median) 
+                    < Math.abs(closest.slowestThreadSeconds() - median)) {
+                closest = run;
+            }
+        }
+        return closest;
+    }
+    
+    /**
+     * Percentis do tempo por iteração, taxa de alocação e, com --safepoints, os
+     * safepoints de cada fase e os mais longos de cada uma.
+     */
+    private static void printIterationLatency(Metrics metrics) {
+        boolean safepoints = metrics.phaseSafepoints != null;
+        System.out.printf("%-16s %8s %10s %10s %10s %10s %12s%s%n", "Iteração (ms)", "n", "p50", "p90", "p99",
+            "máx", "alocação MB/s", safepoints ? String.format(" %11s %10s %12s", "safepoints", "máx ms",
+                "TTSP p99 µs") : "");
+        for (Map.Entry<Phase, LatencyHistogram.Snapshot> entry : metrics.iterationLatency.entrySet()) {
+            LatencyHistogram.Snapshot h = entry.getValue();
+            AllocationRate rate = metrics.allocation.get(entry.getKey());
+            String safepointColumns = "";
+            if (safepoints) {
+                SafepointRecorder.Stats stats = metrics.phaseSafepoints.get(entry.getKey());
+                safepointColumns = stats.count > 0
+                    ? String.format(" %11d %10.2f %12.1f", stats.count, stats.pauses.max / 1e6,
+                        stats.timeToSafepoint.percentile(99) / 1e3)
+                    : String.format(" %11d %10s %12s", 0, "-", "-");
+            }
+            System.out.printf("%-16s %8d %10.3f %10.3f %10.3f %10.3f %12s%s%n", entry.getKey().label, h.count,
+                h.percentile(50) / 1e6, h.percentile(90) / 1e6, h.percentile(99) / 1e6, h.max / 1e6,
+                rate != null ? String.format("%.1f", rate.mbPerSecond()) : "n/d", safepointColumns);
+        }
+        if (!safepoints) {
+            return;
+        }
+        for (Map.Entry<Phase, SafepointRecorder.Stats> entry : metrics.phaseSafepoints.entrySet()) {
+            for (SafepointRecorder.Safepoint safepoint : entry.getValue().longest) {
+                System.out.printf("  %-14s %-28s %8.2f ms (TTSP %.1f µs) aos %d ms%n", entry.getKey().label,
+                    safepoint.operation, safepoint.pauseNanos() / 1e6, safepoint.timeToSafepointNanos / 1e3,
+                    safepoint.startMillis);
+            }
+        }
+    }
+    
+    private static void printTrialStats(EnumMap<Phase, TrialStats> phaseStats) {
+        System.out.printf("%-16s %10s %10s %10s %10s %10s %23s%n", 
+            "Fase (s)", "mín", "mediana", "p90", "p99", "desvio", "IC 95% da média");
+        for (Map.Entry<Phase, TrialStats> entry : phaseStats.entrySet()) {
+            TrialStats stats = entry.getValue();
+            System.out.printf("%-16s %10.4f %10.4f %10.4f %10.4f %10.4f %11.4f..%-10.4f%n",
+                entry.getKey().label, stats.min, stats.median, stats.p90, stats.p99, 
+                stats.stddev, stats.ci95Low, stats.ci95High);
+        }
+    }
+    
+    /** Lê --threads=1,2,4,8,16; lista vazia mantém o modo de thread única original. */
+    public static List<Integer> parseThreadCounts(Map<String, String> cliArgs) {
+        List<Integer> counts = new ArrayList<>();
+        if (!cliArgs.containsKey("threads")) {
+            return counts;
+        }
+        for (String value : cliArgs.get("threads").split(",")) {
+            int count = Integer.parseInt(value.trim());
+            if (count < 1) {
+                throw new IllegalArgumentException("--threads precisa ser >= 1: " + value);
+            }
+            counts.add(count);
+        }
+        return counts;
+    }
+    
+    /** Roda o cenário para cada contagem de threads e calcula a eficiência de escala. */
+    public static List<Result> runThreadSweep(Scenario scenario, List<Integer> threadCounts, 
+                                              RunOptions options) {
+        List<Result> sweep = new ArrayList<>();
+        for (int threads : threadCounts) {
+            Scenario run = scenario;
+            if (threadCounts.size() > 1) {
+                run = scenario.copy(scenario.id + "-t" + threads, scenario.backend, scenario.chunkMb);
+            }
+            sweep.add(runScenario(run, options.withThreads(threads)));
+        }
+        
+        for (Phase phase : Phase.values()) {
+            ConcurrentPhaseRunner.PhaseRun[] runs = new ConcurrentPhaseRunner.PhaseRun[sweep.size()];
+            for (int i = 0; i < runs.length; i++) {
+                runs[i] = sweep.get(i).concurrency.get(phase);
+            }
+            ConcurrentPhaseRunner.computeEfficiency(runs);
+        }
+        
+        System.out.println("\nEscala de " + scenario.id + " (GB/s agregado, eficiência)");
+        System.out.printf("%-8s", "Threads");
+        for (Phase phase : Phase.values()) {
+            System.out.printf(" │ %-20s", phase.label);
+        }
+        System.out.println();
+        for (Result result : sweep) {
+            System.out.printf("%-8d", result.threads);
+            for (Phase phase : Phase.values()) {
+                ConcurrentPhaseRunner.PhaseRun run = result.concurrency.get(phase);
+                System.out.printf(" │ %-20s", Double.isNaN(run.aggregateGbps()) 
+                    ? "n/d" 
+                    : String.format("%8.2f  %6.1f%%", run.aggregateGbps(), run.scalingEfficiency * 100));
+            }
+            System.out.println();
+        }
+        return sweep;
+    }
+    
+    private static String formatSeconds(double seconds) {
+        return Double.isNaN(seconds) ? "n/d" : String.format("%.4f s", seconds);
+    }
+    
+    /** String JSON entre aspas; flags da JVM podem trazer caminhos com barras invertidas. */
+    static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                // Controles (ex.: \n num motivo de indisponibilidade) quebrariam o JSON e o histórico
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+    
+    /** JSON não aceita NaN; fases que não se aplicam ao backend viram null. */
+    private static String jsonNumber(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.valueOf(value);
     }
     
     public static void ensureReportDir() {
@@ -395,7 +1788,61 @@ public class MemoryTest {
         dir.mkdirs();
     }
     
-    public static void persistResults(List<Result> results, String customOutput) throws IOException {
+    /** Séries em formato colunar: um array por contador, alinhado com "tMs". */
+    private static void appendSamples(StringBuilder json, PhaseSampler sampler, long intervalMillis) {
+        EnumMap<Phase, PhaseSampler.PhaseSeries> series = sampler.series();
+        json.append("    \"samples\": {\n");
+        json.append("      \"intervalMs\": ").append(intervalMillis).append(",\n");
+        json.append("      \"dropped\": ").append(sampler.droppedSamples()).append(",\n");
+        json.append("      \"phases\": {\n");
+        int phaseIndex = 0;
+        for (Map.Entry<Phase, PhaseSampler.PhaseSeries> entry : series.entrySet()) {
+            PhaseSampler.PhaseSeries ps = entry.getValue();
+            json.append("        \"").append(entry.getKey().key).append("\": {\n");
+            json.append("          \"tMs\": [");
+            for (int i = ps.from; i < ps.to; i++) {
+                json.append(i > ps.from ? ", " : "").append(String.format(Locale.ROOT, "%.3f", sampler.relativeMillis(i, ps)));
+            }
+            json.append("],\n          \"minorFaults\": [");
+            for (int i = ps.from; i < ps.to; i++) {
+                json.append(i > ps.from ? ", " : "").append(sampler.minorFaults(i));
+            }
+            json.append("],\n          \"majorFaults\": [");
+            for (int i = ps.from; i < ps.to; i++) {
+                json.append(i > ps.from ? ", " : "").append(sampler.majorFaults(i));
+            }
+            json.append("],\n          \"rssKb\": [");
+            for (int i = ps.from; i < ps.to; i++) {
+                json.append(i > ps.from ? ", " : "").append(sampler.rssKb(i));
+            }
+            json.append("],\n          \"vmHwmKb\": [");
+            for (int i = ps.from; i < ps.to; i++) {
+                json.append(i > ps.from ? ", " : "").append(sampler.hwmKb(i));
+            }
+            json.append("],\n          \"gcCount\": [");
+            for (int i = ps.from; i < ps.to; i++) {
+                json.append(i > ps.from ? ", " : "").append(sampler.gcCount(i));
+            }
+            json.append("],\n          \"gcTimeMs\": [");
+            for (int i = ps.from; i < ps.to; i++) {
+                json.append(i > ps.from ? ", " : "").append(sampler.gcTimeMs(i));
+            }
+            json.append("]\n        }");
+            json.append(++phaseIndex < series.size() ? ",\n" : "\n");
+        }
+        json.append("      }\n");
+        json.append("    },\n");
+    }
+    
+    /** Grava o relatório em --output (relativo a reports/memory) ou num arquivo com timestamp. */
+    public static void writeReport(String json, String customOutput) throws IOException {
+        Path file = reportPath(customOutput);
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+        System.out.println("Resultados gravados em " + file);
+    }
+    
+    /** Arquivo do relatório: --output (relativo a REPORT_DIR) ou um nome com data e hora. */
+    static Path reportPath(String customOutput) {
         ensureReportDir();
         
         String fileName;
@@ -409,50 +1856,422 @@ public class MemoryTest {
                 .format(new Date());
             fileName = REPORT_DIR + File.separator + timestamp + "-memory-test.json";
         }
-        
+        return Paths.get(fileName);
+    }
+    
+    /**
+     * Objeto JSON de um resultado, indentado como no relatório. O relatório e o
+     * histórico de {@link ResultStore} (que o compacta numa linha) usam o mesmo texto.
+     */
+    static String resultJson(Result r) {
         // Construindo JSON manualmente (para produção, use Gson ou Jackson)
-        StringBuilder json = new StringBuilder("[\n");
-        for (int i = 0; i < results.size(); i++) {
-            Result r = results.get(i);
-            json.append("  {\n");
-            json.append("    \"scenarioId\": \"").append(r.scenarioId).append("\",\n");
-            json.append("    \"sizeMb\": ").append(r.sizeMb).append(",\n");
-            json.append("    \"iterations\": ").append(r.iterations).append(",\n");
-            json.append("    \"metrics\": {\n");
-            json.append("      \"allocationSeconds\": ").append(r.metrics.allocationSeconds).append(",\n");
-            json.append("      \"allocateAndFreeSeconds\": ").append(r.metrics.allocateAndFreeSeconds).append(",\n");
-            json.append("      \"writesSeconds\": ").append(r.metrics.writesSeconds).append(",\n");
-            json.append("      \"readsSeconds\": ").append(r.metrics.readsSeconds).append(",\n");
-            json.append("      \"pageFaultsMinor\": ").append(r.metrics.pageFaultsMinor).append(",\n");
-            json.append("      \"pageFaultsMajor\": ").append(r.metrics.pageFaultsMajor).append("\n");
+        StringBuilder json = new StringBuilder();
+        json.append("  {\n");
+        json.append("    \"scenarioId\": ").append(jsonString(r.scenarioId)).append(",\n");
+        json.append("    \"sizeMb\": ").append(r.sizeMb).append(",\n");
+        json.append("    \"iterations\": ").append(r.iterations).append(",\n");
+        json.append("    \"backend\": ").append(jsonString(r.backend)).append(",\n");
+        json.append("    \"metrics\": {\n");
+        json.append("      \"allocationSeconds\": ").append(jsonNumber(r.metrics.allocationSeconds)).append(",\n");
+        json.append("      \"allocateAndFreeSeconds\": ").append(jsonNumber(r.metrics.allocateAndFreeSeconds)).append(",\n");
+        json.append("      \"writesSeconds\": ").append(jsonNumber(r.metrics.writesSeconds)).append(",\n");
+        json.append("      \"readsSeconds\": ").append(jsonNumber(r.metrics.readsSeconds)).append(",\n");
+        json.append("      \"pageFaultsMinor\": ").append(r.metrics.pageFaultsMinor).append(",\n");
+        json.append("      \"pageFaultsMajor\": ").append(r.metrics.pageFaultsMajor);
+        if (r.trials > 1 || r.warmup > 0) {
+            json.append(",\n      \"phaseStats\": {\n");
+            int statsIndex = 0;
+            for (Map.Entry<Phase, TrialStats> entry : r.metrics.phaseStats.entrySet()) {
+                TrialStats st = entry.getValue();
+                json.append("        \"").append(entry.getKey().key).append("\": {");
+                json.append("\"trials\": ").append(st.count);
+                json.append(", \"min\": ").append(jsonNumber(st.min));
+                json.append(", \"median\": ").append(jsonNumber(st.median));
+                json.append(", \"p90\": ").append(jsonNumber(st.p90));
+                json.append(", \"p99\": ").append(jsonNumber(st.p99));
+                json.append(", \"max\": ").append(jsonNumber(st.max));
+                json.append(", \"mean\": ").append(jsonNumber(st.mean));
+                json.append(", \"stddev\": ").append(jsonNumber(st.stddev));
+                json.append(", \"ci95Low\": ").append(jsonNumber(st.ci95Low));
+                json.append(", \"ci95High\": ").append(jsonNumber(st.ci95High));
+                json.append("}");
+                json.append(++statsIndex < r.metrics.phaseStats.size() ? ",\n" : "\n");
+            }
+            json.append("      }");
+        }
+        if (r.metrics.iterationLatency != null) {
+            json.append(",\n      \"iterationLatency\": {\n");
+            int latencyIndex = 0;
+            for (Map.Entry<Phase, LatencyHistogram.Snapshot> entry : r.metrics.iterationLatency.entrySet()) {
+                json.append("        \"").append(entry.getKey().key).append("\": ");
+                appendHistogram(json, entry.getValue());
+                json.append(++latencyIndex < r.metrics.iterationLatency.size() ? ",\n" : "\n");
+            }
+            json.append("      }");
+        }
+        if (r.metrics.allocation != null && !r.metrics.allocation.isEmpty()) {
+            json.append(",\n      \"allocation\": {");
+            int allocationIndex = 0;
+            for (Map.Entry<Phase, AllocationRate> entry : r.metrics.allocation.entrySet()) {
+                json.append(allocationIndex++ > 0 ? ", " : "").append("\"").append(entry.getKey().key)
+                    .append("\": {\"bytes\": ").append(entry.getValue().bytes)
+                    .append(", \"mbPerSecond\": ").append(jsonNumber(entry.getValue().mbPerSecond())).append("}");
+            }
+            json.append("}");
+        }
+        if (r.metrics.safepoints != null) {
+            json.append(",\n      \"safepoints\": ");
+            appendSafepoints(json, r.metrics.safepoints);
+            json.append(",\n      \"phaseSafepoints\": {\n");
+            int safepointIndex = 0;
+            for (Map.Entry<Phase, SafepointRecorder.Stats> entry : r.metrics.phaseSafepoints.entrySet()) {
+                json.append("        \"").append(entry.getKey().key).append("\": ");
+                appendSafepoints(json, entry.getValue());
+                json.append(++safepointIndex < r.metrics.phaseSafepoints.size() ? ",\n" : "\n");
+            }
+            json.append("      }");
+        }
+        if (r.metrics.usage != null && r.metrics.usage.hasProcCounters()) {
+            UsageDelta u = r.metrics.usage;
+            json.append(",\n      \"proc\": {");
+            json.append("\"vmHwmKb\": ").append(u.vmHwmKb);
+            json.append(", \"pssKb\": ").append(u.pssKb);
+            json.append(", \"anonHugePagesKb\": ").append(u.anonHugePagesKb);
+            json.append(", \"thpFaultAlloc\": ").append(u.thpFaultAlloc);
+            json.append(", \"thpFaultFallback\": ").append(u.thpFaultFallback);
+            json.append(", \"thpCollapseAlloc\": ").append(u.thpCollapseAlloc);
+            json.append(", \"thpSplitPage\": ").append(u.thpSplitPage);
+            json.append(", \"compactStall\": ").append(u.compactStall);
+            json.append(", \"compactFail\": ").append(u.compactFail);
+            json.append(", \"compactSuccess\": ").append(u.compactSuccess);
+            json.append("}");
+        }
+        if (r.metrics.pool != null) {
+            json.append(",\n      \"pool\": ");
+            appendPoolStats(json, r.metrics.pool);
+        }
+        if (r.metrics.phasePool != null) {
+            json.append(",\n      \"phasePool\": {\n");
+            int poolIndex = 0;
+            for (Map.Entry<Phase, BufferPool.Stats> entry : r.metrics.phasePool.entrySet()) {
+                json.append("        \"").append(entry.getKey().key).append("\": ");
+                appendPoolStats(json, entry.getValue());
+                json.append(++poolIndex < r.metrics.phasePool.size() ? ",\n" : "\n");
+            }
+            json.append("      }");
+        }
+        if (r.metrics.processNumaNodeBytes != null) {
+            json.append(",\n      \"processNumaNodeBytes\": {");
+            int nodeIndex = 0;
+            for (Map.Entry<Integer, Long> node : r.metrics.processNumaNodeBytes.entrySet()) {
+                json.append(nodeIndex++ > 0 ? ", " : "").append("\"").append(node.getKey()).append("\": ")
+                    .append(node.getValue());
+            }
+            json.append("}");
+        }
+        if (r.metrics.pressure != null) {
+            PressureMode.Measurement pressure = r.metrics.pressure;
+            json.append(",\n      \"pressure\": {\"cell\": ").append(jsonString(pressure.cell))
+                .append(", \"mechanism\": ").append(jsonString(pressure.mechanism))
+                .append(", \"limitBytes\": ").append(pressure.limitBytes)
+                .append(", \"source\": ").append(jsonString(pressure.delta.source))
+                .append(",\n        \"counters\": ");
+            appendLongMap(json, pressure.delta.counters);
+            json.append(",\n        \"gauges\": ");
+            appendLongMap(json, pressure.delta.gauges);
+            json.append("}");
+        }
+        if (r.metrics.gcPauses != null) {
+            json.append(",\n      \"gcPauses\": ");
+            appendGcPauses(json, r.metrics.gcPauses);
+        }
+        if (r.metrics.phaseGcPauses != null) {
+            json.append(",\n      \"phaseGcPauses\": {\n");
+            int pauseIndex = 0;
+            for (Map.Entry<Phase, Map<String, GcPauseRecorder.PauseStats>> entry : r.metrics.phaseGcPauses.entrySet()) {
+                json.append("        \"").append(entry.getKey().key).append("\": ");
+                appendGcPauses(json, entry.getValue());
+                json.append(++pauseIndex < r.metrics.phaseGcPauses.size() ? ",\n" : "\n");
+            }
+            json.append("      }");
+        }
+        if (r.metrics.phaseDeltas != null) {
+            json.append(",\n      \"phaseDeltas\": {\n");
+            int deltaIndex = 0;
+            for (Map.Entry<Phase, PhaseSampler.PhaseDelta> entry : r.metrics.phaseDeltas.entrySet()) {
+                PhaseSampler.PhaseDelta d = entry.getValue();
+                json.append("        \"").append(entry.getKey().key).append("\": {");
+                json.append("\"seconds\": ").append(jsonNumber(d.seconds));
+                json.append(", \"pageFaultsMinor\": ").append(d.minorFaults);
+                json.append(", \"pageFaultsMajor\": ").append(d.majorFaults);
+                json.append(", \"gcCount\": ").append(d.gcCount);
+                json.append(", \"gcTimeMs\": ").append(d.gcTimeMs);
+                json.append(", \"rssStartKb\": ").append(d.rssStartKb);
+                json.append(", \"rssEndKb\": ").append(d.rssEndKb);
+                json.append(", \"rssPeakKb\": ").append(d.rssPeakKb);
+                json.append(", \"vmHwmKb\": ").append(d.hwmKb);
+                json.append("}");
+                json.append(++deltaIndex < r.metrics.phaseDeltas.size() ? ",\n" : "\n");
+            }
+            json.append("      }");
+        }
+        json.append("\n    },\n");
+        if (r.sampler != null) {
+            appendSamples(json, r.sampler, r.sampleMillis);
+        }
+        if (r.trials > 1 || r.warmup > 0) {
+            json.append("    \"warmup\": ").append(r.warmup).append(",\n");
+            json.append("    \"trials\": ").append(r.trials).append(",\n");
+        }
+        if (r.sweep != null) {
+            WorkingSetSweep.Sweep sweep = r.sweep;
+            json.append("    \"sweep\": {\n");
+            json.append("      \"minBytes\": ").append(sweep.range.minBytes).append(",\n");
+            json.append("      \"maxBytes\": ").append(sweep.range.maxBytes).append(",\n");
+            json.append("      \"stepsPerOctave\": ").append(sweep.stepsPerOctave).append(",\n");
+            json.append("      \"points\": [\n");
+            for (int p = 0; p < sweep.sizes.length; p++) {
+                json.append("        {\"bytes\": ").append(sweep.sizes[p]);
+                json.append(", \"latencyNs\": ").append(jsonNumber(sweep.latencyNanos[p]));
+                json.append(", \"pageLatencyNs\": ").append(jsonNumber(sweep.pageLatencyNanos[p]));
+                json.append(", \"gbps\": ").append(jsonNumber(sweep.gbps[p]));
+                json.append(p + 1 < sweep.sizes.length ? "},\n" : "}\n");
+            }
+            json.append("      ],\n");
+            json.append("      \"knees\": {\"latency\": ");
+            appendKnees(json, sweep.latencyKnees);
+            json.append(", \"pageLatency\": ");
+            appendKnees(json, sweep.pageLatencyKnees);
+            json.append(", \"bandwidth\": ");
+            appendKnees(json, sweep.bandwidthKnees);
+            json.append("},\n");
+            json.append("      \"caches\": [");
+            for (int c = 0; c < sweep.caches.size(); c++) {
+                WorkingSetSweep.CacheInfo cache = sweep.caches.get(c);
+                json.append(c > 0 ? ", " : "").append("{\"level\": ").append(cache.level);
+                json.append(", \"type\": ").append(jsonString(cache.type));
+                json.append(", \"sizeBytes\": ").append(cache.sizeBytes).append("}");
+            }
+            json.append("]\n    },\n");
+        }
+        if (r.access != null) {
+            json.append("    \"access\": [\n");
+            for (int a = 0; a < r.access.size(); a++) {
+                AccessPattern.Measurement m = r.access.get(a);
+                json.append("      {\"pattern\": ").append(jsonString(m.pattern.label()));
+                json.append(", \"bytesPerAccess\": ").append(AccessPattern.BYTES_PER_ACCESS);
+                json.append(", \"accessesPerPass\": ").append(m.accessesPerPass);
+                json.append(", \"passes\": ").append(m.passes);
+                json.append(", \"read\": ");
+                appendAccess(json, m, m.readSeconds, m.readFaultsMinor);
+                json.append(", \"write\": ");
+                appendAccess(json, m, m.writeSeconds, m.writeFaultsMinor);
+                json.append(a + 1 < r.access.size() ? "},\n" : "}\n");
+            }
+            json.append("    ],\n");
+        }
+        if (r.kernels != null) {
+            json.append("    \"kernels\": [\n");
+            for (int k = 0; k < r.kernels.size(); k++) {
+                Kernels.Measurement m = r.kernels.get(k);
+                json.append("      {\"kernel\": ").append(jsonString(m.kernel));
+                json.append(", \"available\": ").append(m.unavailableReason == null);
+                if (m.unavailableReason != null) {
+                    json.append(", \"reason\": ").append(jsonString(m.unavailableReason));
+                }
+                json.append(", \"bytesPerPass\": ").append(m.bytesPerPass);
+                json.append(", \"passes\": ").append(m.passes);
+                json.append(", \"readWarmupPasses\": ").append(m.readWarmupPasses);
+                json.append(", \"writeWarmupPasses\": ").append(m.writeWarmupPasses);
+                json.append(", \"readSeconds\": ").append(jsonNumber(m.readSeconds));
+                json.append(", \"readGbps\": ").append(jsonNumber(m.readGbps()));
+                json.append(", \"writeSeconds\": ").append(jsonNumber(m.writeSeconds));
+                json.append(", \"writeGbps\": ").append(jsonNumber(m.writeGbps()));
+                json.append(k + 1 < r.kernels.size() ? "},\n" : "}\n");
+            }
+            json.append("    ],\n");
+        }
+        if (r.fanOut != null) {
+            FanOutRunner.FanOutRun run = r.fanOut;
+            json.append("    \"fanout\": {\n");
+            json.append("      \"executor\": ").append(jsonString(run.kind.key)).append(",\n");
+            json.append("      \"requests\": ").append(run.requests).append(",\n");
+            json.append("      \"rounds\": ").append(run.rounds).append(",\n");
+            if (run.poolSize > 0) {
+                json.append("      \"poolSize\": ").append(run.poolSize).append(",\n");
+            }
+            json.append("      \"sizes\": ").append(jsonString(run.sizes.spec)).append(",\n");
+            json.append("      \"bytesAllocated\": ").append(run.bytesAllocated).append(",\n");
+            json.append("      \"wallSeconds\": ").append(jsonNumber(run.wallSeconds)).append(",\n");
+            json.append("      \"requestsPerSecond\": ").append(jsonNumber(run.requestsPerSecond())).append(",\n");
+            json.append("      \"latencyNanos\": ");
+            appendHistogram(json, run.latency);
+            json.append(",\n      \"serviceNanos\": ");
+            appendHistogram(json, run.service);
+            json.append("\n    },\n");
+        }
+        if (r.concurrency != null) {
+            json.append("    \"threads\": ").append(r.threads).append(",\n");
+            json.append("    \"concurrency\": {\n");
+            int phaseIndex = 0;
+            for (Map.Entry<Phase, ConcurrentPhaseRunner.PhaseRun> entry : r.concurrency.entrySet()) {
+                ConcurrentPhaseRunner.PhaseRun run = entry.getValue();
+                json.append("      \"").append(entry.getKey().key).append("\": {");
+                json.append("\"wallSeconds\": ").append(jsonNumber(run.wallSeconds));
+                json.append(", \"bytesPerThread\": ").append(run.bytesPerThread);
+                json.append(", \"aggregateGbps\": ").append(jsonNumber(run.aggregateGbps()));
+                json.append(", \"scalingEfficiency\": ").append(jsonNumber(run.scalingEfficiency));
+                json.append(", \"perThreadGbps\": [");
+                double[] perThread = run.perThreadGbps();
+                for (int t = 0; t < perThread.length; t++) {
+                    json.append(t > 0 ? ", " : "").append(jsonNumber(perThread[t]));
+                }
+                json.append("]}");
+                json.append(++phaseIndex < r.concurrency.size() ? ",\n" : "\n");
+            }
             json.append("    },\n");
-            json.append("    \"timestamp\": \"").append(r.timestamp).append("\",\n");
-            json.append("    \"javaVersion\": \"").append(r.javaVersion).append("\"\n");
-            json.append("  }");
-            if (i < results.size() - 1) {
-                json.append(",");
+        }
+        if (r.startup != null) {
+            StartupMode.Probe s = r.startup;
+            json.append("    \"startup\": {\"cell\": ").append(jsonString(s.cell));
+            json.append(", \"cds\": ").append(jsonString(s.cds));
+            json.append(", \"sharing\": ").append(s.sharing);
+            json.append(",\n      \"launchToMainMicros\": ").append(s.launchToMainMicros);
+            json.append(", \"uptimeAtMainMillis\": ").append(s.uptimeAtMainMillis);
+            json.append(", \"rssAtMainKb\": ").append(s.rssAtMainKb);
+            json.append(", \"minorFaultsAtMain\": ").append(s.minorFaultsAtMain);
+            json.append(", \"majorFaultsAtMain\": ").append(s.majorFaultsAtMain);
+            json.append(", \"classesAtMain\": ").append(s.classesAtMain);
+            json.append(",\n      \"launchToFirstScenarioMicros\": ").append(s.launchToFirstScenarioMicros);
+            json.append(", \"rssAfterFirstScenarioKb\": ").append(s.rssAfterFirstScenarioKb);
+            json.append(", \"minorFaultsAtFirstScenario\": ").append(s.minorFaultsAtFirstScenario);
+            json.append(", \"majorFaultsAtFirstScenario\": ").append(s.majorFaultsAtFirstScenario);
+            json.append(", \"classesAtFirstScenario\": ").append(s.classesAtFirstScenario);
+            json.append("},\n");
+        }
+        if (r.jvm != null) {
+            json.append("    \"jvm\": {\n");
+            if (r.jvm.variantName != null) {
+                json.append("      \"variant\": ").append(jsonString(r.jvm.variantName)).append(",\n");
+            }
+            if (r.jvm.numaPlacementSpec != null) {
+                String[] numa = r.jvm.numaPlacementSpec.split(":");
+                json.append("      \"numa\": {\"cpuNode\": ").append(numa[0]);
+                json.append(", \"memoryNode\": ").append(numa[1]);
+                json.append(", \"launcher\": ").append(jsonString(numa[2])).append("},\n");
+            }
+            json.append("      \"flags\": [");
+            for (int f = 0; f < r.jvm.flags.size(); f++) {
+                json.append(f > 0 ? ", " : "").append(jsonString(r.jvm.flags.get(f)));
+            }
+            json.append("],\n      \"options\": {");
+            int optionIndex = 0;
+            for (Map.Entry<String, String> option : r.jvm.options.entrySet()) {
+                json.append(optionIndex++ > 0 ? ", " : "")
+                    .append(jsonString(option.getKey())).append(": ").append(jsonString(option.getValue()));
+            }
+            json.append("},\n");
+            json.append("      \"collector\": ").append(jsonString(r.jvm.collector)).append(",\n");
+            json.append("      \"gcBeans\": [");
+            for (int g = 0; g < r.jvm.gcBeans.size(); g++) {
+                json.append(g > 0 ? ", " : "").append(jsonString(r.jvm.gcBeans.get(g)));
+            }
+            json.append("],\n");
+            json.append("      \"transparentHugePages\": ").append(jsonString(r.jvm.thpMode)).append(",\n");
+            json.append("      \"startupMillis\": ").append(r.jvm.startup).append("\n");
+            json.append("    },\n");
+        }
+        json.append("    \"timestamp\": ").append(jsonString(r.timestamp)).append(",\n");
+        json.append("    \"javaVersion\": ").append(jsonString(r.javaVersion)).append("\n");
+        json.append("  }");
+        return json.toString();
+    }
+    
+    /** Grava o relatório um resultado por vez, sem montar o array inteiro em memória. */
+    public static void persistResults(List<Result> results, String customOutput) throws IOException {
+        Path file = reportPath(customOutput);
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("[\n");
+            for (int i = 0; i < results.size(); i++) {
+                out.write(resultJson(results.get(i)));
+                out.write(i < results.size() - 1 ? ",\n" : "\n");
             }
-            json.append("\n");
+            out.write("]\n");
         }
-        json.append("]\n");
-        
-        Files.write(Paths.get(fileName), json.toString().getBytes());
-        System.out.println("Resultados gravados em " + fileName);
+        System.out.println("Resultados gravados em " + file);
     }
     
     public static void main(String[] args) {
+        // Antes de tudo, inclusive das MXBeans: o instante de chegada ao main de --startup
+        StartupMode.atMain(args);
+        JvmSettings.startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
         Map<String, String> cliArgs = parseCliArgs(args);
         System.out.println("cliArgs: " + cliArgs);
         
         try {
+            if (JvmMatrix.isRequested(cliArgs)) {
+                JvmMatrix.run(cliArgs);
+                return;
+            }
+            if (NumaMode.isRequested(cliArgs)) {
+                NumaMode.run(cliArgs);
+                return;
+            }
+            if (PressureMode.isRequested(cliArgs)) {
+                PressureMode.run(cliArgs);
+                return;
+            }
+            if (StartupMode.isRequested(cliArgs)) {
+                StartupMode.run(cliArgs);
+                return;
+            }
+            if (ResultStore.isQuery(cliArgs)) {
+                int code = ResultStore.runQuery(cliArgs);
+                if (code != 0) {
+                    System.exit(code);
+                }
+                return;
+            }
+            // JVM filha de --numa: CPU, nó de memória e lançador da célula
+            JvmSettings.numaPlacement = cliArgs.get("numa-placement");
             List<Scenario> scenarios = resolveScenarios(cliArgs);
+            if (cliArgs.containsKey("jvm-variant")) {
+                // JVM filha de --jvm-matrix: ids distintos por variante no relatório combinado
+                JvmSettings.variant = cliArgs.get("jvm-variant");
+                for (Scenario s : scenarios) {
+                    s.id = s.id + "-" + JvmSettings.variant;
+                }
+            }
+            List<Integer> threadCounts = parseThreadCounts(cliArgs);
+            RunOptions options = RunOptions.fromCli(cliArgs);
             List<Result> results = new ArrayList<>();
             
+            ResultStore store = ResultStore.open(cliArgs);
             for (Scenario scenario : scenarios) {
-                results.add(runScenario(scenario));
+                List<Result> scenarioResults = new ArrayList<>();
+                if (scenario.isFanOut()) {
+                    scenarioResults.addAll(runFanOut(scenario, options));
+                } else if (scenario.isSweep()) {
+                    scenarioResults.add(runSweep(scenario, options));
+                } else if (threadCounts.isEmpty()) {
+                    scenarioResults.add(runScenario(scenario, options));
+                } else {
+                    scenarioResults.addAll(runThreadSweep(scenario, threadCounts, options));
+                }
+                StartupMode.afterScenario(scenarioResults);
+                // No histórico assim que o cenário termina: uma execução interrompida guarda o que já mediu
+                if (store != null) {
+                    for (Result result : scenarioResults) {
+                        store.append(result);
+                    }
+                }
+                results.addAll(scenarioResults);
             }
             
+            printPoolComparison(results);
             persistResults(results, cliArgs.get("output"));
+            // A thread do stream do JFR não é daemon e seguraria a JVM
+            SafepointRecorder.shutdown();
         } catch (Exception e) {
             System.err.println("Erro: " + e.getMessage());
             System.exit(1);
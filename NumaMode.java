@@ -0,0 +1,367 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Modo --numa: roda os mesmos cenários em JVMs filhas presas a uma CPU e a um nó de
+ * memória escolhidos, com -XX:-UseNUMA e -XX:+UseNUMA, e compara acesso local
+ * (CPU e memória no mesmo nó) com remoto.
+ *
+ * O filho é lançado por {@code numactl --cpunodebind=C --membind=M} quando existe;
+ * sem numactl, {@code taskset -c} prende só as CPUs e a memória segue a política de
+ * primeiro toque do kernel, então apenas o posicionamento local é possível. Sem
+ * nenhum dos dois, ou numa máquina com um nó só, o modo degrada para uma única
+ * célula local por valor de UseNUMA. Cada filho grava no resultado onde as páginas do
+ * processo ficaram, por nó, lido de /proc/self/numa_maps.
+ */
+public final class NumaMode {
+    static final String DEFAULT_PLACEMENTS = "local,remote";
+    private static final String NODE_ROOT = "/sys/devices/system/node";
+    /** Opções do pai que não são repassadas aos filhos. */
+    private static final List<String> PARENT_ONLY = Arrays.asList("numa", "numa-jvm", "output");
+
+    private NumaMode() {
+    }
+
+    /** Um nó NUMA e as suas CPUs (lista no formato do kernel, ex.: "0-15,32-47"). */
+    static class Node {
+        final int id;
+        final String cpuList;
+
+        Node(int id, String cpuList) {
+            this.id = id;
+            this.cpuList = cpuList;
+        }
+    }
+
+    /** Uma JVM filha: CPU e memória escolhidas, o lançador e o valor de UseNUMA. */
+    static class Cell {
+        final String name;
+        final int cpuNode;
+        final int memoryNode;
+        final boolean useNuma;
+        final List<String> launcher;
+
+        Cell(String name, int cpuNode, int memoryNode, boolean useNuma, List<String> launcher) {
+            this.name = name;
+            this.cpuNode = cpuNode;
+            this.memoryNode = memoryNode;
+            this.useNuma = useNuma;
+            this.launcher = launcher;
+        }
+
+        boolean isLocal() {
+            return cpuNode == memoryNode;
+        }
+    }
+
+    static boolean isRequested(Map<String, String> cliArgs) {
+        return cliArgs.containsKey("numa");
+    }
+
+    /** Nós de /sys/devices/system/node; sem NUMA no kernel, um nó 0 com todas as CPUs. */
+    static List<Node> topology() {
+        Map<Integer, Node> nodes = new TreeMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(Paths.get(NODE_ROOT), "node[0-9]*")) {
+            for (Path entry : entries) {
+                int id = Integer.parseInt(entry.getFileName().toString().substring(4));
+                String cpus = new String(Files.readAllBytes(entry.resolve("cpulist")), StandardCharsets.US_ASCII).trim();
+                nodes.put(id, new Node(id, cpus));
+            }
+        } catch (IOException | RuntimeException e) {
+            nodes.clear();
+        }
+        if (nodes.isEmpty()) {
+            int cpus = Runtime.getRuntime().availableProcessors();
+            nodes.put(0, new Node(0, cpus > 1 ? "0-" + (cpus - 1) : "0"));
+        }
+        return new ArrayList<>(nodes.values());
+    }
+
+    /** Caminho de um executável no PATH, ou null. */
+    static String findExecutable(String name) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return null;
+        }
+        for (String directory : path.split(File.pathSeparator)) {
+            File candidate = new File(directory, name);
+            if (candidate.isFile() && candidate.canExecute()) {
+                return candidate.getPath();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Monta as células a partir de --numa (local, remote ou pares cpu:mem, ex.:
+     * 0:0,0:1) e --numa-jvm (off, on). Posicionamentos impossíveis nesta máquina são
+     * avisados e ficam de fora.
+     */
+    static List<Cell> parseCells(Map<String, String> cliArgs, List<Node> nodes) {
+        String numactl = findExecutable("numactl");
+        String taskset = numactl == null ? findExecutable("taskset") : null;
+        String spec = cliArgs.get("numa");
+        if (spec == null || spec.equals("true")) {
+            spec = DEFAULT_PLACEMENTS;
+        }
+
+        Node first = null;
+        for (Node node : nodes) {
+            if (first == null && !node.cpuList.isEmpty()) {
+                first = node;
+            }
+        }
+        if (first == null) {
+            throw new IllegalStateException("Nenhum nó NUMA com CPUs em " + NODE_ROOT);
+        }
+
+        List<int[]> placements = new ArrayList<>();
+        for (String entry : spec.split(",")) {
+            entry = entry.trim();
+            if (entry.equals("local")) {
+                placements.add(new int[] {first.id, first.id});
+            } else if (entry.equals("remote")) {
+                Node remote = null;
+                for (Node node : nodes) {
+                    if (remote == null && node.id != first.id) {
+                        remote = node;
+                    }
+                }
+                if (remote == null) {
+                    System.out.println("Aviso: apenas 1 nó NUMA nesta máquina; posicionamento remoto ignorado");
+                    continue;
+                }
+                placements.add(new int[] {first.id, remote.id});
+            } else if (entry.matches("\\d+:\\d+")) {
+                String[] parts = entry.split(":");
+                placements.add(new int[] {Integer.parseInt(parts[0]), Integer.parseInt(parts[1])});
+            } else {
+                throw new IllegalArgumentException("Valor desconhecido em --numa: " + entry
+                    + " (opções: local, remote ou cpu:mem, ex.: 0:1)");
+            }
+        }
+
+        List<Boolean> useNumaValues = new ArrayList<>();
+        for (String value : cliArgs.getOrDefault("numa-jvm", "off,on").split(",")) {
+            switch (value.trim()) {
+                case "off":
+                    useNumaValues.add(false);
+                    break;
+                case "on":
+                    useNumaValues.add(true);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Valor desconhecido em --numa-jvm: " + value
+                        + " (opções: off, on)");
+            }
+        }
+
+        List<Cell> cells = new ArrayList<>();
+        for (int[] placement : placements) {
+            Node cpuNode = null;
+            boolean memoryNodeExists = false;
+            for (Node node : nodes) {
+                if (node.id == placement[0]) {
+                    cpuNode = node;
+                }
+                memoryNodeExists |= node.id == placement[1];
+            }
+            if (cpuNode == null || cpuNode.cpuList.isEmpty() || !memoryNodeExists) {
+                System.out.println("Aviso: nó " + placement[0] + " ou " + placement[1]
+                    + " não existe (ou não tem CPUs); posicionamento " + placement[0] + ":" + placement[1] + " ignorado");
+                continue;
+            }
+            List<String> launcher = new ArrayList<>();
+            if (numactl != null) {
+                launcher.addAll(Arrays.asList(numactl,
+                    "--cpunodebind=" + placement[0], "--membind=" + placement[1]));
+            } else if (placement[0] != placement[1]) {
+                System.out.println("Aviso: numactl não encontrado; sem ele não há como prender a memória "
+                    + "noutro nó, posicionamento " + placement[0] + ":" + placement[1] + " ignorado");
+                continue;
+            } else if (taskset != null) {
+                launcher.addAll(Arrays.asList(taskset, "-c", cpuNode.cpuList));
+            }
+            String placementName = placement[0] == placement[1]
+                ? "local-n" + placement[0]
+                : "remote-c" + placement[0] + "-m" + placement[1];
+            for (boolean useNuma : useNumaValues) {
+                cells.add(new Cell(placementName + (useNuma ? "-usenuma" : ""),
+                    placement[0], placement[1], useNuma, launcher));
+            }
+        }
+        return cells;
+    }
+
+    /** Argumentos do filho: os do pai, menos as opções do modo, mais a célula. */
+    static List<String> childArgs(Map<String, String> cliArgs, Cell cell, Path output) {
+        List<String> args = new ArrayList<>();
+        for (Map.Entry<String, String> entry : cliArgs.entrySet()) {
+            if (!PARENT_ONLY.contains(entry.getKey())) {
+                args.add("--" + entry.getKey() + "=" + entry.getValue());
+            }
+        }
+        args.add("--jvm-variant=" + cell.name);
+        args.add("--numa-placement=" + cell.cpuNode + ":" + cell.memoryNode + ":"
+            + (cell.launcher.isEmpty() ? "none" : new File(cell.launcher.get(0)).getName()));
+        args.add("--output=" + output.toAbsolutePath());
+        return args;
+    }
+
+    /**
+     * Roda todas as células e grava o relatório combinado, como JvmMatrix. Células
+     * cuja JVM falha são avisadas e ficam fora do relatório.
+     */
+    static void run(Map<String, String> cliArgs) throws IOException {
+        List<Node> nodes = topology();
+        List<Cell> cells = parseCells(cliArgs, nodes);
+        if (cells.isEmpty()) {
+            throw new IOException("Nenhum posicionamento NUMA possível nesta máquina");
+        }
+        System.out.println("NUMA: " + nodes.size() + " nó(s), " + cells.size() + " JVMs filhas, lançador "
+            + (cells.get(0).launcher.isEmpty() ? "nenhum (sem numactl/taskset)" : cells.get(0).launcher.get(0)));
+
+        List<String> reports = new ArrayList<>();
+        List<Object> parsed = new ArrayList<>();
+        for (Cell cell : cells) {
+            List<String> flags = new ArrayList<>();
+            String xmx = ChildJvm.inheritedOption("-Xmx");
+            if (xmx != null) {
+                flags.add(xmx);
+            }
+            flags.add(cell.useNuma ? "-XX:+UseNUMA" : "-XX:-UseNUMA");
+            System.out.println("\n=== NUMA " + cell.name + ": CPU nó " + cell.cpuNode + ", memória nó "
+                + cell.memoryNode + ", " + String.join(" ", flags) + " ===");
+            Path output = Files.createTempFile("memtest-numa-", ".json");
+            try {
+                ChildJvm.Exit exit = ChildJvm.run(cell.launcher, flags, "MemoryTest", childArgs(cliArgs, cell, output));
+                if (exit.code != 0 || Files.size(output) == 0) {
+                    System.out.println("Aviso: JVM " + cell.name + " terminou com código " + exit.code
+                        + "; célula ignorada (sem permissão para o binding ou nó sem memória livre?)");
+                    continue;
+                }
+                String report = new String(Files.readAllBytes(output), StandardCharsets.UTF_8);
+                parsed.addAll((List<?>) JsonReader.parse(report));
+                reports.add(JvmMatrix.arrayBody(report));
+            } finally {
+                Files.deleteIfExists(output);
+            }
+        }
+        if (reports.isEmpty()) {
+            throw new IOException("Nenhuma JVM do modo NUMA terminou com sucesso");
+        }
+
+        printSummary(parsed);
+        MemoryTest.writeReport("[\n" + String.join(",\n", reports) + "\n]\n", cliArgs.get("output"));
+    }
+
+    /**
+     * Bytes residentes do processo por nó, somando os campos N&lt;nó&gt;=páginas de
+     * /proc/self/numa_maps multiplicados pelo kernelpagesize_kB de cada mapeamento.
+     * null fora do Linux ou sem NUMA no kernel.
+     */
+    static Map<Integer, Long> residentBytesPerNode() {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Paths.get("/proc/self/numa_maps"), StandardCharsets.ISO_8859_1);
+        } catch (IOException e) {
+            return null;
+        }
+        Map<Integer, Long> bytes = new TreeMap<>();
+        for (String line : lines) {
+            long pageBytes = 4096;
+            List<long[]> pages = new ArrayList<>();
+            for (String field : line.split(" ")) {
+                if (field.startsWith("kernelpagesize_kB=")) {
+                    pageBytes = Long.parseLong(field.substring(18)) * 1024;
+                } else if (field.length() > 3 && field.charAt(0) == 'N' && Character.isDigit(field.charAt(1))) {
+                    int equals = field.indexOf('=');
+                    if (equals > 0) {
+                        pages.add(new long[] {
+                            Integer.parseInt(field.substring(1, equals)), Long.parseLong(field.substring(equals + 1))
+                        });
+                    }
+                }
+            }
+            for (long[] node : pages) {
+                bytes.merge((int) node[0], node[1] * pageBytes, Long::sum);
+            }
+        }
+        return bytes;
+    }
+
+    private static void printSummary(List<Object> results) {
+        System.out.println("\nNUMA (tempos em s; MB residentes do processo por nó, de numa_maps logo após as fases)");
+        System.out.printf("%-44s %5s %5s %8s %9s %9s %9s  %s%n", "Cenário", "CPU", "mem", "UseNUMA",
+            "alocação", "escrita", "leitura", "MB por nó");
+        for (Object result : results) {
+            StringBuilder perNode = new StringBuilder();
+            Object nodes = JsonReader.path(result, "metrics", "processNumaNodeBytes");
+            if (nodes instanceof Map) {
+                for (Map.Entry<?, ?> entry : ((Map<?, ?>) nodes).entrySet()) {
+                    perNode.append(perNode.length() > 0 ? " " : "").append("N").append(entry.getKey()).append("=")
+                        .append(String.format("%.0f", ((Number) entry.getValue()).doubleValue() / 1048576));
+                }
+            }
+            System.out.printf("%-44s %5s %5s %8s %9s %9s %9s  %s%n",
+                JsonReader.path(result, "scenarioId"),
+                format(JsonReader.number(result, "jvm", "numa", "cpuNode"), "%.0f"),
+                format(JsonReader.number(result, "jvm", "numa", "memoryNode"), "%.0f"),
+                JsonReader.path(result, "jvm", "options", "UseNUMA"),
+                format(JsonReader.number(result, "metrics", "allocationSeconds"), "%.4f"),
+                format(JsonReader.number(result, "metrics", "writesSeconds"), "%.4f"),
+                format(JsonReader.number(result, "metrics", "readsSeconds"), "%.4f"),
+                perNode.length() > 0 ? perNode : "n/d");
+        }
+        printRemotePenalty(results);
+    }
+
+    /** Remoto / local da escrita e da leitura, por cenário de origem e valor de UseNUMA. */
+    private static void printRemotePenalty(List<Object> results) {
+        boolean header = false;
+        for (Object remote : results) {
+            double cpu = JsonReader.number(remote, "jvm", "numa", "cpuNode");
+            double memory = JsonReader.number(remote, "jvm", "numa", "memoryNode");
+            if (Double.isNaN(cpu) || cpu == memory) {
+                continue;
+            }
+            String variant = (String) JsonReader.path(remote, "jvm", "variant");
+            String id = (String) JsonReader.path(remote, "scenarioId");
+            String base = id.substring(0, id.length() - variant.length() - 1);
+            for (Object local : results) {
+                String localVariant = (String) JsonReader.path(local, "jvm", "variant");
+                if (JsonReader.number(local, "jvm", "numa", "memoryNode") != cpu
+                    || JsonReader.number(local, "jvm", "numa", "cpuNode") != cpu
+                    || !JsonReader.path(local, "scenarioId").equals(base + "-" + localVariant)
+                    || !String.valueOf(JsonReader.path(local, "jvm", "options", "UseNUMA"))
+                        .equals(String.valueOf(JsonReader.path(remote, "jvm", "options", "UseNUMA")))) {
+                    continue;
+                }
+                if (!header) {
+                    System.out.println("\nRemoto / local (tempo; > 1 = acesso remoto mais lento)");
+                    header = true;
+                }
+                System.out.printf("%-44s UseNUMA=%-5s escrita %6sx  leitura %6sx%n", id,
+                    JsonReader.path(remote, "jvm", "options", "UseNUMA"),
+                    format(JsonReader.number(remote, "metrics", "writesSeconds")
+                        / JsonReader.number(local, "metrics", "writesSeconds"), "%.2f"),
+                    format(JsonReader.number(remote, "metrics", "readsSeconds")
+                        / JsonReader.number(local, "metrics", "readsSeconds"), "%.2f"));
+            }
+        }
+    }
+
+    private static String format(double value, String pattern) {
+        return Double.isNaN(value) || value < 0 ? "n/d" : String.format(pattern, value);
+    }
+}
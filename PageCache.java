@@ -0,0 +1,63 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Descarte de arquivos do page cache do Linux, sem código nativo.
+ *
+ * A JVM não expõe posix_fadvise nem madvise, então usamos, nesta ordem:
+ * <ol>
+ *   <li>GNU dd com {@code oflag=nocache conv=notrunc,fdatasync count=0}, que grava as
+ *       páginas sujas e chama posix_fadvise(POSIX_FADV_DONTNEED) no arquivo inteiro;</li>
+ *   <li>{@code /proc/sys/vm/drop_caches}, quando o processo roda como root (afeta o
+ *       sistema inteiro, por isso fica como última opção).</li>
+ * </ol>
+ */
+public final class PageCache {
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private PageCache() {
+    }
+
+    /** Retorna true se algum dos mecanismos conseguiu descartar o arquivo. */
+    public static boolean evict(Path file) {
+        if (!System.getProperty("os.name").toLowerCase().contains("linux")) {
+            return false;
+        }
+        if (runQuietly("dd", "of=" + file.toAbsolutePath(), "oflag=nocache",
+                "conv=notrunc,fdatasync", "count=0", "status=none")) {
+            return true;
+        }
+        Path dropCaches = Paths.get("/proc/sys/vm/drop_caches");
+        if (Files.isWritable(dropCaches)) {
+            try {
+                runQuietly("sync");
+                Files.write(dropCaches, "1".getBytes(StandardCharsets.US_ASCII));
+                return true;
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private static boolean runQuietly(String... command) {
+        try {
+            Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                return false;
+            }
+            return process.exitValue() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
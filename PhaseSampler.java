@@ -0,0 +1,241 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Amostrador contínuo de page faults, RSS e GC em segundo plano.
+ *
+ * A cada intervalo lê /proc/self/stat (minflt, majflt), /proc/self/status (VmRSS,
+ * VmHWM) por um {@link ProcReader} próprio e os contadores dos GarbageCollectorMXBeans,
+ * e grava tudo em arrays primitivos pré-alocados. Depois da construção o caminho de
+ * amostragem não aloca, para não provocar os page faults e coletas que está medindo.
+ *
+ * As fases são marcadas por {@link #beginPhase} e {@link #endPhase}, que também tiram
+ * uma amostra na hora; os deltas por fase saem dessas duas amostras de fronteira. Com
+ * os arrays cheios as amostras periódicas são descartadas, mas as de fronteira vão para
+ * duas posições reservadas além da capacidade, então os deltas continuam corretos e só
+ * a série temporal fica truncada.
+ */
+public class PhaseSampler implements AutoCloseable {
+    private static final int SOURCES = ProcReader.STAT | ProcReader.STATUS;
+
+    /** Deltas de uma fase entre as amostras de início e fim. */
+    static class PhaseDelta {
+        long minorFaults;
+        long majorFaults;
+        long gcCount;
+        long gcTimeMs;
+        long rssStartKb;
+        long rssEndKb;
+        long rssPeakKb;
+        long hwmKb;
+        double seconds;
+    }
+
+    /** Série temporal de uma fase: índices [from, to) dos arrays de amostras. */
+    static class PhaseSeries {
+        int from;
+        int to;
+        /** Instante da amostra de início da fase, base de {@link #relativeMillis}. */
+        long startNanos;
+    }
+
+    /** Menor --sample-capacity aceito: as duas amostras de fronteira de uma fase. */
+    static final int MIN_CAPACITY = 2;
+
+    private final long intervalNanos;
+    /** Amostras periódicas e de fronteira; as duas posições seguintes são só de fronteira. */
+    private final int capacity;
+    private final ProcReader proc;
+    private final GarbageCollectorMXBean[] gcBeans;
+
+    private final long[] timeNanos;
+    private final long[] minorFaults;
+    private final long[] majorFaults;
+    private final long[] rssKb;
+    private final long[] hwmKb;
+    private final long[] gcCount;
+    private final long[] gcTimeMs;
+    private int count;
+    private long dropped;
+
+    private final EnumMap<MemoryTest.Phase, PhaseSeries> series = new EnumMap<>(MemoryTest.Phase.class);
+    private final EnumMap<MemoryTest.Phase, PhaseDelta> deltas = new EnumMap<>(MemoryTest.Phase.class);
+    private MemoryTest.Phase currentPhase;
+    private int phaseStartIndex = -1;
+    private final long originNanos;
+
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public PhaseSampler(long intervalMillis, int capacity) {
+        this.intervalNanos = Math.max(1, intervalMillis) * 1_000_000L;
+        this.proc = new ProcReader();
+        List<GarbageCollectorMXBean> beans = ManagementFactory.getGarbageCollectorMXBeans();
+        this.gcBeans = beans.toArray(new GarbageCollectorMXBean[0]);
+        if (capacity < MIN_CAPACITY) {
+            throw new IllegalArgumentException("Capacidade de amostras precisa ser pelo menos " + MIN_CAPACITY
+                + ": " + capacity);
+        }
+        this.capacity = capacity;
+        int slots = capacity + 2;
+        this.timeNanos = new long[slots];
+        this.minorFaults = new long[slots];
+        this.majorFaults = new long[slots];
+        this.rssKb = new long[slots];
+        this.hwmKb = new long[slots];
+        this.gcCount = new long[slots];
+        this.gcTimeMs = new long[slots];
+        this.originNanos = System.nanoTime();
+        this.thread = new Thread(this::loop, "memtest-sampler");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /** true quando /proc está disponível (Linux); fora dele só os contadores de GC são reais. */
+    public boolean hasProcFs() {
+        return proc.isAvailable();
+    }
+
+    private void loop() {
+        long next = System.nanoTime();
+        while (running) {
+            sample(-1);
+            next += intervalNanos;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else {
+                // Atrasou (ex.: pausa de GC): reancora em vez de disparar amostras em rajada
+                next = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Tira uma amostra e devolve o índice, ou -1 se não havia espaço. Com os arrays
+     * cheios, uma amostra de fronteira vai para {@code reserved} (capacity ou capacity + 1)
+     * em vez de ser descartada. Sincronizado porque as fronteiras de fase amostram na
+     * thread do teste.
+     */
+    private synchronized int sample(int reserved) {
+        int index = count < capacity ? count++ : reserved;
+        if (index < 0) {
+            dropped++;
+            return -1;
+        }
+        timeNanos[index] = System.nanoTime() - originNanos;
+        proc.capture(SOURCES);
+        minorFaults[index] = proc.minorFaults;
+        majorFaults[index] = proc.majorFaults;
+        rssKb[index] = proc.vmRssKb;
+        hwmKb[index] = proc.vmHwmKb;
+        long collections = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean bean : gcBeans) {
+            collections += Math.max(0, bean.getCollectionCount());
+            time += Math.max(0, bean.getCollectionTime());
+        }
+        gcCount[index] = collections;
+        gcTimeMs[index] = time;
+        return index;
+    }
+
+    public synchronized void beginPhase(MemoryTest.Phase phase) {
+        currentPhase = phase;
+        phaseStartIndex = sample(capacity);
+    }
+
+    public synchronized void endPhase() {
+        if (currentPhase == null) {
+            return;
+        }
+        int start = phaseStartIndex;
+        int end = sample(capacity + 1);
+        // Fronteiras nas posições reservadas ficam fora da série, que acaba onde os arrays encheram
+        PhaseSeries phaseSeries = new PhaseSeries();
+        phaseSeries.from = start < capacity ? start : capacity;
+        phaseSeries.to = end < capacity ? end + 1 : capacity;
+        phaseSeries.startNanos = timeNanos[start];
+        series.put(currentPhase, phaseSeries);
+
+        PhaseDelta delta = new PhaseDelta();
+        delta.minorFaults = difference(minorFaults, start, end);
+        delta.majorFaults = difference(majorFaults, start, end);
+        delta.gcCount = difference(gcCount, start, end);
+        delta.gcTimeMs = difference(gcTimeMs, start, end);
+        delta.rssStartKb = rssKb[start];
+        delta.rssEndKb = rssKb[end];
+        long peak = Math.max(rssKb[start], rssKb[end]);
+        for (int i = phaseSeries.from; i < phaseSeries.to; i++) {
+            peak = Math.max(peak, rssKb[i]);
+        }
+        delta.rssPeakKb = peak;
+        delta.hwmKb = hwmKb[end];
+        delta.seconds = (timeNanos[end] - timeNanos[start]) / 1e9;
+        deltas.put(currentPhase, delta);
+        currentPhase = null;
+    }
+
+    private static long difference(long[] values, int start, int end) {
+        if (values[start] < 0 || values[end] < 0) {
+            return -1;
+        }
+        return Math.max(0, values[end] - values[start]);
+    }
+
+    synchronized EnumMap<MemoryTest.Phase, PhaseDelta> deltas() {
+        return new EnumMap<>(deltas);
+    }
+
+    synchronized EnumMap<MemoryTest.Phase, PhaseSeries> series() {
+        return new EnumMap<>(series);
+    }
+
+    long droppedSamples() {
+        return dropped;
+    }
+
+    /** Tempo da amostra em milissegundos, relativo ao início da fase. */
+    double relativeMillis(int index, PhaseSeries phaseSeries) {
+        return (timeNanos[index] - phaseSeries.startNanos) / 1e6;
+    }
+
+    long minorFaults(int index) {
+        return minorFaults[index];
+    }
+
+    long majorFaults(int index) {
+        return majorFaults[index];
+    }
+
+    long rssKb(int index) {
+        return rssKb[index];
+    }
+
+    long hwmKb(int index) {
+        return hwmKb[index];
+    }
+
+    long gcCount(int index) {
+        return gcCount[index];
+    }
+
+    long gcTimeMs(int index) {
+        return gcTimeMs[index];
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        proc.close();
+    }
+}
@@ -0,0 +1,265 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Backend que recicla buffers por um {@link BufferPool} em vez de alocar e descartar.
+ *
+ * {@code allocate} tira um buffer do pool (ou aloca um novo, do tamanho da classe) e
+ * {@code close} o devolve; assim as mesmas fases de MemoryTest medem o ciclo
+ * alocar/usar/devolver de um serviço que reutiliza buffers. O buffer devolvido não é
+ * zerado, como em qualquer pool real.
+ *
+ * Especificação aceita em --backend: {@code pooled[:heap|direct[:maxMb]]}, onde maxMb
+ * limita os bytes ociosos retidos (padrão: 1/4 do heap máximo).
+ */
+public class PooledBackend implements BufferBackend {
+    private final BufferPool<?> pool;
+
+    private PooledBackend(BufferPool<?> pool) {
+        this.pool = pool;
+    }
+
+    /** Interpreta "pooled", "pooled:direct" ou "pooled:heap:512". */
+    static PooledBackend parse(String spec) {
+        String[] parts = spec.toLowerCase(Locale.ROOT).split(":");
+        String storage = parts.length > 1 ? parts[1] : "heap";
+        long maxBytes = parts.length > 2
+            ? Long.parseLong(parts[2]) * 1024 * 1024
+            : Runtime.getRuntime().maxMemory() / 4;
+        switch (storage) {
+            case "heap":
+                return new PooledBackend(new BufferPool<>(BufferPool.HEAP, maxBytes));
+            case "direct":
+                return new PooledBackend(new BufferPool<>(BufferPool.DIRECT, maxBytes));
+            default:
+                throw new IllegalArgumentException("Armazenamento do pool desconhecido: " + storage
+                    + " (opções: " + String.join(", ", Arrays.asList("heap", "direct")) + ")");
+        }
+    }
+
+    BufferPool<?> pool() {
+        return pool;
+    }
+
+    @Override
+    public String name() {
+        return "pooled:" + pool.storageName();
+    }
+
+    @Override
+    public boolean supports(long sizeBytes) {
+        return BufferPool.supports(sizeBytes);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public MemoryBuffer allocate(long sizeBytes) {
+        if (pool.storageName().equals("heap")) {
+            BufferPool<byte[]> heapPool = (BufferPool<byte[]>) pool;
+            return new HeapView(heapPool, heapPool.acquire(sizeBytes), (int) sizeBytes);
+        }
+        BufferPool<ByteBuffer> directPool = (BufferPool<ByteBuffer>) pool;
+        return new DirectView(directPool, directPool.acquire(sizeBytes), (int) sizeBytes);
+    }
+
+    /** Fim do cenário: devolve ao sistema tudo o que o pool ainda retém. */
+    @Override
+    public void release() {
+        pool.close();
+    }
+
+    /** Os primeiros {@code length} bytes de um byte[] do pool. */
+    static class HeapView implements MemoryBuffer {
+        private final BufferPool<byte[]> pool;
+        private byte[] data;
+        private final int length;
+
+        HeapView(BufferPool<byte[]> pool, byte[] data, int length) {
+            this.pool = pool;
+            this.data = data;
+            this.length = length;
+        }
+
+        @Override
+        public long size() {
+            return length;
+        }
+
+        @Override
+        public byte get(long index) {
+            return data[(int) index];
+        }
+
+        @Override
+        public void put(long index, byte value) {
+            data[(int) index] = value;
+        }
+
+        @Override
+        public void fill(byte value) {
+            Arrays.fill(data, 0, length, value);
+        }
+
+        @Override
+        public long sumStride(long stride) {
+            byte[] buffer = data;
+            int step = (int) stride;
+            long accumulator = 0;
+            for (int index = 0; index < length; index += step) {
+                accumulator += buffer[index];
+            }
+            return accumulator;
+        }
+
+        @Override
+        public long getLong(long offset) {
+            return (long) HeapBackend.LONGS.get(data, (int) offset);
+        }
+
+        @Override
+        public void putLong(long offset, long value) {
+            HeapBackend.LONGS.set(data, (int) offset, value);
+        }
+
+        @Override
+        public long sumLongs(long length, long stride) {
+            return HeapBackend.sumLongs(data, 0, (int) Math.min(length, this.length), (int) stride);
+        }
+
+        @Override
+        public void putLongs(long stride, long value) {
+            HeapBackend.putLongs(data, 0, length, (int) stride, value);
+        }
+
+        @Override
+        public long gatherLongs(long[] offsets, int count) {
+            return HeapBackend.gatherLongs(data, offsets, count);
+        }
+
+        @Override
+        public void scatterLongs(long[] offsets, int count, long value) {
+            HeapBackend.scatterLongs(data, offsets, count, value);
+        }
+
+        @Override
+        public long chase(long offset, long steps, boolean touch) {
+            return HeapBackend.chase(data, offset, steps, touch);
+        }
+
+        @Override
+        public long readWith(Kernels.Kernel kernel) {
+            return kernel.read(data, 0, length);
+        }
+
+        @Override
+        public void writeWith(Kernels.Kernel kernel, byte value) {
+            kernel.write(data, 0, length, value);
+        }
+
+        @Override
+        public void close() {
+            if (data != null) {
+                pool.release(data, length);
+                data = null;
+            }
+        }
+    }
+
+    /** Os primeiros {@code length} bytes de um ByteBuffer direto do pool. */
+    static class DirectView implements MemoryBuffer {
+        private final BufferPool<ByteBuffer> pool;
+        private ByteBuffer data;
+        private final int length;
+
+        DirectView(BufferPool<ByteBuffer> pool, ByteBuffer data, int length) {
+            this.pool = pool;
+            this.data = data;
+            this.length = length;
+        }
+
+        @Override
+        public long size() {
+            return length;
+        }
+
+        @Override
+        public byte get(long index) {
+            return data.get((int) index);
+        }
+
+        @Override
+        public void put(long index, byte value) {
+            data.put((int) index, value);
+        }
+
+        @Override
+        public void fill(byte value) {
+            DirectBackend.fill(data, length, value);
+        }
+
+        @Override
+        public long sumStride(long stride) {
+            ByteBuffer buffer = data;
+            int step = (int) stride;
+            long accumulator = 0;
+            for (int index = 0; index < length; index += step) {
+                accumulator += buffer.get(index);
+            }
+            return accumulator;
+        }
+
+        @Override
+        public long getLong(long offset) {
+            return data.getLong((int) offset);
+        }
+
+        @Override
+        public void putLong(long offset, long value) {
+            data.putLong((int) offset, value);
+        }
+
+        @Override
+        public long sumLongs(long length, long stride) {
+            return DirectBackend.sumLongs(data, 0, (int) Math.min(length, this.length), (int) stride);
+        }
+
+        @Override
+        public void putLongs(long stride, long value) {
+            DirectBackend.putLongs(data, 0, length, (int) stride, value);
+        }
+
+        @Override
+        public long gatherLongs(long[] offsets, int count) {
+            return DirectBackend.gatherLongs(data, offsets, count);
+        }
+
+        @Override
+        public void scatterLongs(long[] offsets, int count, long value) {
+            DirectBackend.scatterLongs(data, offsets, count, value);
+        }
+
+        @Override
+        public long chase(long offset, long steps, boolean touch) {
+            return DirectBackend.chase(data, offset, steps, touch);
+        }
+
+        @Override
+        public long readWith(Kernels.Kernel kernel) {
+            return kernel.read(data, 0, length);
+        }
+
+        @Override
+        public void writeWith(Kernels.Kernel kernel, byte value) {
+            kernel.write(data, 0, length, value);
+        }
+
+        @Override
+        public void close() {
+            if (data != null) {
+                pool.release(data, length);
+                data = null;
+            }
+        }
+    }
+}
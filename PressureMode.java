@@ -0,0 +1,675 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Modo --pressure: roda os cenários em JVMs filhas com menos memória do que o working
+ * set pede, para que apareçam page faults major, reclaim e stalls de PSI e dê para
+ * medir quanto a vazão cai conforme o limite aperta.
+ *
+ * Com cgroup v2 (controlador memory delegado ao cgroup do processo) o pai se move para
+ * uma folha própria, já que um cgroup não pode ter processos e controladores ao mesmo
+ * tempo; cada limite vira um cgroup irmão com {@code memory.max}, e a JVM filha entra
+ * nele antes do exec. Sem cgroup v2 utilizável, um processo irmão (um "balão") aloca e
+ * mantém tocada a memória disponível menos o limite, e o filho roda no que sobra. A
+ * primeira célula roda sem limite e serve de referência para a degradação.
+ *
+ * O filho registra em {@code metrics.pressure} os deltas de memory.stat e
+ * memory.pressure do próprio cgroup, ou de /proc/vmstat e /proc/pressure/memory no
+ * modo balão. Sem swap, só páginas de arquivo (backend mmap, código da JVM) podem ser
+ * despejadas e relidas; páginas anônimas acima do limite acabam em OOM kill, que o
+ * resumo mostra como célula morta.
+ */
+public final class PressureMode {
+    static final String DEFAULT_LIMITS = "1.5x,1x,0.75x,0.5x";
+    /** Memória da JVM além do buffer (heap de trabalho, metaspace, código) somada aos limites relativos. */
+    static final String DEFAULT_OVERHEAD = "256m";
+    private static final long MB = 1024L * 1024;
+    private static final long PAGE = 4096;
+    /** Opções do pai que não são repassadas aos filhos. */
+    private static final List<String> PARENT_ONLY =
+        Arrays.asList("pressure", "pressure-mode", "pressure-overhead", "output");
+    /** Contadores de memory.stat (cgroup) ou /proc/vmstat (sistema) registrados como delta. */
+    private static final String[][] COUNTERS = {
+        {"pgfault", "pgfault"},
+        {"pgmajfault", "pgmajfault"},
+        {"workingset_refault_anon", "workingset_refault_anon"},
+        {"workingset_refault_file", "workingset_refault_file"},
+        {"pgscan", "pgscan_kswapd", "pgscan_direct", "pgscan_khugepaged"},
+        {"pgsteal", "pgsteal_kswapd", "pgsteal_direct", "pgsteal_khugepaged"},
+        {"pswpin", "pswpin"},
+        {"pswpout", "pswpout"},
+    };
+
+    private PressureMode() {
+    }
+
+    /** Uma JVM filha: nome, limite em bytes (0 = sem limite) e como é imposto. */
+    static class Cell {
+        final String name;
+        final long limitBytes;
+
+        Cell(String name, long limitBytes) {
+            this.name = name;
+            this.limitBytes = limitBytes;
+        }
+    }
+
+    static boolean isRequested(Map<String, String> cliArgs) {
+        return cliArgs.containsKey("pressure");
+    }
+
+    /**
+     * Limites de --pressure: fatores do maior cenário (ex.: 0.75x, somado o overhead da
+     * JVM) ou tamanhos absolutos (ex.: 768m). Precedidos da célula de referência.
+     */
+    static List<Cell> parseCells(String spec, long workingSetBytes, long overheadBytes) {
+        List<Cell> cells = new ArrayList<>();
+        cells.add(new Cell("sem-limite", 0));
+        for (String entry : (spec == null || spec.equals("true") ? DEFAULT_LIMITS : spec).split(",")) {
+            entry = entry.trim().toLowerCase();
+            long limit = entry.endsWith("x")
+                ? overheadBytes + (long) (Double.parseDouble(entry.substring(0, entry.length() - 1)) * workingSetBytes)
+                : FanOutRunner.SizeDistribution.parseBytes(entry);
+            cells.add(new Cell("limite-" + (limit / MB) + "m", limit));
+        }
+        return cells;
+    }
+
+    // --- cgroup v2 ---
+
+    /** Ponto de montagem do cgroup2 em /proc/self/mountinfo, ou null. */
+    static Path cgroupMount() {
+        try {
+            return cgroupMount(Files.readAllLines(Paths.get("/proc/self/mountinfo"), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // Fora do Linux
+            return null;
+        }
+    }
+
+    /** Ponto de montagem do cgroup2 nas linhas de um mountinfo, ou null. */
+    static Path cgroupMount(List<String> mountinfo) {
+        for (String line : mountinfo) {
+            int separator = line.indexOf(" - ");
+            if (separator > 0 && line.substring(separator + 3).startsWith("cgroup2 ")) {
+                return Paths.get(line.split(" ")[4]);
+            }
+        }
+        return null;
+    }
+
+    /** Diretório do cgroup v2 deste processo (linha "0::" de /proc/self/cgroup), ou null. */
+    static Path ownCgroup() {
+        Path mount = cgroupMount();
+        if (mount == null) {
+            return null;
+        }
+        try {
+            String path = cgroupPath(Files.readAllLines(Paths.get("/proc/self/cgroup"), StandardCharsets.UTF_8));
+            return path == null ? null : mount.resolve(path);
+        } catch (IOException e) {
+            // Sem /proc
+            return null;
+        }
+    }
+
+    /** Caminho relativo ao ponto de montagem na linha "0::" de um /proc/<pid>/cgroup, ou null. */
+    static String cgroupPath(List<String> procCgroup) {
+        for (String line : procCgroup) {
+            if (line.startsWith("0::")) {
+                return line.substring(3).replaceFirst("^/", "");
+            }
+        }
+        return null;
+    }
+
+    /** Se a lista de cgroup.controllers ou cgroup.subtree_control contém o controlador. */
+    static boolean hasController(String controllers, String controller) {
+        return Arrays.asList(controllers.trim().split("\\s+")).contains(controller);
+    }
+
+    /**
+     * Se o pai precisa sair do próprio cgroup antes de habilitar memory nos filhos. Pela
+     * regra "no internal processes" do cgroup v2, um cgroup que não é a raiz não pode ter
+     * processos e controladores em cgroup.subtree_control ao mesmo tempo (EBUSY).
+     */
+    static boolean needsLeaf(boolean rootCgroup, String subtreeControl) {
+        return !rootCgroup && !hasController(subtreeControl, "memory");
+    }
+
+    /**
+     * Mecanismo de --pressure-mode (auto, cgroup ou balloon) dado o motivo de o cgroup
+     * não servir (null quando serve). Só "cgroup" explícito falha sem cgroup.
+     */
+    static String mechanism(String mode, String cgroupReason) throws IOException {
+        switch (mode) {
+            case "auto":
+                return cgroupReason == null ? "cgroup" : "balloon";
+            case "cgroup":
+                if (cgroupReason != null) {
+                    throw new IOException("cgroup v2 indisponível: " + cgroupReason);
+                }
+                return "cgroup";
+            case "balloon":
+                return "balloon";
+            default:
+                throw new IllegalArgumentException("Valor desconhecido em --pressure-mode: " + mode
+                    + " (opções: auto, cgroup, balloon)");
+        }
+    }
+
+    /**
+     * cgroup v2 preparado para as células: o cgroup do pai, com memory habilitado para os
+     * filhos, e a folha para onde o pai foi movido para liberá-lo.
+     */
+    static class Delegation {
+        final Path root;
+        /** Folha com o processo do pai, ou null se ele não precisou sair de {@link #root}. */
+        final Path leaf;
+        /** Se memory foi habilitado por este processo e deve ser desabilitado no fim. */
+        final boolean enabled;
+
+        Delegation(Path root, Path leaf, boolean enabled) {
+            this.root = root;
+            this.leaf = leaf;
+            this.enabled = enabled;
+        }
+
+        /**
+         * Move o pai para {@code <cgroup>/memtest-<pid>-pai}, habilita memory em
+         * cgroup.subtree_control e devolve a delegação. Falha com o motivo quando o
+         * cgroup v2 não serve; nesse caso desfaz o que tiver feito.
+         */
+        static Delegation create() throws IOException {
+            Path own = ownCgroup();
+            if (own == null) {
+                throw new IOException("cgroup v2 não montado");
+            }
+            if (!Files.exists(own.resolve("cgroup.controllers"))
+                || !hasController(read(own.resolve("cgroup.controllers")), "memory")) {
+                throw new IOException("controlador memory ausente em " + own + " (cgroup v1 ou não delegado)");
+            }
+            Path subtreeControl = own.resolve("cgroup.subtree_control");
+            Path leaf = null;
+            boolean enabled = false;
+            try {
+                if (needsLeaf(own.equals(cgroupMount()), read(subtreeControl))) {
+                    leaf = own.resolve("memtest-" + ProcessHandle.current().pid() + "-pai");
+                    Files.createDirectory(leaf);
+                    moveSelf(leaf);
+                }
+                if (!hasController(read(subtreeControl), "memory")) {
+                    Files.write(subtreeControl, "+memory".getBytes(StandardCharsets.US_ASCII));
+                    enabled = true;
+                }
+                return new Delegation(own, leaf, enabled);
+            } catch (IOException e) {
+                new Delegation(own, leaf, enabled).close();
+                throw new IOException("sem permissão para habilitar memory em " + subtreeControl + " (" + e.getMessage()
+                    + "; outro processo no mesmo cgroup?); rode num cgroup delegado, ex.: systemd-run --user --scope -p Delegate=yes");
+            }
+        }
+
+        /** Cgroup irmão da folha do pai com o limite da célula em memory.max. */
+        Path createCell(Cell cell) throws IOException {
+            Path dir = root.resolve("memtest-" + ProcessHandle.current().pid() + "-" + cell.name);
+            Files.createDirectory(dir);
+            Files.write(dir.resolve("memory.max"), Long.toString(cell.limitBytes).getBytes(StandardCharsets.US_ASCII));
+            return dir;
+        }
+
+        /** Desabilita memory, devolve o pai ao cgroup original e remove a folha. */
+        void close() {
+            try {
+                if (enabled) {
+                    Files.write(root.resolve("cgroup.subtree_control"), "-memory".getBytes(StandardCharsets.US_ASCII));
+                }
+                if (leaf != null) {
+                    moveSelf(root);
+                    Files.deleteIfExists(leaf);
+                }
+            } catch (IOException e) {
+                System.out.println("Aviso: não foi possível desfazer a delegação em " + root + " (" + e.getMessage() + ")");
+            }
+        }
+
+        private static void moveSelf(Path cgroup) throws IOException {
+            Files.write(cgroup.resolve("cgroup.procs"),
+                Long.toString(ProcessHandle.current().pid()).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /** sh que se move para o cgroup e faz exec do java, para a JVM nascer já limitada. */
+    private static List<String> cgroupLauncher(Path cgroup) {
+        return Arrays.asList("sh", "-c", "echo $$ > \"$1\" && shift && exec \"$@\"", "sh",
+            cgroup.resolve("cgroup.procs").toString());
+    }
+
+    // --- balão ---
+
+    /** MemAvailable de /proc/meminfo em bytes, ou -1. */
+    static long memAvailable() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/meminfo"), StandardCharsets.US_ASCII)) {
+                if (line.startsWith("MemAvailable:")) {
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                }
+            }
+        } catch (IOException e) {
+            // Fora do Linux
+        }
+        return -1;
+    }
+
+    /**
+     * Inicia o balão e espera ele avisar que a memória já foi tocada. Tenta protegê-lo do
+     * OOM killer com oom_score_adj -1000, o que exige CAP_SYS_RESOURCE; sem permissão só
+     * o filho medido fica mais exposto (ver {@link #oomTargetLauncher()}).
+     */
+    private static Process startBalloon(long bytes) throws IOException {
+        List<String> flags = Arrays.asList("-Xmx64m", "-XX:MaxDirectMemorySize=" + (bytes + 64 * MB));
+        Process balloon = ChildJvm.start(flags, "PressureMode", Arrays.asList("balloon", Long.toString(bytes)));
+        try {
+            Files.write(Paths.get("/proc/" + balloon.pid() + "/oom_score_adj"),
+                "-1000".getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            // Sem CAP_SYS_RESOURCE não dá para baixar o score de outro processo
+        }
+        BufferedReader out = new BufferedReader(new InputStreamReader(balloon.getInputStream(), StandardCharsets.UTF_8));
+        String line = out.readLine();
+        if (!"pronto".equals(line)) {
+            balloon.destroyForcibly();
+            throw new IOException("balão de " + bytes / MB + " MB não ficou pronto (morto pelo OOM killer?)");
+        }
+        return balloon;
+    }
+
+    /**
+     * sh que sobe o próprio oom_score_adj para 1000 e faz exec do java, para o OOM killer
+     * escolher a JVM medida e não o balão. Subir o score não exige privilégio.
+     */
+    private static List<String> oomTargetLauncher() {
+        return Arrays.asList("sh", "-c", "echo 1000 > /proc/self/oom_score_adj; exec \"$@\"", "sh");
+    }
+
+    /**
+     * Processo do balão: aloca {@code bytes} fora do heap, toca cada página e continua
+     * tocando a cada meio segundo para que o kernel não o escolha para reclaim, até o
+     * pai fechar o stdin.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2 || !args[0].equals("balloon")) {
+            System.err.println("uso: PressureMode balloon <bytes>");
+            System.exit(2);
+        }
+        long bytes = Long.parseLong(args[1]);
+        List<ByteBuffer> chunks = new ArrayList<>();
+        for (long allocated = 0; allocated < bytes; allocated += 64 * MB) {
+            ByteBuffer chunk = ByteBuffer.allocateDirect((int) Math.min(64 * MB, bytes - allocated));
+            touch(chunk, (byte) 1);
+            chunks.add(chunk);
+        }
+        System.out.println("pronto");
+        System.out.flush();
+        Thread toucher = new Thread(() -> {
+            byte round = 2;
+            while (!Thread.currentThread().isInterrupted()) {
+                for (ByteBuffer chunk : chunks) {
+                    touch(chunk, round);
+                }
+                round++;
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        toucher.setDaemon(true);
+        toucher.start();
+        while (System.in.read() != -1) {
+            // Espera o pai fechar o stdin (ou matar o processo)
+        }
+    }
+
+    private static void touch(ByteBuffer chunk, byte value) {
+        for (int index = 0; index < chunk.capacity(); index += PAGE) {
+            chunk.put(index, value);
+        }
+    }
+
+    // --- filho: contadores ---
+
+    /** Contadores de memória e PSI do cgroup do processo (ou do sistema) num instante. */
+    static class Snapshot {
+        final String source;
+        final Map<String, Long> counters = new LinkedHashMap<>();
+        final Map<String, Long> gauges = new LinkedHashMap<>();
+
+        Snapshot(String source) {
+            this.source = source;
+        }
+
+        /** memory.stat, memory.pressure e memory.events do cgroup v2; sem cgroup, /proc/vmstat e /proc/pressure/memory. */
+        static Snapshot capture() {
+            Path cgroup = ownCgroup();
+            boolean useCgroup = cgroup != null && Files.exists(cgroup.resolve("memory.stat"));
+            Snapshot snapshot = new Snapshot(useCgroup ? "cgroup:" + cgroup : "sistema");
+            Map<String, Long> stat = keyValues(useCgroup ? cgroup.resolve("memory.stat") : Paths.get("/proc/vmstat"));
+            for (String[] counter : COUNTERS) {
+                long sum = -1;
+                for (int i = 1; i < counter.length; i++) {
+                    // memory.stat já traz pgscan/pgsteal somados; /proc/vmstat separa por origem
+                    Long value = stat.get(useCgroup ? counter[0] : counter[i]);
+                    if (value != null) {
+                        sum = Math.max(sum, 0) + value;
+                    }
+                    if (useCgroup) {
+                        break;
+                    }
+                }
+                if (sum >= 0) {
+                    snapshot.counters.put(counter[0], sum);
+                }
+            }
+            psi(useCgroup ? cgroup.resolve("memory.pressure") : Paths.get("/proc/pressure/memory"), snapshot.counters);
+            if (useCgroup) {
+                Map<String, Long> events = keyValues(cgroup.resolve("memory.events"));
+                for (String event : new String[] {"high", "max", "oom", "oom_kill"}) {
+                    if (events.containsKey(event)) {
+                        snapshot.counters.put("events_" + event, events.get(event));
+                    }
+                }
+                for (String gauge : new String[] {"memory.current", "memory.peak", "memory.swap.current", "memory.max"}) {
+                    Long value = single(cgroup.resolve(gauge));
+                    if (value != null) {
+                        snapshot.gauges.put(gauge, value);
+                    }
+                }
+                for (String gauge : new String[] {"anon", "file"}) {
+                    if (stat.containsKey(gauge)) {
+                        snapshot.gauges.put(gauge, stat.get(gauge));
+                    }
+                }
+            } else {
+                long available = memAvailable();
+                if (available >= 0) {
+                    snapshot.gauges.put("MemAvailable", available);
+                }
+            }
+            return snapshot;
+        }
+
+        /** Deltas dos contadores desde {@code start}; as medidas instantâneas ficam com o valor final. */
+        Snapshot minus(Snapshot start) {
+            Snapshot delta = new Snapshot(source);
+            for (Map.Entry<String, Long> counter : counters.entrySet()) {
+                Long before = start.counters.get(counter.getKey());
+                if (before != null) {
+                    delta.counters.put(counter.getKey(), Math.max(0, counter.getValue() - before));
+                }
+            }
+            delta.gauges.putAll(gauges);
+            return delta;
+        }
+
+        private static Map<String, Long> keyValues(Path file) {
+            try {
+                return keyValues(Files.readAllLines(file, StandardCharsets.US_ASCII));
+            } catch (IOException e) {
+                // Arquivo ausente neste kernel
+                return new LinkedHashMap<>();
+            }
+        }
+
+        /** Linhas "chave valor" de memory.stat, memory.events e /proc/vmstat; o resto é ignorado. */
+        static Map<String, Long> keyValues(List<String> lines) {
+            Map<String, Long> values = new LinkedHashMap<>();
+            for (String line : lines) {
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length == 2 && parts[1].matches("\\d+")) {
+                    values.put(parts[0], Long.parseLong(parts[1]));
+                }
+            }
+            return values;
+        }
+
+        private static void psi(Path file, Map<String, Long> into) {
+            try {
+                psi(Files.readAllLines(file, StandardCharsets.US_ASCII), into);
+            } catch (IOException | RuntimeException e) {
+                // Kernel sem PSI (CONFIG_PSI ou psi=0)
+            }
+        }
+
+        /** Totais em µs das linhas "some" e "full" do PSI. */
+        static void psi(List<String> lines, Map<String, Long> into) {
+            for (String line : lines) {
+                int total = line.indexOf("total=");
+                if (total > 0) {
+                    into.put("psi_" + line.substring(0, line.indexOf(' ')) + "_us",
+                        Long.parseLong(line.substring(total + 6).trim()));
+                }
+            }
+        }
+
+        private static Long single(Path file) {
+            try {
+                String value = read(file);
+                return value.equals("max") ? Long.valueOf(-1) : Long.valueOf(value);
+            } catch (IOException | NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    /** Medidas de pressão de um cenário rodado por uma célula de --pressure. */
+    static class Measurement {
+        final String cell;
+        final String mechanism;
+        final long limitBytes;
+        final Snapshot delta;
+
+        Measurement(String cell, String mechanism, long limitBytes, Snapshot delta) {
+            this.cell = cell;
+            this.mechanism = mechanism;
+            this.limitBytes = limitBytes;
+            this.delta = delta;
+        }
+
+        /** Interpreta --pressure-cell=nome:mecanismo:limite, repassado pelo pai. */
+        static Measurement finish(String cellSpec, Snapshot start) {
+            String[] parts = cellSpec.split(":");
+            return new Measurement(parts[0], parts[1], Long.parseLong(parts[2]), Snapshot.capture().minus(start));
+        }
+    }
+
+    // --- pai ---
+
+    /** Argumentos do filho: os do pai, menos as opções do modo, mais a célula. */
+    static List<String> childArgs(Map<String, String> cliArgs, Cell cell, String mechanism, Path output) {
+        List<String> args = new ArrayList<>();
+        for (Map.Entry<String, String> entry : cliArgs.entrySet()) {
+            if (!PARENT_ONLY.contains(entry.getKey())) {
+                args.add("--" + entry.getKey() + "=" + entry.getValue());
+            }
+        }
+        args.add("--jvm-variant=" + cell.name);
+        args.add("--pressure-cell=" + cell.name + ":" + mechanism + ":" + cell.limitBytes);
+        args.add("--output=" + output.toAbsolutePath());
+        return args;
+    }
+
+    /** Roda a referência e cada limite, e grava o relatório combinado. */
+    static void run(Map<String, String> cliArgs) throws Exception {
+        long workingSet = 0;
+        for (MemoryTest.Scenario scenario : MemoryTest.resolveScenarios(cliArgs)) {
+            workingSet = Math.max(workingSet, scenario.sizeMb * MB);
+        }
+        long overhead = FanOutRunner.SizeDistribution.parseBytes(cliArgs.getOrDefault("pressure-overhead", DEFAULT_OVERHEAD));
+        List<Cell> cells = parseCells(cliArgs.get("pressure"), workingSet, overhead);
+
+        String mode = cliArgs.getOrDefault("pressure-mode", "auto");
+        Delegation delegation = null;
+        String cgroupReason = "balão pedido em --pressure-mode";
+        if (mode.equals("auto") || mode.equals("cgroup")) {
+            try {
+                delegation = Delegation.create();
+                cgroupReason = null;
+            } catch (IOException e) {
+                cgroupReason = e.getMessage();
+            }
+        }
+        String mechanism = mechanism(mode, cgroupReason);
+        System.out.println("Pressão de memória: maior cenário " + workingSet / MB + " MB, " + (cells.size() - 1)
+            + " limites, mecanismo " + mechanism + (cgroupReason != null ? " (" + cgroupReason + ")" : ""));
+
+        // O filho não pode herdar um heap padrão calculado do limite do cgroup (1/4 dele)
+        List<String> flags = new ArrayList<>();
+        String xmx = ChildJvm.inheritedOption("-Xmx");
+        flags.add(xmx != null ? xmx : "-Xmx" + Runtime.getRuntime().maxMemory());
+
+        List<String> reports = new ArrayList<>();
+        List<Object> parsed = new ArrayList<>();
+        List<String> failures = new ArrayList<>();
+        try {
+            for (Cell cell : cells) {
+                System.out.println("\n=== Pressão " + cell.name + (cell.limitBytes > 0
+                    ? ": limite " + cell.limitBytes / MB + " MB por " + mechanism : "") + " ===");
+                Path output = Files.createTempFile("memtest-pressure-", ".json");
+                Path cgroup = null;
+                Process balloon = null;
+                List<String> launcher = new ArrayList<>();
+                try {
+                    if (cell.limitBytes > 0 && mechanism.equals("cgroup")) {
+                        cgroup = delegation.createCell(cell);
+                        launcher = cgroupLauncher(cgroup);
+                    } else if (cell.limitBytes > 0) {
+                        long balloonBytes = memAvailable() - cell.limitBytes;
+                        if (balloonBytes < 64 * MB) {
+                            System.out.println("Aviso: limite acima da memória disponível; célula roda sem balão");
+                        } else {
+                            System.out.println("Balão de " + balloonBytes / MB + " MB (MemAvailable menos o limite)");
+                            balloon = startBalloon(balloonBytes);
+                            launcher = oomTargetLauncher();
+                        }
+                    }
+                    ChildJvm.Exit exit = ChildJvm.run(launcher, flags, "MemoryTest",
+                        childArgs(cliArgs, cell, cell.limitBytes > 0 ? mechanism : "nenhum", output));
+                    String events = cgroup != null ? cgroupEvents(cgroup) : "";
+                    if (balloon != null && !balloon.isAlive()) {
+                        // Sem o balão o filho rodou com mais memória do que o limite: a célula não vale
+                        failures.add(String.format("%-18s balão terminou durante a célula (código %d, OOM kill?); "
+                            + "resultado descartado", cell.name, balloon.exitValue()));
+                        continue;
+                    }
+                    if (exit.code != 0 || Files.size(output) == 0) {
+                        failures.add(String.format("%-18s JVM terminou com código %d%s%s", cell.name, exit.code,
+                            exit.code == 137 ? " (SIGKILL: OOM kill?)" : "", events));
+                        continue;
+                    }
+                    String report = new String(Files.readAllBytes(output), StandardCharsets.UTF_8);
+                    parsed.addAll((List<?>) JsonReader.parse(report));
+                    reports.add(JvmMatrix.arrayBody(report));
+                } finally {
+                    if (balloon != null) {
+                        balloon.getOutputStream().close();
+                        if (!balloon.waitFor(10, TimeUnit.SECONDS)) {
+                            balloon.destroyForcibly();
+                        }
+                    }
+                    if (cgroup != null) {
+                        Files.deleteIfExists(cgroup);
+                    }
+                    Files.deleteIfExists(output);
+                }
+            }
+        } finally {
+            if (delegation != null) {
+                delegation.close();
+            }
+        }
+        if (reports.isEmpty()) {
+            throw new IOException("Nenhuma JVM do modo de pressão terminou com sucesso");
+        }
+
+        printSummary(parsed, failures);
+        MemoryTest.writeReport("[\n" + String.join(",\n", reports) + "\n]\n", cliArgs.get("output"));
+    }
+
+    /** memory.events e memory.peak de um cgroup cujo processo já terminou, para o resumo. */
+    private static String cgroupEvents(Path cgroup) {
+        Map<String, Long> events = Snapshot.keyValues(cgroup.resolve("memory.events"));
+        Long peak = Snapshot.single(cgroup.resolve("memory.peak"));
+        return "; oom_kill=" + events.getOrDefault("oom_kill", -1L) + " max=" + events.getOrDefault("max", -1L)
+            + (peak != null ? " pico=" + peak / MB + " MB" : "");
+    }
+
+    private static void printSummary(List<Object> results, List<String> failures) {
+        Map<String, Object> reference = new LinkedHashMap<>();
+        for (Object result : results) {
+            if ("sem-limite".equals(JsonReader.path(result, "metrics", "pressure", "cell"))) {
+                reference.put(baseId(result), result);
+            }
+        }
+        System.out.println("\nPressão de memória (degradação = tempo / tempo sem limite; PSI em ms)");
+        System.out.printf("%-40s %9s %9s %9s %7s %7s %9s %9s %9s %10s %10s%n", "Cenário", "limite MB", "escrita",
+            "leitura", "escr. x", "leit. x", "majflt", "PSI some", "PSI full", "refaults", "pgscan");
+        for (Object result : results) {
+            Object ref = reference.get(baseId(result));
+            double limit = JsonReader.number(result, "metrics", "pressure", "limitBytes");
+            System.out.printf("%-40s %9s %9s %9s %7s %7s %9s %9s %9s %10s %10s%n",
+                JsonReader.path(result, "scenarioId"),
+                limit > 0 ? String.format("%.0f", limit / MB) : "-",
+                format(JsonReader.number(result, "metrics", "writesSeconds"), "%.4f"),
+                format(JsonReader.number(result, "metrics", "readsSeconds"), "%.4f"),
+                format(ratio(result, ref, "writesSeconds"), "%.2f"),
+                format(ratio(result, ref, "readsSeconds"), "%.2f"),
+                format(JsonReader.number(result, "metrics", "pageFaultsMajor"), "%.0f"),
+                format(counter(result, "psi_some_us") / 1000, "%.1f"),
+                format(counter(result, "psi_full_us") / 1000, "%.1f"),
+                format(counter(result, "workingset_refault_anon") + counter(result, "workingset_refault_file"), "%.0f"),
+                format(counter(result, "pgscan"), "%.0f"));
+        }
+        for (String failure : failures) {
+            System.out.println("Morta: " + failure);
+        }
+    }
+
+    private static double ratio(Object result, Object reference, String key) {
+        return reference == null ? Double.NaN
+            : JsonReader.number(result, "metrics", key) / JsonReader.number(reference, "metrics", key);
+    }
+
+    private static double counter(Object result, String key) {
+        return JsonReader.number(result, "metrics", "pressure", "counters", key);
+    }
+
+    /** Id do cenário sem o sufixo da célula. */
+    private static String baseId(Object result) {
+        String id = String.valueOf(JsonReader.path(result, "scenarioId"));
+        Object variant = JsonReader.path(result, "jvm", "variant");
+        return variant != null && id.endsWith("-" + variant)
+            ? id.substring(0, id.length() - variant.toString().length() - 1) : id;
+    }
+
+    private static String format(double value, String pattern) {
+        return Double.isNaN(value) || value < 0 ? "n/d" : String.format(pattern, value);
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+    }
+}
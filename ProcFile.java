@@ -0,0 +1,172 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Arquivo do /proc mantido aberto e relido sempre no mesmo ByteBuffer.
+ *
+ * Os arquivos do /proc são gerados a cada leitura a partir do offset 0, então basta
+ * uma leitura posicional (pread) no offset 0 sobre o FileChannel já aberto. O buffer
+ * é direto, para que o canal não precise de cópia temporária, e os campos são
+ * interpretados byte a byte, sem String nem split. Depois do primeiro reload o
+ * caminho não aloca; o buffer só cresce se o arquivo não couber nele.
+ */
+final class ProcFile implements AutoCloseable {
+    private final FileChannel channel;
+    private ByteBuffer buffer;
+    private int length;
+
+    ProcFile(String path, int capacity) throws IOException {
+        this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    /** Abre o arquivo ou retorna null quando ele não existe (ex.: fora do Linux). */
+    static ProcFile openIfPresent(String path, int capacity) {
+        try {
+            return new ProcFile(path, capacity);
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /** Relê o arquivo inteiro; retorna false se a leitura falhar. */
+    boolean reload() {
+        try {
+            while (true) {
+                buffer.clear();
+                long position = 0;
+                int read;
+                while (buffer.hasRemaining() && (read = channel.read(buffer, position)) > 0) {
+                    position += read;
+                }
+                if (buffer.hasRemaining()) {
+                    length = buffer.position();
+                    return true;
+                }
+                // Não coube: dobra o buffer e lê de novo para ter um retrato consistente
+                DirectBackend.free(buffer);
+                buffer = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+            }
+        } catch (IOException e) {
+            length = 0;
+            return false;
+        }
+    }
+
+    /**
+     * Campo numérico de /proc/[pid]/stat, com a numeração de proc(5) (1 = pid).
+     * A contagem começa depois do último ')', porque o nome do processo (campo 2)
+     * pode conter espaços e parênteses.
+     */
+    long statField(int field) {
+        int position = -1;
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer.get(i) == ')') {
+                position = i + 1;
+                break;
+            }
+        }
+        if (position < 0) {
+            return -1;
+        }
+        // Depois do ')' vem o campo 3 (state)
+        return nthField(position, field - 3);
+    }
+
+    /** N-ésimo campo (a partir de 0) separado por espaços, como em /proc/self/statm. */
+    long field(int index) {
+        return nthField(0, index);
+    }
+
+    private long nthField(int position, int index) {
+        int current = -1;
+        while (position < length) {
+            while (position < length && isBlank(buffer.get(position))) {
+                position++;
+            }
+            if (position >= length) {
+                break;
+            }
+            current++;
+            if (current == index) {
+                return parseLong(position);
+            }
+            while (position < length && !isBlank(buffer.get(position))) {
+                position++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Valor numérico da linha que começa com {@code key} (ex.: "VmRSS:" em
+     * /proc/self/status ou "pgmajfault " em /proc/vmstat). Retorna -1 se não achar.
+     */
+    long valueAfterKey(byte[] key) {
+        int lineStart = 0;
+        while (lineStart < length) {
+            if (startsWith(lineStart, key)) {
+                int position = lineStart + key.length;
+                while (position < length && isBlank(buffer.get(position))) {
+                    position++;
+                }
+                return parseLong(position);
+            }
+            while (lineStart < length && buffer.get(lineStart) != '\n') {
+                lineStart++;
+            }
+            lineStart++;
+        }
+        return -1;
+    }
+
+    /** Converte a chave uma única vez, fora do caminho quente. */
+    static byte[] key(String key) {
+        return key.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\n';
+    }
+
+    private boolean startsWith(int offset, byte[] key) {
+        if (offset + key.length > length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long parseLong(int position) {
+        long value = 0;
+        boolean digits = false;
+        while (position < length) {
+            byte b = buffer.get(position);
+            if (b < '0' || b > '9') {
+                break;
+            }
+            value = value * 10 + (b - '0');
+            digits = true;
+            position++;
+        }
+        return digits ? value : -1;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nada a fazer em arquivos do /proc
+        }
+        DirectBackend.free(buffer);
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Leitor reutilizável dos contadores de memória do processo no Linux.
+ *
+ * Mantém abertos /proc/self/stat, /proc/self/statm, /proc/self/status,
+ * /proc/self/smaps_rollup e /proc/vmstat e, a cada {@link #capture(int)}, interpreta
+ * os arquivos pedidos direto para campos long. Uma captura não aloca nada no heap e
+ * custa poucos microssegundos, exceto smaps_rollup, que faz o kernel percorrer todas
+ * as VMAs do processo; por isso cada chamador escolhe as fontes que quer.
+ *
+ * Campos indisponíveis ficam em -1. Não é thread-safe: cada thread usa a sua instância
+ * ou sincroniza por fora.
+ */
+public class ProcReader implements AutoCloseable {
+    public static final int STAT = 1;
+    public static final int STATM = 1 << 1;
+    public static final int STATUS = 1 << 2;
+    public static final int SMAPS_ROLLUP = 1 << 3;
+    public static final int VMSTAT = 1 << 4;
+    public static final int ALL = STAT | STATM | STATUS | SMAPS_ROLLUP | VMSTAT;
+
+    private static final byte[] VM_RSS = ProcFile.key("VmRSS:");
+    private static final byte[] VM_HWM = ProcFile.key("VmHWM:");
+    private static final byte[] VM_SWAP = ProcFile.key("VmSwap:");
+    private static final byte[] VM_SIZE = ProcFile.key("VmSize:");
+    private static final byte[] ROLLUP_RSS = ProcFile.key("Rss:");
+    private static final byte[] ROLLUP_PSS = ProcFile.key("Pss:");
+    private static final byte[] ROLLUP_ANONYMOUS = ProcFile.key("Anonymous:");
+    private static final byte[] ROLLUP_ANON_HUGE = ProcFile.key("AnonHugePages:");
+    private static final byte[] ROLLUP_SWAP = ProcFile.key("Swap:");
+    // O espaço no fim evita casar com prefixos (ex.: "thp_fault_alloc" x "thp_fault_alloc_...")
+    private static final byte[] PGFAULT = ProcFile.key("pgfault ");
+    private static final byte[] PGMAJFAULT = ProcFile.key("pgmajfault ");
+    private static final byte[] THP_FAULT_ALLOC = ProcFile.key("thp_fault_alloc ");
+    private static final byte[] THP_FAULT_FALLBACK = ProcFile.key("thp_fault_fallback ");
+    private static final byte[] THP_COLLAPSE_ALLOC = ProcFile.key("thp_collapse_alloc ");
+    private static final byte[] THP_SPLIT_PAGE = ProcFile.key("thp_split_page ");
+    private static final byte[] COMPACT_STALL = ProcFile.key("compact_stall ");
+    private static final byte[] COMPACT_FAIL = ProcFile.key("compact_fail ");
+    private static final byte[] COMPACT_SUCCESS = ProcFile.key("compact_success ");
+
+    private final ProcFile stat;
+    private final ProcFile statm;
+    private final ProcFile status;
+    private final ProcFile smapsRollup;
+    private final ProcFile vmstat;
+    /** Tamanho da página do kernel, deduzido de VmSize / statm.size na abertura. */
+    public final long pageSize;
+
+    // /proc/self/stat
+    public long minorFaults = -1;
+    public long majorFaults = -1;
+    public long userTicks = -1;
+    public long systemTicks = -1;
+    public long threads = -1;
+    // /proc/self/statm (páginas)
+    public long sizePages = -1;
+    public long residentPages = -1;
+    public long sharedPages = -1;
+    // /proc/self/status (kB)
+    public long vmRssKb = -1;
+    public long vmHwmKb = -1;
+    public long vmSwapKb = -1;
+    // /proc/self/smaps_rollup (kB)
+    public long rollupRssKb = -1;
+    public long rollupPssKb = -1;
+    public long anonymousKb = -1;
+    public long anonHugePagesKb = -1;
+    public long rollupSwapKb = -1;
+    // /proc/vmstat (contadores do sistema inteiro)
+    public long systemPageFaults = -1;
+    public long systemMajorFaults = -1;
+    public long thpFaultAlloc = -1;
+    public long thpFaultFallback = -1;
+    public long thpCollapseAlloc = -1;
+    public long thpSplitPage = -1;
+    public long compactStall = -1;
+    public long compactFail = -1;
+    public long compactSuccess = -1;
+
+    public ProcReader() {
+        this.stat = ProcFile.openIfPresent("/proc/self/stat", 1024);
+        this.statm = ProcFile.openIfPresent("/proc/self/statm", 256);
+        this.status = ProcFile.openIfPresent("/proc/self/status", 4096);
+        this.smapsRollup = ProcFile.openIfPresent("/proc/self/smaps_rollup", 2048);
+        this.vmstat = ProcFile.openIfPresent("/proc/vmstat", 8192);
+        this.pageSize = detectPageSize();
+    }
+
+    /** true quando ao menos /proc/self/stat está disponível. */
+    public boolean isAvailable() {
+        return stat != null;
+    }
+
+    private long detectPageSize() {
+        if (statm != null && status != null && statm.reload() && status.reload()) {
+            long pages = statm.field(0);
+            long kb = status.valueAfterKey(VM_SIZE);
+            if (pages > 0 && kb > 0) {
+                return kb * 1024 / pages;
+            }
+        }
+        return 4096;
+    }
+
+    /** Relê as fontes indicadas pela máscara (ex.: {@code STAT | STATUS}). */
+    public void capture(int sources) {
+        if ((sources & STAT) != 0 && stat != null && stat.reload()) {
+            minorFaults = stat.statField(10);
+            majorFaults = stat.statField(12);
+            userTicks = stat.statField(14);
+            systemTicks = stat.statField(15);
+            threads = stat.statField(20);
+        }
+        if ((sources & STATM) != 0 && statm != null && statm.reload()) {
+            sizePages = statm.field(0);
+            residentPages = statm.field(1);
+            sharedPages = statm.field(2);
+        }
+        if ((sources & STATUS) != 0 && status != null && status.reload()) {
+            vmRssKb = status.valueAfterKey(VM_RSS);
+            vmHwmKb = status.valueAfterKey(VM_HWM);
+            vmSwapKb = status.valueAfterKey(VM_SWAP);
+        }
+        if ((sources & SMAPS_ROLLUP) != 0 && smapsRollup != null && smapsRollup.reload()) {
+            rollupRssKb = smapsRollup.valueAfterKey(ROLLUP_RSS);
+            rollupPssKb = smapsRollup.valueAfterKey(ROLLUP_PSS);
+            anonymousKb = smapsRollup.valueAfterKey(ROLLUP_ANONYMOUS);
+            anonHugePagesKb = smapsRollup.valueAfterKey(ROLLUP_ANON_HUGE);
+            rollupSwapKb = smapsRollup.valueAfterKey(ROLLUP_SWAP);
+        }
+        if ((sources & VMSTAT) != 0 && vmstat != null && vmstat.reload()) {
+            systemPageFaults = vmstat.valueAfterKey(PGFAULT);
+            systemMajorFaults = vmstat.valueAfterKey(PGMAJFAULT);
+            thpFaultAlloc = vmstat.valueAfterKey(THP_FAULT_ALLOC);
+            thpFaultFallback = vmstat.valueAfterKey(THP_FAULT_FALLBACK);
+            thpCollapseAlloc = vmstat.valueAfterKey(THP_COLLAPSE_ALLOC);
+            thpSplitPage = vmstat.valueAfterKey(THP_SPLIT_PAGE);
+            compactStall = vmstat.valueAfterKey(COMPACT_STALL);
+            compactFail = vmstat.valueAfterKey(COMPACT_FAIL);
+            compactSuccess = vmstat.valueAfterKey(COMPACT_SUCCESS);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (ProcFile file : new ProcFile[] {stat, statm, status, smapsRollup, vmstat}) {
+            if (file != null) {
+                file.close();
+            }
+        }
+    }
+}
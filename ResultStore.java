@@ -0,0 +1,612 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Histórico de resultados só de acréscimo e os comandos que o consultam.
+ *
+ * Cada cenário, ao terminar, vira uma linha JSON compacta em {@code history.jsonl}
+ * (o mesmo objeto do relatório, mais host e revisão do git). Ao lado fica
+ * {@code history.idx}, uma linha de texto separada por tabs por registro: offset e
+ * tamanho da linha no histórico, data, cenário, backend, threads, host, revisão, versão
+ * e flags da JVM. As consultas filtram pelo índice, que é lido em streaming, e só então
+ * leem os registros escolhidos por mapeamento de memória. Um índice ausente ou que não
+ * cobre o histórico inteiro (ex.: processo morto entre as duas escritas) é reconstruído
+ * lendo o histórico em streaming.
+ *
+ * {@code --history} lista as execuções e {@code --compare} compara, para cada cenário,
+ * backend, threads e host, as últimas execuções (--candidate) com a janela anterior
+ * (--baseline) por teste t de Welch unilateral, marcando regressões significativas.
+ */
+public final class ResultStore {
+    static final String FILE_NAME = "history.jsonl";
+    static final String INDEX_SUFFIX = ".idx";
+    static final int DEFAULT_BASELINE = 10;
+    static final int DEFAULT_CANDIDATE = 1;
+    static final double DEFAULT_ALPHA = 0.01;
+    static final double DEFAULT_MIN_CHANGE = 0.05;
+    /** Janela de mapeamento na leitura dos registros. */
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+    /** Rótulo e caminho no resultado de cada métrica comparada; em todas, maior é pior. */
+    static final String[][] METRICS = {
+        {"alocação s", "metrics", "allocationSeconds"},
+        {"aloca+libera s", "metrics", "allocateAndFreeSeconds"},
+        {"escrita s", "metrics", "writesSeconds"},
+        {"leitura s", "metrics", "readsSeconds"},
+        {"alocação p99 ns", "metrics", "iterationLatency", "allocation", "p99"},
+        {"aloca+libera p99 ns", "metrics", "iterationLatency", "allocateAndFree", "p99"},
+        {"escrita p99 ns", "metrics", "iterationLatency", "writes", "p99"},
+        {"leitura p99 ns", "metrics", "iterationLatency", "reads", "p99"},
+        {"minflt", "metrics", "pageFaultsMinor"},
+        {"VmHWM kB", "metrics", "proc", "vmHwmKb"},
+    };
+
+    private final Path store;
+    private final Path index;
+    private final String host;
+    private final String gitRevision;
+
+    private ResultStore(Path store, String host, String gitRevision) {
+        this.store = store;
+        this.index = indexPath(store);
+        this.host = host;
+        this.gitRevision = gitRevision;
+    }
+
+    /** Histórico de --store (padrão: history.jsonl no diretório de relatórios); null com --store=off. */
+    static ResultStore open(Map<String, String> cliArgs) {
+        String spec = cliArgs.get("store");
+        if ("off".equals(spec)) {
+            return null;
+        }
+        return new ResultStore(storePath(cliArgs), cliArgs.getOrDefault("host", hostName()), gitRevision());
+    }
+
+    static Path storePath(Map<String, String> cliArgs) {
+        String spec = cliArgs.get("store");
+        if (spec == null || spec.equals("true")) {
+            MemoryTest.ensureReportDir();
+            return Paths.get(MemoryTest.REPORT_DIR, FILE_NAME);
+        }
+        return Paths.get(spec);
+    }
+
+    private static Path indexPath(Path store) {
+        return store.resolveSibling(store.getFileName() + INDEX_SUFFIX);
+    }
+
+    static boolean isQuery(Map<String, String> cliArgs) {
+        return cliArgs.containsKey("history") || cliArgs.containsKey("compare");
+    }
+
+    /** Nome do host, ou HOSTNAME, ou "n/d". --host troca por um rótulo (ex.: tipo de máquina). */
+    static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            String env = System.getenv("HOSTNAME");
+            return env != null ? env : "n/d";
+        }
+    }
+
+    /**
+     * Commit do diretório de trabalho (ou de um pai) lido direto de .git, sem rodar o
+     * git; MEMTEST_GIT_REVISION tem precedência, para builds sem o .git.
+     */
+    static String gitRevision() {
+        String env = System.getenv("MEMTEST_GIT_REVISION");
+        if (env != null && !env.trim().isEmpty()) {
+            return env.trim();
+        }
+        for (Path dir = Paths.get("").toAbsolutePath(); dir != null; dir = dir.getParent()) {
+            Path git = dir.resolve(".git");
+            if (!Files.isDirectory(git)) {
+                continue;
+            }
+            try {
+                String head = new String(Files.readAllBytes(git.resolve("HEAD")), StandardCharsets.US_ASCII).trim();
+                if (!head.startsWith("ref: ")) {
+                    return head;
+                }
+                String ref = head.substring(5);
+                Path loose = git.resolve(ref);
+                if (Files.exists(loose)) {
+                    return new String(Files.readAllBytes(loose), StandardCharsets.US_ASCII).trim();
+                }
+                Path packed = git.resolve("packed-refs");
+                if (Files.exists(packed)) {
+                    for (String line : Files.readAllLines(packed, StandardCharsets.US_ASCII)) {
+                        if (line.endsWith(" " + ref)) {
+                            return line.substring(0, line.indexOf(' '));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // .git ilegível: segue sem revisão
+            }
+            return "n/d";
+        }
+        return "n/d";
+    }
+
+    /** Uma linha do índice. */
+    static class Entry {
+        long offset;
+        int length;
+        String timestamp;
+        String scenarioId;
+        String backend;
+        int threads;
+        String host;
+        String gitRevision;
+        String javaVersion;
+        String jvmFlags;
+
+        long end() {
+            return offset + length + 1;
+        }
+
+        /** Cenário, backend, threads e host: o que precisa ser igual para comparar execuções. */
+        String seriesKey() {
+            return scenarioId + " " + backend + (threads > 0 ? " t" + threads : "") + " @" + host;
+        }
+
+        String toLine() {
+            return offset + "\t" + length + "\t" + clean(timestamp) + "\t" + clean(scenarioId) + "\t"
+                + clean(backend) + "\t" + threads + "\t" + clean(host) + "\t" + clean(gitRevision) + "\t"
+                + clean(javaVersion) + "\t" + clean(jvmFlags);
+        }
+
+        static Entry parse(String line) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length < 10) {
+                return null;
+            }
+            Entry entry = new Entry();
+            entry.offset = Long.parseLong(fields[0]);
+            entry.length = Integer.parseInt(fields[1]);
+            entry.timestamp = fields[2];
+            entry.scenarioId = fields[3];
+            entry.backend = fields[4];
+            entry.threads = Integer.parseInt(fields[5]);
+            entry.host = fields[6];
+            entry.gitRevision = fields[7];
+            entry.javaVersion = fields[8];
+            entry.jvmFlags = fields[9];
+            return entry;
+        }
+
+        /** Entrada de um registro do histórico já interpretado. */
+        static Entry of(Object record, long offset, int length) {
+            Entry entry = new Entry();
+            entry.offset = offset;
+            entry.length = length;
+            entry.timestamp = text(record, "timestamp");
+            entry.scenarioId = text(record, "scenarioId");
+            entry.backend = text(record, "backend");
+            double threads = JsonReader.number(record, "threads");
+            entry.threads = Double.isNaN(threads) ? 0 : (int) threads;
+            entry.host = text(record, "host");
+            entry.gitRevision = text(record, "gitRevision");
+            entry.javaVersion = text(record, "javaVersion");
+            Object flags = JsonReader.path(record, "jvm", "flags");
+            List<String> joined = new ArrayList<>();
+            if (flags instanceof List) {
+                for (Object flag : (List<?>) flags) {
+                    joined.add(String.valueOf(flag));
+                }
+            }
+            entry.jvmFlags = String.join(" ", joined);
+            return entry;
+        }
+
+        private static String text(Object record, String key) {
+            Object value = JsonReader.path(record, key);
+            return value != null ? value.toString() : "n/d";
+        }
+
+        private static String clean(String value) {
+            return value == null ? "n/d" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+        }
+    }
+
+    /**
+     * Acrescenta o resultado ao histórico e ao índice sob um lock de arquivo, para que
+     * JVMs filhas ou execuções simultâneas no mesmo host não intercalem linhas.
+     */
+    void append(MemoryTest.Result result) throws IOException {
+        String compact = compact(MemoryTest.resultJson(result));
+        String record = "{\"host\": " + MemoryTest.jsonString(host)
+            + ", \"gitRevision\": " + MemoryTest.jsonString(gitRevision) + ", " + compact.substring(1);
+        byte[] bytes = (record + "\n").getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(store, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                long offset = channel.size();
+                boolean partialLine = offset > 0 && !endsWithNewline(channel);
+                if (partialLine) {
+                    // Linha truncada por uma escrita interrompida: fecha-a para não engolir este registro
+                    channel.write(ByteBuffer.wrap(new byte[] {'\n'}), offset++);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, offset + buffer.position());
+                }
+                channel.force(false);
+                if (partialLine || (offset > 0 && !Files.exists(index))) {
+                    rebuildIndex();
+                } else {
+                    Entry entry = Entry.of(JsonReader.parse(record), offset, bytes.length - 1);
+                    Files.write(index, (entry.toLine() + "\n").getBytes(StandardCharsets.UTF_8),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private static boolean endsWithNewline(FileChannel channel) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, channel.size() - 1);
+        return last.get(0) == '\n';
+    }
+
+    /** Remove os espaços fora de strings: o objeto indentado do relatório numa linha só. */
+    static String compact(String json) {
+        StringBuilder out = new StringBuilder(json.length());
+        boolean inString = false;
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (inString) {
+                out.append(c);
+                if (c == '\\') {
+                    out.append(json.charAt(++i));
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+                out.append(c);
+            } else if (c == ':' || c == ',') {
+                out.append(c).append(' ');
+            } else if (!Character.isWhitespace(c)) {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Entradas do índice que passam em {@code filter}, na ordem do histórico. Se o
+     * índice não cobre o histórico de ponta a ponta, é reconstruído antes.
+     */
+    List<Entry> entries(Predicate<Entry> filter) throws IOException {
+        if (!Files.exists(store)) {
+            return new ArrayList<>();
+        }
+        List<Entry> selected = new ArrayList<>();
+        if (Files.exists(index) && scanIndex(filter, selected)) {
+            return selected;
+        }
+        System.out.println("Índice de " + store + " ausente ou incompleto; reconstruindo");
+        try (FileChannel channel = FileChannel.open(store, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                rebuildIndex();
+            } finally {
+                lock.release();
+            }
+        }
+        selected.clear();
+        scanIndex(filter, selected);
+        return selected;
+    }
+
+    /** Lê o índice linha a linha; false se houver buraco entre registros ou faltar o fim. */
+    private boolean scanIndex(Predicate<Entry> filter, List<Entry> selected) throws IOException {
+        long expected = 0;
+        try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Entry entry = Entry.parse(line);
+                if (entry == null || entry.offset != expected) {
+                    return false;
+                }
+                expected = entry.end();
+                if (filter.test(entry)) {
+                    selected.add(entry);
+                }
+            }
+        }
+        long size = Files.size(store);
+        if (expected == size) {
+            return true;
+        }
+        // Sobra só uma linha truncada no fim (sem '\n'): o índice está completo
+        try (FileChannel channel = FileChannel.open(store, StandardOpenOption.READ)) {
+            return expected < size && !endsWithNewline(channel);
+        }
+    }
+
+    /** Refaz o índice lendo o histórico em streaming; linhas corrompidas ficam de fora. */
+    private void rebuildIndex() throws IOException {
+        Path temporary = index.resolveSibling(index.getFileName() + ".tmp");
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(store), 1 << 16);
+             Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long offset = 0;
+            long lineStart = 0;
+            int skipped = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                try {
+                    Object record = JsonReader.parse(new String(line.toByteArray(), StandardCharsets.UTF_8));
+                    out.write(Entry.of(record, lineStart, line.size()).toLine());
+                    out.write('\n');
+                } catch (RuntimeException e) {
+                    // Linha truncada por uma escrita interrompida: o índice pula o registro
+                    // com uma entrada de tamanho certo para manter os offsets contíguos
+                    Entry broken = new Entry();
+                    broken.offset = lineStart;
+                    broken.length = line.size();
+                    broken.scenarioId = "corrompido";
+                    out.write(broken.toLine());
+                    out.write('\n');
+                    skipped++;
+                }
+                line.reset();
+                lineStart = offset;
+            }
+            if (skipped > 0) {
+                System.out.println("Aviso: " + skipped + " linha(s) ilegíveis no histórico foram ignoradas");
+            }
+        }
+        Files.move(temporary, index, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Lê registros do histórico por janelas mapeadas; a ordem do índice mantém os mapeamentos sequenciais. */
+    static class RecordReader implements AutoCloseable {
+        private final FileChannel channel;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        RecordReader(Path store) throws IOException {
+            this.channel = FileChannel.open(store, StandardOpenOption.READ);
+        }
+
+        Object read(Entry entry) throws IOException {
+            if (window == null || entry.offset < windowStart
+                || entry.offset + entry.length > windowStart + window.capacity()) {
+                windowStart = entry.offset;
+                long size = Math.min(Math.max(MAP_WINDOW, entry.length), channel.size() - entry.offset);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+            }
+            byte[] bytes = new byte[entry.length];
+            window.get((int) (entry.offset - windowStart), bytes);
+            return JsonReader.parse(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /** Filtros comuns de --history e --compare: --scenarios, --backend, --host e --jvm (trecho da versão ou flags). */
+    static Predicate<Entry> filter(Map<String, String> cliArgs) {
+        List<String> scenarios = list(cliArgs.get("scenarios"));
+        List<String> backends = list(cliArgs.get("backend"));
+        List<String> hosts = list(cliArgs.get("host"));
+        String jvm = cliArgs.get("jvm");
+        return entry -> !entry.scenarioId.equals("corrompido")
+            && (scenarios == null || scenarios.contains(entry.scenarioId))
+            && (backends == null || backends.contains(entry.backend))
+            && (hosts == null || hosts.contains(entry.host))
+            && (jvm == null || entry.javaVersion.contains(jvm) || entry.jvmFlags.contains(jvm));
+    }
+
+    private static List<String> list(String spec) {
+        return spec == null ? null : Arrays.asList(spec.split(","));
+    }
+
+    /** --history ou --compare; devolve o código de saída (2 quando há regressões). */
+    static int runQuery(Map<String, String> cliArgs) throws IOException {
+        Path path = storePath(cliArgs);
+        ResultStore store = new ResultStore(path, null, null);
+        List<Entry> entries = store.entries(filter(cliArgs));
+        System.out.println("Histórico " + path + ": " + entries.size() + " execuções selecionadas");
+        if (cliArgs.containsKey("compare")) {
+            return store.compare(entries, cliArgs) > 0 ? 2 : 0;
+        }
+        store.printHistory(entries, Integer.parseInt(cliArgs.getOrDefault("last", "20")));
+        return 0;
+    }
+
+    private void printHistory(List<Entry> entries, int last) throws IOException {
+        System.out.printf("%-24s %-28s %-14s %-20s %-10s %-10s %10s %10s%n", "Data", "Cenário", "backend",
+            "host", "git", "java", "escrita s", "leitura s");
+        try (RecordReader reader = new RecordReader(store)) {
+            for (Entry entry : entries.subList(Math.max(0, entries.size() - last), entries.size())) {
+                Object record = reader.read(entry);
+                System.out.printf("%-24s %-28s %-14s %-20s %-10s %-10s %10s %10s%n", entry.timestamp,
+                    entry.scenarioId, entry.backend, entry.host,
+                    entry.gitRevision.substring(0, Math.min(10, entry.gitRevision.length())), entry.javaVersion,
+                    format(JsonReader.number(record, "metrics", "writesSeconds"), "%.4f"),
+                    format(JsonReader.number(record, "metrics", "readsSeconds"), "%.4f"));
+            }
+        }
+    }
+
+    /** Resultado do teste de uma métrica: médias, variação relativa e p unilateral (candidato pior). */
+    static class Comparison {
+        double baselineMean;
+        double candidateMean;
+        int baselineCount;
+        int candidateCount;
+        double change;
+        double pWorse;
+
+        /**
+         * Welch com duas ou mais execuções candidatas; com uma só, o teste da previsão
+         * (a nova execução contra a média e o desvio da janela, t com n-1 graus).
+         */
+        static Comparison of(double[] baseline, double[] candidate) {
+            Comparison c = new Comparison();
+            c.baselineCount = baseline.length;
+            c.candidateCount = candidate.length;
+            c.baselineMean = mean(baseline);
+            c.candidateMean = mean(candidate);
+            c.change = c.baselineMean != 0 ? (c.candidateMean - c.baselineMean) / c.baselineMean : Double.NaN;
+            double baselineVariance = variance(baseline, c.baselineMean);
+            double standardError;
+            double degreesOfFreedom;
+            if (candidate.length > 1) {
+                double a = baselineVariance / baseline.length;
+                double b = variance(candidate, c.candidateMean) / candidate.length;
+                standardError = Math.sqrt(a + b);
+                degreesOfFreedom = (a + b) * (a + b)
+                    / (a * a / (baseline.length - 1) + b * b / (candidate.length - 1));
+            } else {
+                standardError = Math.sqrt(baselineVariance * (1 + 1.0 / baseline.length));
+                degreesOfFreedom = baseline.length - 1;
+            }
+            double difference = c.candidateMean - c.baselineMean;
+            if (standardError == 0) {
+                // Métrica constante (ex.: page faults iguais em toda a janela)
+                c.pWorse = difference > 0 ? 0 : difference < 0 ? 1 : 0.5;
+            } else {
+                c.pWorse = TrialStats.studentUpperTail(difference / standardError, degreesOfFreedom);
+            }
+            return c;
+        }
+
+        private static double mean(double[] values) {
+            double sum = 0;
+            for (double value : values) {
+                sum += value;
+            }
+            return sum / values.length;
+        }
+
+        private static double variance(double[] values, double mean) {
+            double squares = 0;
+            for (double value : values) {
+                squares += (value - mean) * (value - mean);
+            }
+            return values.length > 1 ? squares / (values.length - 1) : 0;
+        }
+    }
+
+    /**
+     * Agrupa as execuções por série, compara as últimas com a janela anterior e imprime
+     * as métricas com diferença significativa. Devolve o número de regressões.
+     */
+    private int compare(List<Entry> entries, Map<String, String> cliArgs) throws IOException {
+        int baselineSize = Integer.parseInt(cliArgs.getOrDefault("baseline", String.valueOf(DEFAULT_BASELINE)));
+        int candidateSize = Integer.parseInt(cliArgs.getOrDefault("candidate", String.valueOf(DEFAULT_CANDIDATE)));
+        double alpha = Double.parseDouble(cliArgs.getOrDefault("alpha", String.valueOf(DEFAULT_ALPHA)));
+        double minChange = Double.parseDouble(cliArgs.getOrDefault("min-change",
+            String.valueOf(DEFAULT_MIN_CHANGE * 100))) / 100;
+        if (baselineSize < 2 || candidateSize < 1) {
+            throw new IllegalArgumentException("--baseline precisa ser >= 2 e --candidate >= 1");
+        }
+        boolean verbose = cliArgs.containsKey("verbose");
+
+        Map<String, List<Entry>> series = new LinkedHashMap<>();
+        for (Entry entry : entries) {
+            series.computeIfAbsent(entry.seriesKey(), key -> new ArrayList<>()).add(entry);
+        }
+        System.out.printf("Comparação: últimas %d execução(ões) x %d anteriores por série; "
+            + "regressão = p < %.3g e piora > %.0f%%%n", candidateSize, baselineSize, alpha, minChange * 100);
+        System.out.printf("%-48s %-16s %14s %14s %9s %9s  %s%n", "Série", "métrica", "base (n)",
+            "nova (n)", "variação", "p", "");
+
+        int regressions = 0;
+        int skipped = 0;
+        try (RecordReader reader = new RecordReader(store)) {
+            for (Map.Entry<String, List<Entry>> s : series.entrySet()) {
+                List<Entry> runs = s.getValue();
+                if (runs.size() < candidateSize + 2) {
+                    skipped++;
+                    continue;
+                }
+                List<Entry> candidate = runs.subList(runs.size() - candidateSize, runs.size());
+                List<Entry> baseline = runs.subList(Math.max(0, runs.size() - candidateSize - baselineSize),
+                    runs.size() - candidateSize);
+                List<Object> baselineRecords = new ArrayList<>();
+                for (Entry entry : baseline) {
+                    baselineRecords.add(reader.read(entry));
+                }
+                List<Object> candidateRecords = new ArrayList<>();
+                for (Entry entry : candidate) {
+                    candidateRecords.add(reader.read(entry));
+                }
+                String javaChange = baseline.get(baseline.size() - 1).javaVersion.equals(candidate.get(0).javaVersion)
+                    ? "" : "  (JDK " + baseline.get(baseline.size() - 1).javaVersion + " -> "
+                        + candidate.get(0).javaVersion + ")";
+                for (String[] metric : METRICS) {
+                    String[] path = Arrays.copyOfRange(metric, 1, metric.length);
+                    double[] before = values(baselineRecords, path);
+                    double[] after = values(candidateRecords, path);
+                    if (before.length < 2 || after.length < 1) {
+                        continue;
+                    }
+                    Comparison c = Comparison.of(before, after);
+                    boolean worse = c.pWorse < alpha && c.change > minChange;
+                    boolean better = 1 - c.pWorse < alpha && c.change < -minChange;
+                    if (!worse && !better && !verbose) {
+                        continue;
+                    }
+                    regressions += worse ? 1 : 0;
+                    System.out.printf("%-48s %-16s %14s %14s %8.1f%% %9.2g  %s%n", s.getKey(), metric[0],
+                        format(c.baselineMean, "%.4g") + " (" + c.baselineCount + ")",
+                        format(c.candidateMean, "%.4g") + " (" + c.candidateCount + ")",
+                        c.change * 100, c.pWorse, (worse ? "REGRESSÃO" : better ? "melhora" : "") + javaChange);
+                }
+            }
+        }
+        if (skipped > 0) {
+            System.out.println(skipped + " série(s) com menos de " + (candidateSize + 2)
+                + " execuções ficaram de fora");
+        }
+        System.out.println(regressions == 0 ? "Nenhuma regressão significativa" : regressions + " regressão(ões)");
+        return regressions;
+    }
+
+    private static double[] values(List<Object> records, String[] path) {
+        return records.stream()
+            .mapToDouble(record -> JsonReader.number(record, path))
+            .filter(value -> !Double.isNaN(value))
+            .toArray();
+    }
+
+    private static String format(double value, String pattern) {
+        return Double.isNaN(value) ? "n/d" : String.format(pattern, value);
+    }
+}
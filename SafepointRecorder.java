@@ -0,0 +1,194 @@
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Registra cada safepoint da JVM a partir de eventos JFR, lidos em processo com um
+ * {@link RecordingStream} (--safepoints).
+ *
+ * Um safepoint chega em quatro eventos com o mesmo safepointId: SafepointBegin (do
+ * pedido até todas as threads pararem e a limpeza acabar), SafepointStateSynchronization
+ * (só a espera pelas threads, o time-to-safepoint), ExecuteVMOperation (a operação,
+ * ex.: GenCollectForAllocation) e SafepointEnd. A pausa vai do início do primeiro ao
+ * fim do último. As pausas de GC já aparecem em {@link GcPauseRecorder}; aqui entram
+ * também as operações que não são coleta e o tempo que as threads levaram para parar,
+ * que fica de fora das notificações de GC.
+ *
+ * Os eventos chegam em lotes, a cada flush do JFR (cerca de 1 s);
+ * {@link #awaitFlushed(long)} espera um flush que começou depois da chamada.
+ */
+public final class SafepointRecorder {
+    private static final String[] EVENTS = {
+        "jdk.SafepointBegin", "jdk.SafepointStateSynchronization", "jdk.ExecuteVMOperation", "jdk.SafepointEnd"
+    };
+    /** Safepoints mais longos listados por fase. */
+    static final int TAIL = 3;
+    private static SafepointRecorder installed;
+    private static String unavailableReason;
+
+    /** Um safepoint montado a partir dos seus eventos. */
+    static class Safepoint {
+        final long id;
+        /** Início em ms desde a criação da JVM, na base de GcPauseRecorder.uptimeMillis. */
+        long startMillis;
+        long startNanos = -1;
+        long endNanos = -1;
+        long timeToSafepointNanos;
+        String operation = "?";
+
+        Safepoint(long id) {
+            this.id = id;
+        }
+
+        long pauseNanos() {
+            return endNanos - startNanos;
+        }
+
+        boolean complete() {
+            return startNanos >= 0 && endNanos >= 0;
+        }
+    }
+
+    /** Safepoints de uma janela de tempo. */
+    static class Stats {
+        final long count;
+        final long totalNanos;
+        final LatencyHistogram.Snapshot pauses;
+        final LatencyHistogram.Snapshot timeToSafepoint;
+        /** Os {@link #TAIL} mais longos, do maior para o menor. */
+        final List<Safepoint> longest;
+
+        Stats(long count, long totalNanos, LatencyHistogram.Snapshot pauses,
+              LatencyHistogram.Snapshot timeToSafepoint, List<Safepoint> longest) {
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.pauses = pauses;
+            this.timeToSafepoint = timeToSafepoint;
+            this.longest = longest;
+        }
+    }
+
+    private final Map<Long, Safepoint> safepoints = new LinkedHashMap<>();
+    private final RecordingStream stream;
+    private final long jvmStartEpochMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private long flushes;
+
+    private SafepointRecorder() {
+        stream = new RecordingStream();
+        for (String event : EVENTS) {
+            stream.enable(event).withThreshold(Duration.ZERO);
+        }
+        stream.onEvent(this::onEvent);
+        stream.onFlush(this::onFlush);
+        stream.startAsync();
+    }
+
+    /**
+     * Inicia o stream uma única vez por JVM. Devolve null, com um aviso na primeira
+     * vez, quando o JFR não está disponível (build sem JFR, -XX:-FlightRecorder).
+     */
+    static synchronized SafepointRecorder install() {
+        if (installed == null && unavailableReason == null) {
+            try {
+                installed = new SafepointRecorder();
+            } catch (RuntimeException | LinkageError e) {
+                unavailableReason = e.toString();
+                System.out.println("Aviso: JFR indisponível, safepoints não serão registrados (" + e + ")");
+            }
+        }
+        return installed;
+    }
+
+    /** Fecha o stream, se foi iniciado. */
+    static synchronized void shutdown() {
+        if (installed != null) {
+            installed.stream.close();
+            installed = null;
+        }
+    }
+
+    private void onEvent(RecordedEvent event) {
+        if (!event.hasField("safepointId")) {
+            return;
+        }
+        long id = event.getLong("safepointId");
+        Instant start = event.getStartTime();
+        synchronized (this) {
+            Safepoint safepoint = safepoints.computeIfAbsent(id, Safepoint::new);
+            switch (event.getEventType().getName()) {
+                case "jdk.SafepointBegin":
+                    safepoint.startNanos = nanos(start);
+                    safepoint.startMillis = start.toEpochMilli() - jvmStartEpochMillis;
+                    break;
+                case "jdk.SafepointStateSynchronization":
+                    safepoint.timeToSafepointNanos = event.getDuration().toNanos();
+                    break;
+                case "jdk.ExecuteVMOperation":
+                    safepoint.operation = event.getString("operation");
+                    break;
+                default:
+                    safepoint.endNanos = nanos(event.getEndTime());
+                    break;
+            }
+        }
+    }
+
+    private static long nanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    private synchronized void onFlush() {
+        flushes++;
+        notifyAll();
+    }
+
+    /**
+     * Espera dois flushes depois da chamada: o segundo começou depois dela, então traz
+     * todos os eventos já terminados. Retorna false se o tempo limite acabar antes.
+     */
+    synchronized boolean awaitFlushed(long timeoutMillis) {
+        long target = flushes + 2;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (flushes < target) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Safepoints completos cujo início está em [fromMillis, toMillis]. */
+    synchronized Stats summarize(long fromMillis, long toMillis) {
+        LatencyHistogram pauses = new LatencyHistogram();
+        LatencyHistogram timeToSafepoint = new LatencyHistogram();
+        List<Safepoint> longest = new ArrayList<>();
+        long count = 0;
+        long totalNanos = 0;
+        for (Safepoint safepoint : safepoints.values()) {
+            if (!safepoint.complete() || safepoint.startMillis < fromMillis || safepoint.startMillis > toMillis) {
+                continue;
+            }
+            count++;
+            totalNanos += safepoint.pauseNanos();
+            pauses.record(safepoint.pauseNanos());
+            timeToSafepoint.record(safepoint.timeToSafepointNanos);
+            longest.add(safepoint);
+        }
+        longest.sort((a, b) -> Long.compare(b.pauseNanos(), a.pauseNanos()));
+        return new Stats(count, totalNanos, pauses.snapshot(), timeToSafepoint.snapshot(),
+            new ArrayList<>(longest.subList(0, Math.min(TAIL, longest.size()))));
+    }
+}
@@ -0,0 +1,134 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+
+/**
+ * Backend com MemorySegment/Arena (java.lang.foreign, JDK 22+).
+ *
+ * O código precisa continuar compilando em JDKs antigos, então a API é acessada
+ * por MethodHandles resolvidos uma única vez. Apenas alocação, fill e close passam
+ * pelos handles; as leituras usam visões ByteBuffer de fatias do segmento, que a
+ * JIT trata como acesso direto à memória.
+ */
+public class SegmentBackend implements BufferBackend {
+    private static final int VIEW_BYTES = 1 << 30;
+    private static final MethodHandle OF_CONFINED;
+    private static final MethodHandle ALLOCATE;
+    private static final MethodHandle FILL;
+    private static final MethodHandle AS_SLICE;
+    private static final MethodHandle AS_BYTE_BUFFER;
+    private static final MethodHandle CLOSE;
+
+    static {
+        MethodHandle ofConfined = null;
+        MethodHandle allocate = null;
+        MethodHandle fill = null;
+        MethodHandle asSlice = null;
+        MethodHandle asByteBuffer = null;
+        MethodHandle close = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> arena = Class.forName("java.lang.foreign.Arena");
+            Class<?> segment = Class.forName("java.lang.foreign.MemorySegment");
+            ofConfined = lookup.findStatic(arena, "ofConfined", MethodType.methodType(arena));
+            allocate = lookup.findVirtual(arena, "allocate",
+                MethodType.methodType(segment, long.class, long.class));
+            fill = lookup.findVirtual(segment, "fill", MethodType.methodType(segment, byte.class));
+            asSlice = lookup.findVirtual(segment, "asSlice",
+                MethodType.methodType(segment, long.class, long.class));
+            asByteBuffer = lookup.findVirtual(segment, "asByteBuffer",
+                MethodType.methodType(ByteBuffer.class));
+            close = lookup.findVirtual(arena, "close", MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException | LinkageError e) {
+            ofConfined = null;
+        }
+        OF_CONFINED = ofConfined;
+        ALLOCATE = allocate;
+        FILL = fill;
+        AS_SLICE = asSlice;
+        AS_BYTE_BUFFER = asByteBuffer;
+        CLOSE = close;
+    }
+
+    /** true quando a JVM atual expõe java.lang.foreign. */
+    public static boolean isAvailable() {
+        return OF_CONFINED != null;
+    }
+
+    @Override
+    public String name() {
+        return "segment";
+    }
+
+    @Override
+    public boolean supports(long sizeBytes) {
+        return isAvailable() && sizeBytes > 0;
+    }
+
+    @Override
+    public MemoryBuffer allocate(long sizeBytes) {
+        if (!isAvailable()) {
+            throw new UnsupportedOperationException(
+                "Backend segment requer java.lang.foreign (JDK 22+); JVM atual: "
+                    + System.getProperty("java.version"));
+        }
+        Object arena = null;
+        try {
+            arena = OF_CONFINED.invoke();
+            Object segment = ALLOCATE.invoke(arena, sizeBytes, 4096L);
+            int viewCount = (int) ((sizeBytes + VIEW_BYTES - 1) / VIEW_BYTES);
+            ByteBuffer[] views = new ByteBuffer[viewCount];
+            for (int i = 0; i < viewCount; i++) {
+                long offset = (long) i * VIEW_BYTES;
+                Object slice = AS_SLICE.invoke(segment, offset, Math.min(VIEW_BYTES, sizeBytes - offset));
+                views[i] = (ByteBuffer) AS_BYTE_BUFFER.invoke(slice);
+            }
+            return new Buffer(arena, segment, views, sizeBytes);
+        } catch (RuntimeException | Error e) {
+            closeArena(arena);
+            throw e;
+        } catch (Throwable t) {
+            closeArena(arena);
+            throw new IllegalStateException("Falha ao alocar MemorySegment", t);
+        }
+    }
+
+    private static void closeArena(Object arena) {
+        if (arena == null) {
+            return;
+        }
+        try {
+            CLOSE.invoke(arena);
+        } catch (Throwable t) {
+            // Arena já fechada
+        }
+    }
+
+    static class Buffer extends DirectBackend.SegmentedByteBuffer {
+        private Object arena;
+        private final Object segment;
+
+        Buffer(Object arena, Object segment, ByteBuffer[] views, long size) {
+            super(views, VIEW_BYTES, size);
+            this.arena = arena;
+            this.segment = segment;
+        }
+
+        @Override
+        public void fill(byte value) {
+            try {
+                FILL.invoke(segment, value);
+            } catch (Throwable t) {
+                throw new IllegalStateException("Falha em MemorySegment.fill", t);
+            }
+        }
+
+        @Override
+        public void close() {
+            // As visões ByteBuffer pertencem à arena; fechá-la libera tudo de uma vez
+            closeArena(arena);
+            arena = null;
+        }
+    }
+}
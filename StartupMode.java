@@ -0,0 +1,397 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Modo --startup: mede quanto uma JVM nova leva para chegar ao comportamento estável
+ * de memória, separando a inicialização da JVM, o carregamento de classes e os page
+ * faults do primeiro toque das fases cronometradas.
+ *
+ * Cada célula combina um nível de CDS (off = -Xshare:off, default = arquivo base do
+ * JDK, app = arquivo AppCDS dinâmico gerado por uma execução de treino com
+ * -XX:ArchiveClassesAtExit) com um -Xms, e roda --startup-runs JVMs novas, intercaladas
+ * entre as células. O filho registra, no bloco "startup" do primeiro resultado, o
+ * tempo do lançamento até o main e até o fim do primeiro cenário, o RSS e os page
+ * faults do processo nesses dois pontos e as classes carregadas.
+ *
+ * Classes em diretórios do classpath não entram no arquivo CDS, então o pai empacota
+ * os diretórios num jar temporário usado por todas as células, com ou sem CDS.
+ */
+public final class StartupMode {
+    static final String DEFAULT_CDS = "default,app";
+    static final String DEFAULT_XMS = "default,xmx";
+    static final int DEFAULT_RUNS = 3;
+    private static final List<String> CDS_LEVELS = Arrays.asList("off", "default", "app");
+    /** Opções do pai que não são repassadas aos filhos. */
+    private static final List<String> PARENT_ONLY = Arrays.asList(
+        "startup", "startup-cds", "startup-xms", "startup-runs", "startup-archive", "output");
+    /** Medidas desta JVM quando lançada por --startup; null nas outras execuções. */
+    private static Probe probe;
+
+    private StartupMode() {
+    }
+
+    /** Uma célula: nome, nível de CDS e flags da JVM filha (sem o arquivo CDS). */
+    static class Cell {
+        final String name;
+        final String cds;
+        final List<String> flags;
+
+        Cell(String name, String cds, List<String> flags) {
+            this.name = name;
+            this.cds = cds;
+            this.flags = flags;
+        }
+    }
+
+    /** Medidas do processo na entrada do main e ao fim do primeiro cenário. */
+    static class Probe {
+        final String cell;
+        final String cds;
+        /** true quando a JVM está mapeando um arquivo CDS ("sharing" em java.vm.info). */
+        final boolean sharing;
+        final long launchEpochMicros;
+        long launchToMainMicros = -1;
+        long uptimeAtMainMillis = -1;
+        long rssAtMainKb = -1;
+        long minorFaultsAtMain = -1;
+        long majorFaultsAtMain = -1;
+        int classesAtMain = -1;
+        long launchToFirstScenarioMicros = -1;
+        long rssAfterFirstScenarioKb = -1;
+        long minorFaultsAtFirstScenario = -1;
+        long majorFaultsAtFirstScenario = -1;
+        int classesAtFirstScenario = -1;
+        boolean attached;
+
+        Probe(String cell, String cds, long launchEpochMicros) {
+            this.cell = cell;
+            this.cds = cds;
+            this.launchEpochMicros = launchEpochMicros;
+            this.sharing = System.getProperty("java.vm.info", "").contains("sharing");
+        }
+    }
+
+    static boolean isRequested(Map<String, String> cliArgs) {
+        return cliArgs.containsKey("startup");
+    }
+
+    /**
+     * Primeira coisa do main: se a JVM foi lançada por --startup (--startup-launch e
+     * --startup-cell nos argumentos), captura o instante, o RSS e os page faults antes
+     * de qualquer outro trabalho.
+     */
+    static void atMain(String[] args) {
+        long nowMicros = epochMicros(Instant.now());
+        String launch = null;
+        String cell = null;
+        for (String arg : args) {
+            if (arg.startsWith("--startup-launch=")) {
+                launch = arg.substring("--startup-launch=".length());
+            } else if (arg.startsWith("--startup-cell=")) {
+                cell = arg.substring("--startup-cell=".length());
+            }
+        }
+        if (launch == null || cell == null) {
+            return;
+        }
+        String[] parts = cell.split(":", 2);
+        probe = new Probe(parts[0], parts.length > 1 ? parts[1] : "n/d", Long.parseLong(launch));
+        probe.launchToMainMicros = nowMicros - probe.launchEpochMicros;
+        probe.uptimeAtMainMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        long[] process = processCounters();
+        probe.rssAtMainKb = process[0];
+        probe.minorFaultsAtMain = process[1];
+        probe.majorFaultsAtMain = process[2];
+        probe.classesAtMain = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+    }
+
+    /** Depois do primeiro cenário: completa as medidas e as anexa ao primeiro resultado. */
+    static void afterScenario(List<MemoryTest.Result> results) {
+        if (probe == null || probe.attached || results.isEmpty()) {
+            return;
+        }
+        probe.launchToFirstScenarioMicros = epochMicros(Instant.now()) - probe.launchEpochMicros;
+        long[] process = processCounters();
+        probe.rssAfterFirstScenarioKb = process[0];
+        probe.minorFaultsAtFirstScenario = process[1];
+        probe.majorFaultsAtFirstScenario = process[2];
+        probe.classesAtFirstScenario = ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+        probe.attached = true;
+        results.get(0).startup = probe;
+    }
+
+    /** VmRSS em KB e page faults minor e major do processo desde o exec; -1 fora do Linux. */
+    private static long[] processCounters() {
+        try (ProcReader proc = new ProcReader()) {
+            if (!proc.isAvailable()) {
+                return new long[] {-1, -1, -1};
+            }
+            proc.capture(ProcReader.STAT | ProcReader.STATUS);
+            return new long[] {proc.vmRssKb, proc.minorFaults, proc.majorFaults};
+        }
+    }
+
+    private static long epochMicros(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000;
+    }
+
+    // --- pai ---
+
+    /**
+     * Células de --startup-cds (off, default, app) e --startup-xms (default = sem -Xms,
+     * xmx = -Xms igual ao -Xmx, ou um tamanho como 512m).
+     */
+    static List<Cell> parseCells(Map<String, String> cliArgs) {
+        String xmx = ChildJvm.inheritedOption("-Xmx");
+        String maxHeap = MemoryTest.JvmSettings.current().options.get("MaxHeapSize");
+        List<Cell> cells = new ArrayList<>();
+        for (String cds : cliArgs.getOrDefault("startup-cds", DEFAULT_CDS).split(",")) {
+            cds = cds.trim();
+            if (!CDS_LEVELS.contains(cds)) {
+                throw new IllegalArgumentException("Valor desconhecido em --startup-cds: " + cds
+                    + " (opções: " + String.join(", ", CDS_LEVELS) + ")");
+            }
+            for (String xms : cliArgs.getOrDefault("startup-xms", DEFAULT_XMS).split(",")) {
+                xms = xms.trim().toLowerCase();
+                List<String> flags = new ArrayList<>();
+                if (cds.equals("off")) {
+                    flags.add("-Xshare:off");
+                }
+                if (xmx != null) {
+                    flags.add(xmx);
+                }
+                if (xms.equals("xmx")) {
+                    flags.add(xmx != null ? "-Xms" + xmx.substring(4) : "-Xms" + maxHeap);
+                } else if (!xms.equals("default")) {
+                    flags.add("-Xms" + xms);
+                }
+                cells.add(new Cell("cds-" + cds + "-xms-" + xms, cds, flags));
+            }
+        }
+        return cells;
+    }
+
+    /** Argumentos do filho: os do pai, menos as opções do modo, mais a célula e o instante do lançamento. */
+    static List<String> childArgs(Map<String, String> cliArgs, Cell cell, Path output) {
+        List<String> args = new ArrayList<>();
+        for (Map.Entry<String, String> entry : cliArgs.entrySet()) {
+            if (!PARENT_ONLY.contains(entry.getKey())) {
+                args.add("--" + entry.getKey() + "=" + entry.getValue());
+            }
+        }
+        if (!cliArgs.containsKey("store")) {
+            // Filhos cronometrados não gravam no histórico, a menos que --store seja pedido
+            args.add("--store=off");
+        }
+        args.add("--jvm-variant=" + cell.name);
+        args.add("--startup-cell=" + cell.name + ":" + cell.cds);
+        args.add("--output=" + output.toAbsolutePath());
+        // Por último, o mais perto possível do start do processo
+        args.add("--startup-launch=" + epochMicros(Instant.now()));
+        return args;
+    }
+
+    /** Gera o arquivo AppCDS, roda as células e grava o relatório combinado. */
+    static void run(Map<String, String> cliArgs) throws Exception {
+        List<Cell> cells = parseCells(cliArgs);
+        int runs = Integer.parseInt(cliArgs.getOrDefault("startup-runs", Integer.toString(DEFAULT_RUNS)));
+        if (runs < 1) {
+            throw new IllegalArgumentException("--startup-runs precisa ser >= 1");
+        }
+        List<Path> temporary = new ArrayList<>();
+        try {
+            String classPath = packClassPath(temporary);
+            Path archive = null;
+            if (cells.stream().anyMatch(cell -> cell.cds.equals("app"))) {
+                archive = prepareArchive(cliArgs, classPath, temporary);
+                if (archive == null) {
+                    cells.removeIf(cell -> cell.cds.equals("app"));
+                }
+            }
+            System.out.println("Startup: " + cells.size() + " células x " + runs + " JVMs novas, classpath "
+                + classPath + (archive != null ? ", AppCDS " + archive + " (" + Files.size(archive) / 1024 + " KB)" : ""));
+
+            List<String> reports = new ArrayList<>();
+            List<Object> parsed = new ArrayList<>();
+            for (int run = 1; run <= runs; run++) {
+                // Células intercaladas: o cache de páginas e a frequência da CPU mudam igual para todas
+                for (Cell cell : cells) {
+                    System.out.println("\n=== Startup " + cell.name + ", JVM " + run + "/" + runs + " ===");
+                    List<String> flags = new ArrayList<>(cell.flags);
+                    if (cell.cds.equals("app")) {
+                        flags.add("-XX:SharedArchiveFile=" + archive);
+                    }
+                    Path output = Files.createTempFile("memtest-startup-", ".json");
+                    try {
+                        ChildJvm.Exit exit = ChildJvm.run(new ArrayList<>(), flags, classPath, "MemoryTest",
+                            childArgs(cliArgs, cell, output));
+                        if (exit.code != 0 || Files.size(output) == 0) {
+                            System.out.println("Aviso: JVM " + cell.name + " terminou com código " + exit.code
+                                + "; execução ignorada");
+                            continue;
+                        }
+                        String report = new String(Files.readAllBytes(output), StandardCharsets.UTF_8);
+                        parsed.addAll((List<?>) JsonReader.parse(report));
+                        reports.add(JvmMatrix.arrayBody(report));
+                    } finally {
+                        Files.deleteIfExists(output);
+                    }
+                }
+            }
+            if (reports.isEmpty()) {
+                throw new IOException("Nenhuma JVM do modo startup terminou com sucesso");
+            }
+
+            printSummary(cells, parsed);
+            MemoryTest.writeReport("[\n" + String.join(",\n", reports) + "\n]\n", cliArgs.get("output"));
+        } finally {
+            for (Path path : temporary) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Classpath dos filhos: jars ficam como estão e cada diretório vira um jar
+     * temporário, que o CDS consegue arquivar.
+     */
+    private static String packClassPath(List<Path> temporary) throws IOException {
+        List<String> entries = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(java.io.File.pathSeparator)) {
+            Path path = Paths.get(entry.isEmpty() ? "." : entry).toAbsolutePath();
+            if (!Files.isDirectory(path)) {
+                entries.add(entry);
+                continue;
+            }
+            Path jar = Files.createTempFile("memtest-startup-", ".jar");
+            temporary.add(jar);
+            try (OutputStream out = Files.newOutputStream(jar);
+                 JarOutputStream jarOut = new JarOutputStream(out);
+                 Stream<Path> files = Files.walk(path)) {
+                for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".class"))::iterator) {
+                    jarOut.putNextEntry(new JarEntry(path.relativize(file).toString().replace('\\', '/')));
+                    Files.copy(file, jarOut);
+                    jarOut.closeEntry();
+                }
+            }
+            entries.add(jar.toString());
+        }
+        return String.join(java.io.File.pathSeparator, entries);
+    }
+
+    /**
+     * Arquivo AppCDS das células "app": o de --startup-archive, se já existir, ou um
+     * novo gerado por uma execução de treino com os mesmos argumentos. null, com aviso,
+     * quando o treino falha.
+     */
+    private static Path prepareArchive(Map<String, String> cliArgs, String classPath, List<Path> temporary)
+            throws IOException {
+        Path archive;
+        if (cliArgs.containsKey("startup-archive")) {
+            archive = Paths.get(cliArgs.get("startup-archive")).toAbsolutePath();
+            if (Files.exists(archive)) {
+                System.out.println("Usando o arquivo AppCDS existente " + archive);
+                return archive;
+            }
+        } else {
+            archive = Files.createTempFile("memtest-startup-", ".jsa");
+            Files.delete(archive);
+            temporary.add(archive);
+        }
+        System.out.println("\n=== Treino do AppCDS: -XX:ArchiveClassesAtExit=" + archive + " ===");
+        List<String> flags = new ArrayList<>();
+        String xmx = ChildJvm.inheritedOption("-Xmx");
+        if (xmx != null) {
+            flags.add(xmx);
+        }
+        flags.add("-XX:ArchiveClassesAtExit=" + archive);
+        Cell training = new Cell("cds-treino", "treino", flags);
+        Path output = Files.createTempFile("memtest-startup-", ".json");
+        try {
+            // O treino só carrega classes; fica fora do histórico
+            List<String> args = childArgs(cliArgs, training, output);
+            args.add("--store=off");
+            ChildJvm.Exit exit = ChildJvm.run(new ArrayList<>(), flags, classPath, "MemoryTest", args);
+            if (exit.code != 0 || !Files.exists(archive)) {
+                System.out.println("Aviso: o treino terminou com código " + exit.code
+                    + " sem gerar o arquivo; células app ignoradas");
+                return null;
+            }
+        } finally {
+            Files.deleteIfExists(output);
+        }
+        return archive;
+    }
+
+    private static void printSummary(List<Cell> cells, List<Object> results) {
+        Map<String, List<Object>> byCell = new LinkedHashMap<>();
+        for (Cell cell : cells) {
+            byCell.put(cell.name, new ArrayList<>());
+        }
+        for (Object result : results) {
+            Object startup = JsonReader.path(result, "startup");
+            if (startup != null && byCell.containsKey(String.valueOf(JsonReader.path(startup, "cell")))) {
+                byCell.get(String.valueOf(JsonReader.path(startup, "cell"))).add(result);
+            }
+        }
+        System.out.println("\nStartup (medianas das JVMs de cada célula; main e 1º cenário contados do lançamento)");
+        System.out.printf("%-28s %4s %8s %9s %9s %8s %11s %10s %10s %9s %9s%n", "Célula", "JVMs", "CDS",
+            "main ms", "RSS MB", "classes", "1º cen. ms", "minflt", "RSS MB", "alocação", "escrita");
+        double baselineFirst = Double.NaN;
+        for (Map.Entry<String, List<Object>> cell : byCell.entrySet()) {
+            List<Object> runs = cell.getValue();
+            if (runs.isEmpty()) {
+                System.out.printf("%-28s %4d%n", cell.getKey(), 0);
+                continue;
+            }
+            double first = median(runs, "startup", "launchToFirstScenarioMicros") / 1e3;
+            if (Double.isNaN(baselineFirst)) {
+                baselineFirst = first;
+            }
+            System.out.printf("%-28s %4d %8s %9s %9s %8s %11s %10s %10s %9s %9s%s%n", cell.getKey(), runs.size(),
+                Boolean.TRUE.equals(JsonReader.path(runs.get(0), "startup", "sharing")) ? "sim" : "não",
+                format(median(runs, "startup", "launchToMainMicros") / 1e3, "%.1f"),
+                format(median(runs, "startup", "rssAtMainKb") / 1024, "%.1f"),
+                format(median(runs, "startup", "classesAtMain"), "%.0f"),
+                format(first, "%.1f"),
+                format(median(runs, "startup", "minorFaultsAtFirstScenario"), "%.0f"),
+                format(median(runs, "startup", "rssAfterFirstScenarioKb") / 1024, "%.1f"),
+                format(median(runs, "metrics", "allocationSeconds"), "%.4f"),
+                format(median(runs, "metrics", "writesSeconds"), "%.4f"),
+                first != baselineFirst ? String.format("  (%+.1f ms)", first - baselineFirst) : "");
+        }
+        System.out.println("CDS = JVM mapeando um arquivo de classes; minflt = page faults do processo até o fim"
+            + " do 1º cenário; diferenças contra a primeira célula");
+    }
+
+    private static double median(List<Object> results, String... path) {
+        double[] values = new double[results.size()];
+        int count = 0;
+        for (Object result : results) {
+            double value = JsonReader.number(result, path);
+            if (!Double.isNaN(value) && value >= 0) {
+                values[count++] = value;
+            }
+        }
+        TrialStats stats = TrialStats.of(Arrays.copyOf(values, count));
+        return stats != null ? stats.median : Double.NaN;
+    }
+
+    private static String format(double value, String pattern) {
+        return Double.isNaN(value) || value < 0 ? "n/d" : String.format(pattern, value);
+    }
+}
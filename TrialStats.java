@@ -0,0 +1,155 @@
+import java.util.Arrays;
+
+/**
+ * Resumo estatístico das repetições (trials) de uma fase.
+ *
+ * Percentis usam interpolação linear entre as amostras ordenadas. O intervalo de
+ * confiança de 95% da média usa a distribuição t de Student, que importa com poucas
+ * repetições (com 5 trials o fator é 2.78, não 1.96).
+ */
+public class TrialStats {
+    /** Valores críticos t(0.975) para 1..30 graus de liberdade. */
+    private static final double[] T_975 = {
+        12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+        2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+        2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+    };
+
+    final int count;
+    final double min;
+    final double max;
+    final double mean;
+    final double median;
+    final double p90;
+    final double p99;
+    final double stddev;
+    final double ci95Low;
+    final double ci95High;
+
+    private TrialStats(double[] sorted) {
+        this.count = sorted.length;
+        this.min = sorted[0];
+        this.max = sorted[sorted.length - 1];
+        double sum = 0;
+        for (double value : sorted) {
+            sum += value;
+        }
+        this.mean = sum / count;
+        this.median = percentile(sorted, 50);
+        this.p90 = percentile(sorted, 90);
+        this.p99 = percentile(sorted, 99);
+        double squares = 0;
+        for (double value : sorted) {
+            squares += (value - mean) * (value - mean);
+        }
+        this.stddev = count > 1 ? Math.sqrt(squares / (count - 1)) : 0;
+        double halfWidth = count > 1 ? tCritical(count - 1) * stddev / Math.sqrt(count) : 0;
+        this.ci95Low = mean - halfWidth;
+        this.ci95High = mean + halfWidth;
+    }
+
+    /** Retorna null quando não há amostras válidas (ex.: escrita em mmap read_only). */
+    static TrialStats of(double[] samples) {
+        double[] valid = Arrays.stream(samples).filter(value -> !Double.isNaN(value)).toArray();
+        if (valid.length == 0) {
+            return null;
+        }
+        Arrays.sort(valid);
+        return new TrialStats(valid);
+    }
+
+    static double percentile(double[] sorted, double percentile) {
+        if (sorted.length == 1) {
+            return sorted[0];
+        }
+        double rank = percentile / 100.0 * (sorted.length - 1);
+        int lower = (int) Math.floor(rank);
+        int upper = Math.min(lower + 1, sorted.length - 1);
+        return sorted[lower] + (rank - lower) * (sorted[upper] - sorted[lower]);
+    }
+
+    static double tCritical(int degreesOfFreedom) {
+        return degreesOfFreedom <= T_975.length ? T_975[degreesOfFreedom - 1] : 1.96;
+    }
+
+    /**
+     * P(T &gt; t) para T com distribuição t de Student de {@code degreesOfFreedom} graus
+     * (graus fracionários, como os de Welch, são aceitos). Usa a função beta incompleta
+     * regularizada: P(T &gt; t) = I_x(df/2, 1/2) / 2 com x = df / (df + t²), para t &gt;= 0.
+     */
+    static double studentUpperTail(double t, double degreesOfFreedom) {
+        if (Double.isNaN(t)) {
+            return Double.NaN;
+        }
+        if (Double.isInfinite(t)) {
+            return t > 0 ? 0 : 1;
+        }
+        double tail = 0.5 * regularizedBeta(degreesOfFreedom / (degreesOfFreedom + t * t), degreesOfFreedom / 2, 0.5);
+        return t >= 0 ? tail : 1 - tail;
+    }
+
+    /** I_x(a, b) pela fração continuada de Lentz (Numerical Recipes, betacf). */
+    private static double regularizedBeta(double x, double a, double b) {
+        if (x <= 0) {
+            return 0;
+        }
+        if (x >= 1) {
+            return 1;
+        }
+        double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b)
+            + a * Math.log(x) + b * Math.log(1 - x));
+        // A fração converge rápido para x < (a+1)/(a+b+2); fora disso usa a simetria
+        if (x > (a + 1) / (a + b + 2)) {
+            return 1 - front * betaFraction(1 - x, b, a) / b;
+        }
+        return front * betaFraction(x, a, b) / a;
+    }
+
+    private static double betaFraction(double x, double a, double b) {
+        final double tiny = 1e-300;
+        double c = 1;
+        double d = 1 - (a + b) * x / (a + 1);
+        d = 1 / (Math.abs(d) < tiny ? tiny : d);
+        double h = d;
+        for (int m = 1; m <= 300; m++) {
+            int m2 = 2 * m;
+            double aa = m * (b - m) * x / ((a + m2 - 1) * (a + m2));
+            d = 1 / (Math.abs(1 + aa * d) < tiny ? tiny : 1 + aa * d);
+            c = Math.abs(1 + aa / c) < tiny ? tiny : 1 + aa / c;
+            h *= d * c;
+            aa = -(a + m) * (a + b + m) * x / ((a + m2) * (a + m2 + 1));
+            d = 1 / (Math.abs(1 + aa * d) < tiny ? tiny : 1 + aa * d);
+            c = Math.abs(1 + aa / c) < tiny ? tiny : 1 + aa / c;
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1) < 1e-12) {
+                break;
+            }
+        }
+        return h;
+    }
+
+    /** ln Γ(x) pela aproximação de Lanczos (g = 7, 9 termos). */
+    private static double logGamma(double x) {
+        final double[] coefficients = {
+            0.99999999999980993, 676.5203681218851, -1259.1392167224028, 771.32342877765313,
+            -176.61502916214059, 12.507343278686905, -0.13857109526572012,
+            9.9843695780195716e-6, 1.5056327351493116e-7
+        };
+        if (x < 0.5) {
+            return Math.log(Math.PI / Math.abs(Math.sin(Math.PI * x))) - logGamma(1 - x);
+        }
+        x -= 1;
+        double sum = coefficients[0];
+        for (int i = 1; i < coefficients.length; i++) {
+            sum += coefficients[i] / (x + i);
+        }
+        double t = x + 7.5;
+        return 0.5 * Math.log(2 * Math.PI) + (x + 0.5) * Math.log(t) - t + Math.log(sum);
+    }
+
+    /** Coeficiente de variação, útil para ver se o ruído engole a diferença entre execuções. */
+    double relativeStddev() {
+        return mean != 0 ? stddev / mean : Double.NaN;
+    }
+}
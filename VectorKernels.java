@@ -0,0 +1,106 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernel {@code vector} de {@link Kernels}: lê e grava com ByteVector na largura
+ * preferida da CPU (ex.: 512 bits com AVX-512) e soma as leituras em lanes de long.
+ *
+ * Depende do módulo incubado jdk.incubator.vector, então só compila com
+ * {@code javac --add-modules jdk.incubator.vector} e só é carregado por reflexão
+ * quando a JVM também foi iniciada com essa opção. fromByteBuffer/intoByteBuffer
+ * existem até o JDK 18; em JDKs mais novos o kernel roda só sobre byte[].
+ */
+public final class VectorKernels extends Kernels.Kernel {
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+    private static final boolean BYTE_BUFFER_API = hasByteBufferApi();
+
+    private static boolean hasByteBufferApi() {
+        try {
+            ByteVector.class.getMethod("fromByteBuffer", VectorSpecies.class, ByteBuffer.class, int.class, ByteOrder.class);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    @Override
+    String name() {
+        return "vector";
+    }
+
+    @Override
+    long read(byte[] data, int from, int to) {
+        LongVector accumulator = LongVector.zero(LONGS);
+        int index = from;
+        int bound = from + BYTES.loopBound(to - from);
+        for (; index < bound; index += BYTES.length()) {
+            accumulator = accumulator.add(ByteVector.fromArray(BYTES, data, index).reinterpretAsLongs());
+        }
+        long sum = accumulator.reduceLanes(VectorOperators.ADD);
+        for (; index < to; index++) {
+            sum += data[index];
+        }
+        return sum;
+    }
+
+    @Override
+    long read(ByteBuffer data, int from, int to) {
+        requireByteBufferApi();
+        LongVector accumulator = LongVector.zero(LONGS);
+        int index = from;
+        int bound = from + BYTES.loopBound(to - from);
+        for (; index < bound; index += BYTES.length()) {
+            accumulator = accumulator.add(ByteVector.fromByteBuffer(BYTES, data, index, ORDER).reinterpretAsLongs());
+        }
+        long sum = accumulator.reduceLanes(VectorOperators.ADD);
+        for (; index < to; index++) {
+            sum += data.get(index);
+        }
+        return sum;
+    }
+
+    @Override
+    void write(byte[] data, int from, int to, byte value) {
+        ByteVector vector = ByteVector.broadcast(BYTES, value);
+        int index = from;
+        int bound = from + BYTES.loopBound(to - from);
+        for (; index < bound; index += BYTES.length()) {
+            vector.intoArray(data, index);
+        }
+        for (; index < to; index++) {
+            data[index] = value;
+        }
+    }
+
+    @Override
+    void write(ByteBuffer data, int from, int to, byte value) {
+        requireByteBufferApi();
+        ByteVector vector = ByteVector.broadcast(BYTES, value);
+        int index = from;
+        int bound = from + BYTES.loopBound(to - from);
+        for (; index < bound; index += BYTES.length()) {
+            vector.intoByteBuffer(data, index, ORDER);
+        }
+        for (; index < to; index++) {
+            data.put(index, value);
+        }
+    }
+
+    private static void requireByteBufferApi() {
+        if (!BYTE_BUFFER_API) {
+            throw new UnsupportedOperationException("ByteVector.fromByteBuffer não existe no JDK "
+                + System.getProperty("java.version") + "; o kernel vector roda só sobre byte[]");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "vector (" + BYTES + ")";
+    }
+}
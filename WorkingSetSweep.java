@@ -0,0 +1,331 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Varredura do working set: mede latência e banda com working sets que crescem em
+ * progressão geométrica (ex.: 4 KB a 1 GB, quatro passos por oitava) e detecta os
+ * joelhos das curvas, que marcam o fim de cada nível de cache e do alcance do TLB.
+ *
+ * Um único buffer do tamanho máximo é alocado e preenchido antes; cada passo usa só
+ * os seus primeiros W bytes, então alocação e page faults de primeiro toque ficam fora
+ * das medições. Em cada passo:
+ * <ul>
+ *   <li>latência: pointer chasing por uma permutação embaralhada com um nó a cada linha
+ *       de cache de W (acima de {@link #MAX_CHASE_NODES} nós, mais espaçados);</li>
+ *   <li>latência por página: o mesmo com um nó por página de 4 KB, cada um numa linha
+ *       diferente da página para não concentrar os nós nos mesmos sets da cache. Com W/64
+ *       bytes de linhas tocadas, a subida dessa curva vem do TLB, não da cache;</li>
+ *   <li>banda: leitura sequencial de W repetida até somar ~256 MB.</li>
+ * </ul>
+ *
+ * Um joelho é o último tamanho de um patamar: o primeiro ponto mais de 30% pior que o
+ * melhor ponto do patamar abre a subida, e o novo patamar começa quando os pontos
+ * seguintes pioram menos de 10% cada. Comparar com o melhor ponto, e não com o
+ * primeiro, evita que working sets minúsculos (dominados pelo custo da chamada)
+ * escondam os joelhos da banda.
+ */
+public final class WorkingSetSweep {
+    static final String DEFAULT_RANGE = "4k..1g";
+    static final int DEFAULT_STEPS_PER_OCTAVE = 4;
+    private static final int LINE_BYTES = 64;
+    private static final int PAGE_BYTES = 4096;
+    private static final int MAX_CHASE_NODES = 1 << 22;
+    /** Passos mínimos de cada medição de latência, para working sets pequenos. */
+    private static final long MIN_CHASE_STEPS = 1 << 21;
+    private static final long BANDWIDTH_BYTES = 256L * 1024 * 1024;
+    private static final int JIT_WARMUP_ROUNDS = 5;
+    private static final double KNEE_RISE = 1.3;
+    private static final double KNEE_SETTLE = 1.1;
+
+    /** Faixa da varredura, ex.: "4k..1g". */
+    static class Range {
+        final long minBytes;
+        final long maxBytes;
+
+        Range(long minBytes, long maxBytes) {
+            this.minBytes = minBytes;
+            this.maxBytes = maxBytes;
+        }
+
+        static Range parse(String spec) {
+            String[] parts = spec.split("\\.\\.", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Faixa da varredura no formato min..max, ex.: 4k..1g: " + spec);
+            }
+            long min = FanOutRunner.SizeDistribution.parseBytes(parts[0]);
+            long max = FanOutRunner.SizeDistribution.parseBytes(parts[1]);
+            if (min < 2 * LINE_BYTES || max < min) {
+                throw new IllegalArgumentException("Faixa da varredura inválida (mínimo 128 bytes): " + spec);
+            }
+            return new Range(min, max);
+        }
+
+        /** Tamanhos W_k = min * 2^(k / passos), alinhados a 64 bytes, até max. */
+        long[] sizes(int stepsPerOctave) {
+            List<Long> sizes = new ArrayList<>();
+            for (int k = 0; ; k++) {
+                long size = Math.round(minBytes * Math.pow(2, (double) k / stepsPerOctave)) / LINE_BYTES * LINE_BYTES;
+                if (size > maxBytes) {
+                    break;
+                }
+                if (sizes.isEmpty() || sizes.get(sizes.size() - 1) != size) {
+                    sizes.add(size);
+                }
+            }
+            long[] result = new long[sizes.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = sizes.get(i);
+            }
+            return result;
+        }
+    }
+
+    /** Fim de um patamar: {@code boundaryBytes} ainda está nele, o passo seguinte não. */
+    static class Knee {
+        final long boundaryBytes;
+        final double before;
+        final double after;
+        /** Nível de cache do kernel mais próximo da fronteira (até 2x), ou null. */
+        final String cacheLevel;
+
+        Knee(long boundaryBytes, double before, double after, String cacheLevel) {
+            this.boundaryBytes = boundaryBytes;
+            this.before = before;
+            this.after = after;
+            this.cacheLevel = cacheLevel;
+        }
+    }
+
+    /** Cache informada em /sys/devices/system/cpu/cpu0/cache. */
+    static class CacheInfo {
+        final int level;
+        final String type;
+        final long sizeBytes;
+
+        CacheInfo(int level, String type, long sizeBytes) {
+            this.level = level;
+            this.type = type;
+            this.sizeBytes = sizeBytes;
+        }
+
+        String label() {
+            return "L" + level + (type.equals("Data") ? "d" : type.equals("Instruction") ? "i" : "");
+        }
+    }
+
+    /** Resultado da varredura de um backend. */
+    static class Sweep {
+        final Range range;
+        final int stepsPerOctave;
+        final long[] sizes;
+        final double[] latencyNanos;
+        final double[] pageLatencyNanos;
+        final double[] gbps;
+        final List<CacheInfo> caches;
+        List<Knee> latencyKnees;
+        List<Knee> pageLatencyKnees;
+        List<Knee> bandwidthKnees;
+
+        Sweep(Range range, int stepsPerOctave, long[] sizes, List<CacheInfo> caches) {
+            this.range = range;
+            this.stepsPerOctave = stepsPerOctave;
+            this.sizes = sizes;
+            this.latencyNanos = new double[sizes.length];
+            this.pageLatencyNanos = new double[sizes.length];
+            this.gbps = new double[sizes.length];
+            this.caches = caches;
+        }
+    }
+
+    private WorkingSetSweep() {
+    }
+
+    /**
+     * Mede todos os passos de {@code range} sobre um buffer de {@code backend}; cada
+     * medida é a mediana de {@code trials} repetições.
+     */
+    static Sweep run(BufferBackend backend, Range range, int stepsPerOctave, int trials) {
+        Sweep sweep = new Sweep(range, stepsPerOctave, range.sizes(stepsPerOctave), readCaches());
+        backend.beforeAllocate(range.maxBytes);
+        MemoryBuffer buffer = backend.allocate(range.maxBytes);
+        try {
+            buffer.initializeForReads((byte) 0x5a);
+            // Compila os laços de chase e de leitura antes do primeiro passo medido
+            long warmupBytes = Math.min(range.maxBytes, 1L << 20) / PAGE_BYTES * PAGE_BYTES;
+            for (int w = 0; w < JIT_WARMUP_ROUNDS && warmupBytes >= 2 * PAGE_BYTES && buffer.writable(); w++) {
+                chaseNanos(buffer, warmupBytes, LINE_BYTES, false);
+                chaseNanos(buffer, warmupBytes, PAGE_BYTES, true);
+                bandwidthGbps(buffer, warmupBytes);
+            }
+            for (int i = 0; i < sweep.sizes.length; i++) {
+                long size = sweep.sizes[i];
+                if (buffer.writable()) {
+                    sweep.latencyNanos[i] = median(trials, () -> chaseNanos(buffer, size, LINE_BYTES, false));
+                    sweep.pageLatencyNanos[i] = size >= 2 * PAGE_BYTES
+                        ? median(trials, () -> chaseNanos(buffer, size, PAGE_BYTES, true))
+                        : Double.NaN;
+                } else {
+                    // A cadeia precisa ser gravada no buffer (ex.: mmap READ_ONLY)
+                    sweep.latencyNanos[i] = Double.NaN;
+                    sweep.pageLatencyNanos[i] = Double.NaN;
+                }
+                sweep.gbps[i] = median(trials, () -> bandwidthGbps(buffer, size));
+                System.out.printf("%12s %12.2f %12s %10.2f%n", formatBytes(size), sweep.latencyNanos[i],
+                    Double.isNaN(sweep.pageLatencyNanos[i]) ? "-" : String.format("%.2f", sweep.pageLatencyNanos[i]),
+                    sweep.gbps[i]);
+            }
+        } finally {
+            buffer.close();
+        }
+        sweep.latencyKnees = findKnees(sweep.sizes, sweep.latencyNanos, false, sweep.caches);
+        sweep.pageLatencyKnees = findKnees(sweep.sizes, sweep.pageLatencyNanos, false, null);
+        sweep.bandwidthKnees = findKnees(sweep.sizes, sweep.gbps, true, sweep.caches);
+        return sweep;
+    }
+
+    private interface Measure {
+        double run();
+    }
+
+    private static double median(int trials, Measure measure) {
+        double[] values = new double[trials];
+        for (int t = 0; t < trials; t++) {
+            values[t] = measure.run();
+        }
+        TrialStats stats = TrialStats.of(values);
+        return stats != null ? stats.median : Double.NaN;
+    }
+
+    /**
+     * ns por salto de uma cadeia com um nó a cada {@code spacing} bytes (ou mais, se
+     * passar de {@link #MAX_CHASE_NODES}) nos primeiros {@code size} bytes. Com
+     * {@code spreadLines} cada nó fica numa linha diferente da sua página.
+     */
+    private static double chaseNanos(MemoryBuffer buffer, long size, int spacing, boolean spreadLines) {
+        int nodes = (int) Math.min(size / spacing, MAX_CHASE_NODES);
+        long nodeSpacing = size / nodes / spacing * spacing;
+        int linesPerNode = (int) Math.min(nodeSpacing / LINE_BYTES, PAGE_BYTES / LINE_BYTES);
+        long start = AccessPattern.buildChain(buffer, nodes, node -> node * nodeSpacing
+            + (spreadLines ? (node * 7L % linesPerNode) * LINE_BYTES : 0));
+        long steps = Math.max(nodes, MIN_CHASE_STEPS);
+        // Uma volta completa antes traz a cadeia para a cache e o TLB
+        MemoryTest.sink += buffer.chase(start, nodes, false);
+        long begin = System.nanoTime();
+        MemoryTest.sink += buffer.chase(start, steps, false);
+        return (double) (System.nanoTime() - begin) / steps;
+    }
+
+    private static double bandwidthGbps(MemoryBuffer buffer, long size) {
+        long passes = Math.max(1, BANDWIDTH_BYTES / size);
+        MemoryTest.sink += buffer.sumLongs(size, Long.BYTES);
+        long accumulator = 0;
+        long begin = System.nanoTime();
+        for (long pass = 0; pass < passes; pass++) {
+            accumulator += buffer.sumLongs(size, Long.BYTES);
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        MemoryTest.sink += accumulator;
+        return seconds > 0 ? (double) size * passes / seconds / 1e9 : Double.NaN;
+    }
+
+    /**
+     * Joelhos de uma curva ao longo dos tamanhos. Para banda ({@code higherIsBetter})
+     * a curva é invertida, então um joelho é uma queda.
+     */
+    static List<Knee> findKnees(long[] sizes, double[] values, boolean higherIsBetter, List<CacheInfo> caches) {
+        List<Knee> knees = new ArrayList<>();
+        double plateauBest = Double.NaN;
+        int plateauEnd = -1;
+        for (int i = 0; i < values.length; i++) {
+            if (Double.isNaN(values[i]) || values[i] <= 0) {
+                continue;
+            }
+            double cost = cost(values[i], higherIsBetter);
+            if (plateauEnd < 0) {
+                plateauBest = cost;
+                plateauEnd = i;
+                continue;
+            }
+            if (cost <= plateauBest * KNEE_RISE) {
+                plateauBest = Math.min(plateauBest, cost);
+                plateauEnd = i;
+                continue;
+            }
+            // Sobe até os passos voltarem a crescer menos que KNEE_SETTLE
+            int top = i;
+            while (top + 1 < values.length && !Double.isNaN(values[top + 1])
+                    && cost(values[top + 1], higherIsBetter) > cost(values[top], higherIsBetter) * KNEE_SETTLE) {
+                top++;
+            }
+            knees.add(new Knee(sizes[plateauEnd], values[plateauEnd], values[top],
+                nearestCache(sizes[plateauEnd], caches)));
+            plateauBest = cost(values[top], higherIsBetter);
+            plateauEnd = top;
+            i = top;
+        }
+        return knees;
+    }
+
+    private static double cost(double value, boolean higherIsBetter) {
+        return higherIsBetter ? 1 / value : value;
+    }
+
+    private static String nearestCache(long boundaryBytes, List<CacheInfo> caches) {
+        if (caches == null) {
+            return null;
+        }
+        CacheInfo nearest = null;
+        double distance = Double.MAX_VALUE;
+        for (CacheInfo cache : caches) {
+            if (cache.type.equals("Instruction")) {
+                continue;
+            }
+            double d = Math.abs(Math.log((double) boundaryBytes / cache.sizeBytes));
+            if (d <= Math.log(2) && d < distance) {
+                nearest = cache;
+                distance = d;
+            }
+        }
+        return nearest != null ? nearest.label() : null;
+    }
+
+    /** Caches da CPU 0 no sysfs do Linux; lista vazia em outros sistemas. */
+    static List<CacheInfo> readCaches() {
+        List<CacheInfo> caches = new ArrayList<>();
+        for (int index = 0; ; index++) {
+            Path dir = Paths.get("/sys/devices/system/cpu/cpu0/cache/index" + index);
+            if (!Files.isDirectory(dir)) {
+                break;
+            }
+            try {
+                int level = Integer.parseInt(read(dir.resolve("level")));
+                String type = read(dir.resolve("type"));
+                long size = FanOutRunner.SizeDistribution.parseBytes(read(dir.resolve("size")));
+                caches.add(new CacheInfo(level, type, size));
+            } catch (IOException | RuntimeException e) {
+                // Entrada incompleta: segue com as demais
+            }
+        }
+        return caches;
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes >= 1L << 30 && bytes % (1L << 30) == 0) {
+            return (bytes >> 30) + " GB";
+        }
+        if (bytes >= 1L << 20) {
+            return String.format(Locale.ROOT, "%.1f MB", bytes / 1048576.0);
+        }
+        return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+    }
+}
@@ -61,7 +61,7 @@ echo EXECUTANDO TESTE EM JAVA
 echo ============================================
 echo.
 
-java MemoryTest --sizes=10,200,500,10000 --iterations=10 --output=java-result.json
+java -Xmx12g MemoryTest --sizes=10,200,500,10000 --iterations=10 --output=java-result.json
 
 echo.
 echo ============================================
@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class PressureModeTest {
+    private static final long MB = 1024L * 1024;
+
+    @Test
+    void cgroupMountVemDaLinhaCgroup2() {
+        List<String> mountinfo = Arrays.asList(
+            "25 30 0:23 / /sys/fs/cgroup/memory rw,nosuid - cgroup cgroup rw,memory",
+            "26 30 0:24 / /sys/fs/cgroup/unified rw,nosuid shared:5 - cgroup2 cgroup2 rw,nsdelegate");
+        assertEquals(Paths.get("/sys/fs/cgroup/unified"), PressureMode.cgroupMount(mountinfo));
+        assertNull(PressureMode.cgroupMount(mountinfo.subList(0, 1)));
+    }
+
+    @Test
+    void cgroupPathVemDaLinhaZero() {
+        assertEquals("user.slice/user-1000.slice/session-2.scope", PressureMode.cgroupPath(Arrays.asList(
+            "12:memory:/user.slice", "0::/user.slice/user-1000.slice/session-2.scope")));
+        assertEquals("", PressureMode.cgroupPath(Arrays.asList("0::/")));
+        assertNull(PressureMode.cgroupPath(Arrays.asList("4:memory:/")));
+    }
+
+    @Test
+    void hasControllerComparaNomesInteiros() {
+        assertTrue(PressureMode.hasController("cpuset cpu io memory pids\n", "memory"));
+        assertFalse(PressureMode.hasController("cpu io pids", "memory"));
+        assertFalse(PressureMode.hasController("", "memory"));
+        assertFalse(PressureMode.hasController("memory_recursiveprot", "memory"));
+    }
+
+    @Test
+    void paiSaiParaFolhaSoForaDaRaizESemMemoryHabilitado() {
+        assertTrue(PressureMode.needsLeaf(false, ""));
+        assertTrue(PressureMode.needsLeaf(false, "cpu pids"));
+        assertFalse(PressureMode.needsLeaf(false, "cpu memory"));
+        assertFalse(PressureMode.needsLeaf(true, ""));
+    }
+
+    @Test
+    void mecanismoCaiParaBalaoSoNoAuto() throws IOException {
+        assertEquals("cgroup", PressureMode.mechanism("auto", null));
+        assertEquals("balloon", PressureMode.mechanism("auto", "cgroup v2 não montado"));
+        assertEquals("cgroup", PressureMode.mechanism("cgroup", null));
+        assertEquals("balloon", PressureMode.mechanism("balloon", null));
+        assertThrows(IOException.class, () -> PressureMode.mechanism("cgroup", "cgroup v2 não montado"));
+        assertThrows(IllegalArgumentException.class, () -> PressureMode.mechanism("swap", null));
+    }
+
+    @Test
+    void limitesRelativosSomamOverheadEAbsolutosNao() {
+        List<PressureMode.Cell> cells = PressureMode.parseCells("1x, 0.5X,768m", 1024 * MB, 256 * MB);
+        assertEquals(4, cells.size());
+        assertEquals("sem-limite", cells.get(0).name);
+        assertEquals(0, cells.get(0).limitBytes);
+        assertEquals("limite-1280m", cells.get(1).name);
+        assertEquals(1280 * MB, cells.get(1).limitBytes);
+        assertEquals(768 * MB, cells.get(2).limitBytes);
+        assertEquals("limite-768m", cells.get(3).name);
+        assertEquals(768 * MB, cells.get(3).limitBytes);
+    }
+
+    @Test
+    void keyValuesIgnoraLinhasForaDoFormato() {
+        Map<String, Long> stat = PressureMode.Snapshot.keyValues(Arrays.asList(
+            "anon 1048576", "file 4096", "  pgscan   37  ", "workingset_refault_file 0",
+            "nr_foo", "bar 1 2", "baz -3", "max max", ""));
+        assertEquals(4, stat.size());
+        assertEquals(1048576L, stat.get("anon"));
+        assertEquals(4096L, stat.get("file"));
+        assertEquals(37L, stat.get("pgscan"));
+        assertEquals(0L, stat.get("workingset_refault_file"));
+    }
+
+    @Test
+    void psiLeOTotalDeSomeEFull() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        PressureMode.Snapshot.psi(Arrays.asList(
+            "some avg10=0.12 avg60=0.05 avg300=0.01 total=123456",
+            "full avg10=0.00 avg60=0.00 avg300=0.00 total=789"), counters);
+        assertEquals(2, counters.size());
+        assertEquals(123456L, counters.get("psi_some_us"));
+        assertEquals(789L, counters.get("psi_full_us"));
+    }
+
+    @Test
+    void minusSubtraiContadoresEMantemMedidasFinais() {
+        PressureMode.Snapshot start = new PressureMode.Snapshot("sistema");
+        start.counters.put("pgmajfault", 100L);
+        start.counters.put("pgscan", 50L);
+        start.counters.put("psi_some_us", 1000L);
+        start.gauges.put("MemAvailable", 4096L);
+        PressureMode.Snapshot end = new PressureMode.Snapshot("sistema");
+        end.counters.put("pgmajfault", 130L);
+        end.counters.put("pgscan", 40L);
+        end.counters.put("pgsteal", 7L);
+        end.counters.put("psi_some_us", 1500L);
+        end.gauges.put("MemAvailable", 1024L);
+
+        PressureMode.Snapshot delta = end.minus(start);
+        assertEquals("sistema", delta.source);
+        assertEquals(30L, delta.counters.get("pgmajfault"));
+        // Contador que voltou (ex.: cgroup recriado) não vira delta negativo
+        assertEquals(0L, delta.counters.get("pgscan"));
+        assertEquals(500L, delta.counters.get("psi_some_us"));
+        // Sem valor inicial não há delta
+        assertNull(delta.counters.get("pgsteal"));
+        assertEquals(1024L, delta.gauges.get("MemAvailable"));
+    }
+
+    @Test
+    void semListaUsaOsLimitesPadrao() {
+        assertEquals(5, PressureMode.parseCells("true", 1024 * MB, 256 * MB).size());
+        assertEquals(5, PressureMode.parseCells(null, 1024 * MB, 256 * MB).size());
+    }
+}
@@ -0,0 +1,169 @@
+package memtest.jmh;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+
+/**
+ * Ponte para as classes do MemoryTest.
+ *
+ * O harness vive no pacote padrão (para continuar rodando com "javac MemoryTest.java"),
+ * e o JMH exige benchmarks em um pacote nomeado, que não pode importar o pacote padrão.
+ * Os métodos de BufferBackend e MemoryBuffer são resolvidos uma vez como MethodHandles
+ * com receptor Object; chamados com invokeExact a partir de campos static final, a JIT
+ * os inlina como uma chamada de interface comum.
+ */
+final class Harness {
+    private static final MethodHandle FOR_NAME;
+    private static final MethodHandle PREPARE;
+    private static final MethodHandle RELEASE;
+    private static final MethodHandle ALLOCATE;
+    private static final MethodHandle GET;
+    private static final MethodHandle PUT;
+    private static final MethodHandle FILL;
+    private static final MethodHandle INITIALIZE_FOR_READS;
+    private static final MethodHandle SUM_STRIDE;
+    private static final MethodHandle CLOSE;
+    private static final MethodHandle PARSE_CLI_ARGS;
+    static final int DEFAULT_CHUNK_MB;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> backend = Class.forName("BufferBackend");
+            Class<?> buffer = Class.forName("MemoryBuffer");
+            Class<?> memoryTest = Class.forName("MemoryTest");
+            FOR_NAME = lookup.findStatic(backend, "forName",
+                    MethodType.methodType(backend, String.class, int.class))
+                .asType(MethodType.methodType(Object.class, String.class, int.class));
+            PREPARE = virtual(lookup, backend, "prepare", void.class, long.class);
+            RELEASE = virtual(lookup, backend, "release", void.class);
+            ALLOCATE = lookup.findVirtual(backend, "allocate", MethodType.methodType(buffer, long.class))
+                .asType(MethodType.methodType(Object.class, Object.class, long.class));
+            GET = virtual(lookup, buffer, "get", byte.class, long.class);
+            PUT = virtual(lookup, buffer, "put", void.class, long.class, byte.class);
+            FILL = virtual(lookup, buffer, "fill", void.class, byte.class);
+            INITIALIZE_FOR_READS = virtual(lookup, buffer, "initializeForReads", void.class, byte.class);
+            SUM_STRIDE = virtual(lookup, buffer, "sumStride", long.class, long.class);
+            CLOSE = virtual(lookup, buffer, "close", void.class);
+            PARSE_CLI_ARGS = lookup.findStatic(memoryTest, "parseCliArgs",
+                MethodType.methodType(Map.class, String[].class));
+            DEFAULT_CHUNK_MB = backend.getField("DEFAULT_CHUNK_MB").getInt(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Harness() {
+    }
+
+    private static MethodHandle virtual(MethodHandles.Lookup lookup, Class<?> owner, String name,
+                                        Class<?> returnType, Class<?>... parameters)
+            throws ReflectiveOperationException {
+        MethodHandle handle = lookup.findVirtual(owner, name, MethodType.methodType(returnType, parameters));
+        return handle.asType(handle.type().changeParameterType(0, Object.class));
+    }
+
+    static Object backend(String name, int chunkMb) {
+        try {
+            return (Object) FOR_NAME.invokeExact(name, chunkMb);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void prepare(Object backend, long sizeBytes) {
+        try {
+            PREPARE.invokeExact(backend, sizeBytes);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void release(Object backend) {
+        try {
+            RELEASE.invokeExact(backend);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object allocate(Object backend, long sizeBytes) {
+        try {
+            return (Object) ALLOCATE.invokeExact(backend, sizeBytes);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static byte get(Object buffer, long index) {
+        try {
+            return (byte) GET.invokeExact(buffer, index);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void put(Object buffer, long index, byte value) {
+        try {
+            PUT.invokeExact(buffer, index, value);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void fill(Object buffer, byte value) {
+        try {
+            FILL.invokeExact(buffer, value);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void initializeForReads(Object buffer, byte value) {
+        try {
+            INITIALIZE_FOR_READS.invokeExact(buffer, value);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static long sumStride(Object buffer, long stride) {
+        try {
+            return (long) SUM_STRIDE.invokeExact(buffer, stride);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void close(Object buffer) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            CLOSE.invokeExact(buffer);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, String> parseCliArgs(String[] args) {
+        try {
+            return (Map<String, String>) PARSE_CLI_ARGS.invokeExact(args);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new IllegalStateException(t);
+    }
+}
@@ -0,0 +1,84 @@
+package memtest.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * As quatro medições do MemoryTest como benchmarks JMH.
+ *
+ * Cada operação corresponde a uma iteração do laço de measure*: o tempo por operação
+ * multiplicado pelas iterações do cenário é comparável aos segundos que o harness grava.
+ * Os buffers alocados vão para o Blackhole, então escape analysis não consegue
+ * eliminar nem encolher a alocação como pode acontecer em measureAllocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g", "-XX:MaxDirectMemorySize=2g"})
+public class MemoryBenchmark {
+    @Param({"10", "200", "500"})
+    public int sizeMb;
+
+    @Param({"heap", "chunked", "direct"})
+    public String backend;
+
+    private Object bufferBackend;
+    private long sizeBytes;
+    private Object writeBuffer;
+    private Object readBuffer;
+    private Object allocated;
+    private byte counter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sizeBytes = (long) sizeMb * 1024 * 1024;
+        bufferBackend = Harness.backend(backend, Harness.DEFAULT_CHUNK_MB);
+        Harness.prepare(bufferBackend, sizeBytes);
+        writeBuffer = Harness.allocate(bufferBackend, sizeBytes);
+        readBuffer = Harness.allocate(bufferBackend, sizeBytes);
+        Harness.initializeForReads(readBuffer, (byte) 0xaa);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Harness.close(writeBuffer);
+        Harness.close(readBuffer);
+        Harness.release(bufferBackend);
+    }
+
+    /** A liberação explícita dos backends nativos fica fora do tempo, como em measureAllocation. */
+    @TearDown(Level.Invocation)
+    public void releaseAllocated() {
+        Harness.close(allocated);
+        allocated = null;
+    }
+
+    @Benchmark
+    public void allocation(Blackhole blackhole) {
+        Object buffer = Harness.allocate(bufferBackend, sizeBytes);
+        Harness.put(buffer, 0, (byte) (Harness.get(buffer, 0) + counter++));
+        blackhole.consume(buffer);
+        allocated = buffer;
+    }
+
+    @Benchmark
+    public void allocateAndFree(Blackhole blackhole) {
+        Object buffer = Harness.allocate(bufferBackend, sizeBytes);
+        blackhole.consume(Harness.get(buffer, sizeBytes - 1));
+        Harness.close(buffer);
+    }
+
+    @Benchmark
+    public void writes() {
+        Harness.fill(writeBuffer, counter++);
+    }
+
+    @Benchmark
+    public void reads(Blackhole blackhole) {
+        blackhole.consume(Harness.sumStride(readBuffer, 4096));
+    }
+}
@@ -0,0 +1,167 @@
+package memtest.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Roda {@link MemoryBenchmark} e grava o resultado no mesmo esquema JSON de
+ * MemoryTest.persistResults, para que comparar-final.js leia os números do JMH
+ * no lugar (ou ao lado) dos números do harness.
+ *
+ * Uso: java -jar jmh/target/benchmarks.jar --sizes=10,200 --backend=heap,direct
+ *      --iterations=10 --output=java-jmh-result.json [--perfnorm] [--forks=2]
+ */
+public class MemoryBenchmarkExport {
+    private static final String REPORT_DIR = "../reports/memory";
+    private static final String[] PHASES = {"allocation", "allocateAndFree", "writes", "reads"};
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        Map<String, String> cliArgs = Harness.parseCliArgs(args);
+        System.out.println("cliArgs: " + cliArgs);
+
+        int iterations = Integer.parseInt(cliArgs.getOrDefault("iterations", "50"));
+        ChainedOptionsBuilder options = new OptionsBuilder()
+            .include(MemoryBenchmark.class.getSimpleName())
+            .addProfiler("gc");
+        if (cliArgs.containsKey("sizes")) {
+            options.param("sizeMb", cliArgs.get("sizes").split(","));
+        }
+        if (cliArgs.containsKey("backend")) {
+            options.param("backend", cliArgs.get("backend").split(","));
+        }
+        if (cliArgs.containsKey("forks")) {
+            options.forks(Integer.parseInt(cliArgs.get("forks")));
+        }
+        if (cliArgs.containsKey("warmup")) {
+            options.warmupIterations(Integer.parseInt(cliArgs.get("warmup")));
+        }
+        if (cliArgs.containsKey("measurement")) {
+            options.measurementIterations(Integer.parseInt(cliArgs.get("measurement")));
+        }
+        if (cliArgs.containsKey("time")) {
+            TimeValue time = TimeValue.fromString(cliArgs.get("time"));
+            options.warmupTime(time).measurementTime(time);
+        }
+        if (cliArgs.containsKey("perfnorm")) {
+            // Requer Linux com perf; os contadores minor/major-faults viram page faults por operação
+            options.addProfiler("perfnorm",
+                "events=minor-faults,major-faults,cycles,instructions,LLC-load-misses,dTLB-load-misses");
+        }
+
+        Collection<RunResult> runs = new Runner(options.build()).run();
+        persist(runs, iterations, cliArgs.get("output"));
+    }
+
+    /** Agrupa as fases por (sizeMb, backend), como um cenário do harness. */
+    private static void persist(Collection<RunResult> runs, int iterations, String customOutput)
+            throws IOException {
+        Map<String, Map<String, RunResult>> scenarios = new LinkedHashMap<>();
+        for (RunResult run : runs) {
+            String benchmark = run.getParams().getBenchmark();
+            String phase = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+            String key = run.getParams().getParam("sizeMb") + "|" + run.getParams().getParam("backend");
+            scenarios.computeIfAbsent(key, k -> new HashMap<>()).put(phase, run);
+        }
+
+        String timestamp = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").format(new Date());
+        StringBuilder json = new StringBuilder("[\n");
+        int index = 0;
+        for (Map.Entry<String, Map<String, RunResult>> entry : scenarios.entrySet()) {
+            String[] key = entry.getKey().split("\\|");
+            Map<String, RunResult> phases = entry.getValue();
+            json.append("  {\n");
+            json.append("    \"scenarioId\": \"jmh-").append(key[0]).append("mb-").append(key[1]).append("\",\n");
+            json.append("    \"sizeMb\": ").append(key[0]).append(",\n");
+            json.append("    \"iterations\": ").append(iterations).append(",\n");
+            json.append("    \"backend\": \"").append(key[1]).append("\",\n");
+            json.append("    \"metrics\": {\n");
+            for (String phase : PHASES) {
+                json.append("      \"").append(phase).append("Seconds\": ")
+                    .append(secondsFor(phases.get(phase), iterations)).append(",\n");
+            }
+            json.append("      \"pageFaultsMinor\": ").append(faultsFor(phases, "minor-faults", iterations)).append(",\n");
+            json.append("      \"pageFaultsMajor\": ").append(faultsFor(phases, "major-faults", iterations)).append("\n");
+            json.append("    },\n");
+            json.append("    \"jmh\": {\n");
+            int phaseIndex = 0;
+            for (String phase : PHASES) {
+                RunResult run = phases.get(phase);
+                json.append("      \"").append(phase).append("\": ");
+                if (run == null) {
+                    json.append("null");
+                } else {
+                    Result<?> primary = run.getPrimaryResult();
+                    json.append("{\"score\": ").append(number(primary.getScore()))
+                        .append(", \"scoreError\": ").append(number(primary.getScoreError()))
+                        .append(", \"unit\": \"").append(primary.getScoreUnit()).append("\"");
+                    for (Map.Entry<String, Result> secondary : run.getSecondaryResults().entrySet()) {
+                        json.append(", \"").append(secondary.getKey()).append("\": ")
+                            .append(number(secondary.getValue().getScore()));
+                    }
+                    json.append("}");
+                }
+                json.append(++phaseIndex < PHASES.length ? ",\n" : "\n");
+            }
+            json.append("    },\n");
+            json.append("    \"timestamp\": \"").append(timestamp).append("\",\n");
+            json.append("    \"javaVersion\": \"").append(System.getProperty("java.version")).append("\"\n");
+            json.append("  }");
+            json.append(++index < scenarios.size() ? ",\n" : "\n");
+        }
+        json.append("]\n");
+
+        new File(REPORT_DIR).mkdirs();
+        String fileName;
+        if (customOutput != null) {
+            fileName = new File(customOutput).isAbsolute()
+                ? customOutput
+                : REPORT_DIR + File.separator + customOutput;
+        } else {
+            String stamp = new SimpleDateFormat("yyyy-MM-dd'T'HH-mm-ss").format(new Date());
+            fileName = REPORT_DIR + File.separator + stamp + "-memory-jmh.json";
+        }
+        Files.write(Paths.get(fileName), json.toString().getBytes(StandardCharsets.UTF_8));
+        System.out.println("Resultados gravados em " + fileName);
+    }
+
+    /** ms/op vezes as iterações do cenário, em segundos, como os totais de measure*. */
+    private static String secondsFor(RunResult run, int iterations) {
+        if (run == null) {
+            return "null";
+        }
+        Result<?> primary = run.getPrimaryResult();
+        double millisPerOp = primary.getScore();
+        return number(millisPerOp / 1000.0 * iterations);
+    }
+
+    /** Soma os page faults por operação das quatro fases; null sem o profiler perfnorm. */
+    private static String faultsFor(Map<String, RunResult> phases, String event, int iterations) {
+        double total = 0;
+        boolean found = false;
+        for (RunResult run : phases.values()) {
+            Result<?> result = run.getSecondaryResults().get(event);
+            if (result != null && !Double.isNaN(result.getScore())) {
+                total += result.getScore();
+                found = true;
+            }
+        }
+        return found ? String.valueOf(Math.round(total * iterations)) : "null";
+    }
+
+    private static String number(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "null" : String.valueOf(value);
+    }
+}